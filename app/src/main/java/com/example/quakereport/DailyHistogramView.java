@@ -0,0 +1,66 @@
+package com.example.quakereport;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+/**
+ * 以柱状图显示每天的事件数，从左到右由早到晚，柱高按最大的一天缩放。
+ */
+public class DailyHistogramView extends View {
+
+    /**
+     * 柱之间的间隔占每柱宽度的比例
+     */
+    private static final float GAP_FRACTION = 0.2f;
+
+    private final Paint barPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private int[] counts = new int[0];
+
+    private int maxCount;
+
+    public DailyHistogramView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        barPaint.setColor(ContextCompat.getColor(context, R.color.magnitude1));
+    }
+
+    /**
+     * 设置每天的事件数，从早到晚排列
+     */
+    public void setCounts(int[] counts) {
+        this.counts = counts;
+        maxCount = 0;
+        for (int count : counts) {
+            maxCount = Math.max(maxCount, count);
+        }
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (counts.length == 0 || maxCount == 0) {
+            return;
+        }
+
+        float left = getPaddingLeft();
+        float bottom = getHeight() - getPaddingBottom();
+        float barWidth = (getWidth() - getPaddingLeft() - getPaddingRight()) / (float) counts.length;
+        float height = bottom - getPaddingTop();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            // 非零的天至少显示 1 像素
+            float top = bottom - Math.max(1, height * counts[i] / maxCount);
+            float x = left + i * barWidth;
+            canvas.drawRect(x, top, x + barWidth * (1 - GAP_FRACTION), bottom, barPaint);
+        }
+    }
+}
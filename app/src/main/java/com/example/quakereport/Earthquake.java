@@ -1,6 +1,11 @@
 package com.example.quakereport;
 
 public class Earthquake {
+    /**
+     * USGS 事件 ID（如 "us7000abcd"）
+     */
+    private String id;
+
     /**
      * 地震震级
      */
@@ -16,11 +21,38 @@ public class Earthquake {
      */
     private long time;
 
+    /**
+     * USGS 最后一次更新该事件的时间（毫秒）
+     */
+    private long updated;
+
     /**
      * 地震的网站 URL
      */
     private String url;
 
+    /**
+     * 震中经度（度），未知时为 NaN
+     */
+    private double longitude;
+
+    /**
+     * 震中纬度（度），未知时为 NaN
+     */
+    private double latitude;
+
+    /**
+     * 震源深度（千米），未知时为 NaN
+     */
+    private double depth;
+
+    /**
+     * 返回地震的 USGS 事件 ID
+     */
+    public String getId() {
+        return id;
+    }
+
     /**
      * 返回地震的震级
      */
@@ -42,6 +74,13 @@ public class Earthquake {
         return time;
     }
 
+    /**
+     * 返回地震事件最后一次更新的时间。
+     */
+    public long getUpdated() {
+        return updated;
+    }
+
     /**
      * 返回用于查找关于地震的更多信息的网站 URL。
      */
@@ -49,6 +88,34 @@ public class Earthquake {
         return url;
     }
 
+    /**
+     * 返回震中经度，未知时返回 NaN
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * 返回震中纬度，未知时返回 NaN
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * 返回震源深度（千米），未知时返回 NaN
+     */
+    public double getDepth() {
+        return depth;
+    }
+
+    /**
+     * 返回是否有震中坐标
+     */
+    public boolean hasLocation() {
+        return !Double.isNaN(longitude) && !Double.isNaN(latitude);
+    }
+
     /**
      * 构造一个新的 {@link Earthquake} 对象。
      *
@@ -58,19 +125,61 @@ public class Earthquake {
      * @param url   表示用于查找关于地震的更多详细信息的网站 URL
      */
     public Earthquake(double mag, String place, long time, String url) {
+        this(null, mag, place, time, time, url);
+    }
+
+    /**
+     * 构造一个新的 {@link Earthquake} 对象。
+     *
+     * @param id      表示地震的 USGS 事件 ID
+     * @param mag     表示地震的震级（大小）
+     * @param place   表示地震的城市位置
+     * @param time    表示地震发生时以毫秒（根据 Epoch）计的时间
+     * @param updated 表示该事件最后一次更新时以毫秒（根据 Epoch）计的时间
+     * @param url     表示用于查找关于地震的更多详细信息的网站 URL
+     */
+    public Earthquake(String id, double mag, String place, long time, long updated, String url) {
+        this(id, mag, place, time, updated, url, Double.NaN, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * 构造一个新的 {@link Earthquake} 对象。
+     *
+     * @param id        表示地震的 USGS 事件 ID
+     * @param mag       表示地震的震级（大小）
+     * @param place     表示地震的城市位置
+     * @param time      表示地震发生时以毫秒（根据 Epoch）计的时间
+     * @param updated   表示该事件最后一次更新时以毫秒（根据 Epoch）计的时间
+     * @param url       表示用于查找关于地震的更多详细信息的网站 URL
+     * @param longitude 表示震中经度（度），未知时为 NaN
+     * @param latitude  表示震中纬度（度），未知时为 NaN
+     * @param depth     表示震源深度（千米），未知时为 NaN
+     */
+    public Earthquake(String id, double mag, String place, long time, long updated, String url,
+                      double longitude, double latitude, double depth) {
+        this.id = id;
         this.mag = mag;
         this.place = place;
         this.time = time;
+        this.updated = updated;
         this.url = url;
+        this.longitude = longitude;
+        this.latitude = latitude;
+        this.depth = depth;
     }
 
     @Override
     public String toString() {
         return "Earthquake{" +
-                "mag=" + mag +
+                "id='" + id + '\'' +
+                ", mag=" + mag +
                 ", place='" + place + '\'' +
                 ", time=" + time +
+                ", updated=" + updated +
                 ", url='" + url + '\'' +
+                ", longitude=" + longitude +
+                ", latitude=" + latitude +
+                ", depth=" + depth +
                 '}';
     }
 }
@@ -15,37 +15,62 @@
  */
 package com.example.quakereport;
 
+import android.Manifest;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.location.Location;
+import android.location.LocationManager;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.preference.PreferenceManager;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.ForegroundColorSpan;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
-import android.widget.AdapterView;
-import android.widget.ListView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.SearchView;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
 import androidx.loader.app.LoaderManager;
 import androidx.loader.content.Loader;
-
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.quakereport.data.EarthquakeQuery;
+import com.example.quakereport.data.EarthquakeStats;
+import com.example.quakereport.data.LocationFilter;
+import com.example.quakereport.detail.DetailIntentContract;
+import com.example.quakereport.detail.DetailPrefetcher;
+import com.example.quakereport.detail.EarthquakeDetailActivity;
+import com.example.quakereport.map.EarthquakeMapActivity;
 import com.example.quakereport.setting.SettingsActivity;
+import com.example.quakereport.sync.EarthquakeSyncScheduler;
+import com.example.quakereport.sync.LiveFeedPoller;
+import com.example.quakereport.util.PerfMetrics;
 import com.example.quakereport.web.WebActivity;
 import com.example.quakereport.web.WebIntentContract;
 
-import java.util.ArrayList;
+import java.io.File;
+import java.text.DecimalFormat;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
-public class EarthquakeActivity extends AppCompatActivity implements LoaderManager.LoaderCallbacks<List<Earthquake>> {
+public class EarthquakeActivity extends AppCompatActivity implements LoaderManager.LoaderCallbacks<List<EarthquakeItem>> {
     /**
      * 地震 loader ID 的常量值。可选择任意整数。
      * 仅当使用多个 loader 时该设置才起作用。
@@ -53,14 +78,49 @@ public class EarthquakeActivity extends AppCompatActivity implements LoaderManag
     private static int EARTHQUAKE_LOADER_ID = 1;
 
     /**
-     * 日志标签
+     * loader 参数：是否为偏好设置变化后的重新查询
      */
-    private static final String LOG_TAG = EarthquakeActivity.class.getName();
+    private static final String ARG_REQUERY = "requery";
+
+    /**
+     * 按位置搜索的 loader ID
+     */
+    private static final int PLACE_SEARCH_LOADER_ID = 2;
+
+    /**
+     * 搜索 loader 参数：搜索框中的文字
+     */
+    private static final String ARG_SEARCH_TEXT = "search_text";
 
     /**
-     * URL for earthquake data from the USGS dataset
+     * 按位置搜索时最多显示的地震个数
      */
-    private static final String USGS_REQUEST_URL = "https://earthquake.usgs.gov/fdsnws/event/1/query";
+    private static final int MAX_SEARCH_RESULTS = 1000;
+
+    /**
+     * 请求位置权限的请求码
+     */
+    private static final int LOCATION_PERMISSION_REQUEST_CODE = 1;
+
+    /**
+     * 实时模式轮询间隔的最小值（秒），USGS 摘要 feed 每分钟更新一次
+     */
+    private static final long MIN_LIVE_INTERVAL_SECONDS = 10;
+
+    /**
+     * 性能浮层的刷新间隔
+     */
+    private static final long PERF_OVERLAY_REFRESH_MILLIS = 1000;
+
+    /**
+     * 性能浮层是否显示（进程内保持，活动重建后恢复）
+     */
+    private static boolean sPerfOverlayEnabled;
+
+    /**
+     * 日志标签
+     */
+    private static final String LOG_TAG = EarthquakeActivity.class.getName();
 
     /**
      * 地震列表的适配器
@@ -77,6 +137,118 @@ public class EarthquakeActivity extends AppCompatActivity implements LoaderManag
      */
     private ProgressBar loadSpinner;
 
+    /**
+     * 列表上方的统计摘要，第一次加载完成前隐藏
+     */
+    private View summaryHeader;
+    private TextView summaryText;
+    private TextView summaryRatesText;
+    private TextView summaryBandsText;
+    private DailyHistogramView summaryHistogram;
+
+    /**
+     * 仅显示一位小数的震级格式（如“3.2”）
+     */
+    private final DecimalFormat magnitudeFormat = new DecimalFormat("0.0");
+
+    /**
+     * 距离列表底部还剩多少项时预取下一页
+     */
+    private int prefetchDistance;
+
+    /**
+     * 是否正在加载下一页
+     */
+    private boolean isLoadingNextPage;
+
+    /**
+     * 当前 loader 使用的查询参数
+     */
+    private EarthquakeQuery currentQuery;
+
+    /**
+     * 当前 loader 创建时“我附近”的搜索半径（见 {@link LocationFilter#readRadiusKm(Context)}）
+     */
+    private double currentNearMeRadiusKm;
+
+    /**
+     * loader 最近一次交付的地震列表（已加载的所有页，未经搜索过滤）
+     */
+    private List<EarthquakeItem> allEarthquakes;
+
+    /**
+     * 按位置搜索本地数据库中所有地震的结果，没有搜索时为 null
+     */
+    private List<EarthquakeItem> searchResults;
+
+    /**
+     * 搜索框中的文字，为空时不过滤
+     */
+    private String searchQuery = "";
+
+    /**
+     * 实时模式的轮询器，只在活动可见且开启实时模式时运行
+     */
+    private LiveFeedPoller liveFeedPoller;
+
+    /**
+     * 预取用户可能点击的地震的详情
+     */
+    private DetailPrefetcher detailPrefetcher;
+
+    /**
+     * 性能浮层，在设置中开启性能工具（settings_perf_tools_key）后可以从菜单打开
+     */
+    private TextView perfOverlay;
+
+    /**
+     * 统计掉帧，只在性能浮层显示时运行
+     */
+    private FrameMonitor frameMonitor;
+
+    private final Handler perfOverlayHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * 定期刷新性能浮层
+     */
+    private final Runnable perfOverlayRefresh = new Runnable() {
+        @Override
+        public void run() {
+            perfOverlay.setText(PerfMetrics.format());
+            perfOverlayHandler.postDelayed(this, PERF_OVERLAY_REFRESH_MILLIS);
+        }
+    };
+
+    /**
+     * 按位置搜索的 loader 回调
+     */
+    private final LoaderManager.LoaderCallbacks<List<EarthquakeItem>> placeSearchCallbacks =
+            new LoaderManager.LoaderCallbacks<List<EarthquakeItem>>() {
+                @NonNull
+                @Override
+                public Loader<List<EarthquakeItem>> onCreateLoader(int id, @Nullable Bundle args) {
+                    String text = args == null ? "" : args.getString(ARG_SEARCH_TEXT, "");
+                    EarthquakeQuery query = currentQuery != null
+                            ? currentQuery : EarthquakeQuery.fromPreferences(EarthquakeActivity.this);
+                    return new PlaceSearchLoader(EarthquakeActivity.this,
+                            query.withLimit(MAX_SEARCH_RESULTS), text);
+                }
+
+                @Override
+                public void onLoadFinished(@NonNull Loader<List<EarthquakeItem>> loader,
+                                           List<EarthquakeItem> earthquakes) {
+                    searchResults = earthquakes;
+                    if (!searchQuery.isEmpty()) {
+                        showEarthquakes();
+                    }
+                }
+
+                @Override
+                public void onLoaderReset(@NonNull Loader<List<EarthquakeItem>> loader) {
+                    searchResults = null;
+                }
+            };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         Log.i(LOG_TAG, "TEST: onCreate() called ...");
@@ -84,63 +256,193 @@ public class EarthquakeActivity extends AppCompatActivity implements LoaderManag
         super.onCreate(savedInstanceState);
         setContentView(R.layout.earthquake_activity);
 
-        // 在布局中查找 {@link ListView} 的引用
-        ListView earthquakeListView = (ListView) findViewById(R.id.list);
+        // 在布局中查找 {@link RecyclerView} 的引用
+        RecyclerView earthquakeListView = findViewById(R.id.list);
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        earthquakeListView.setLayoutManager(layoutManager);
+        earthquakeListView.setHasFixedSize(true);
 
-        // 为 ListView 绑定空视图，在无数据时自动显示
+        // 列表为空时显示的空视图
         emptyView = findViewById(R.id.empty_view);
-        earthquakeListView.setEmptyView(emptyView);
 
-        // 创建新适配器，将空地震列表作为输入
-        earthquakeAdapter = new EarthquakeAdapter(this, new ArrayList<Earthquake>());
+        summaryHeader = findViewById(R.id.summary_header);
+        summaryText = findViewById(R.id.summary_text);
+        summaryRatesText = findViewById(R.id.summary_rates_text);
+        summaryBandsText = findViewById(R.id.summary_bands_text);
+        summaryHistogram = findViewById(R.id.summary_histogram);
 
-        // 在 {@link ListView} 上设置适配器
-        // 以便可以在用户界面中填充列表
-        earthquakeListView.setAdapter(earthquakeAdapter);
+        perfOverlay = findViewById(R.id.perf_overlay);
+        frameMonitor = new FrameMonitor(getWindowManager().getDefaultDisplay().getRefreshRate());
 
-        // 在 ListView 上设置项目单击监听器，该监听器会向 Web 浏览器发送 intent，
-        // 打开包含有关所选地震详细信息的网站。
-        earthquakeListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+        // 创建新适配器，单击列表项时打开原生的地震详情页面；
+        // 没有事件 ID 时无法获取详情，直接在 WebView 中打开包含有关所选地震详细信息的网站。
+        earthquakeAdapter = new EarthquakeAdapter(new EarthquakeAdapter.OnItemClickListener() {
             @Override
-            public void onItemClick(AdapterView<?> adapterView, View view, int position, long l) {
-                // 查找单击的当前地震
-                Earthquake currentEarthquake = earthquakeAdapter.getItem(position);
-
-                // 将字符串 URL 转换成 URI 对象（传递到 Intent 构造函数中）
-                Uri earthquakeUri = Uri.parse(currentEarthquake.getUrl());
-
-                // 创建新 intent 以查看地震 URI（显式）
-                Intent intent = new Intent(getBaseContext(), WebActivity.class);
-                intent.putExtra(WebIntentContract.S_EARTHQUAKE_URI, earthquakeUri.toString());
-                intent.putExtra(WebIntentContract.S_EARTHQUAKE_PLACE, currentEarthquake.getPlace());
+            public void onItemClick(Earthquake currentEarthquake) {
+                Intent intent;
+                if (currentEarthquake.getId() != null) {
+                    intent = new Intent(getBaseContext(), EarthquakeDetailActivity.class);
+                    intent.putExtra(DetailIntentContract.S_EARTHQUAKE_ID, currentEarthquake.getId());
+                    intent.putExtra(DetailIntentContract.S_EARTHQUAKE_PLACE, currentEarthquake.getPlace());
+                    intent.putExtra(DetailIntentContract.S_EARTHQUAKE_URI, currentEarthquake.getUrl());
+                    intent.putExtra(DetailIntentContract.S_EARTHQUAKE_MAG, currentEarthquake.getMag());
+                    intent.putExtra(DetailIntentContract.S_EARTHQUAKE_TIME, currentEarthquake.getTime());
+                } else {
+                    // 将字符串 URL 转换成 URI 对象（传递到 Intent 构造函数中）
+                    Uri earthquakeUri = Uri.parse(currentEarthquake.getUrl());
+
+                    // 创建新 intent 以查看地震 URI（显式）
+                    intent = new Intent(getBaseContext(), WebActivity.class);
+                    intent.putExtra(WebIntentContract.S_EARTHQUAKE_URI, earthquakeUri.toString());
+                    intent.putExtra(WebIntentContract.S_EARTHQUAKE_PLACE, currentEarthquake.getPlace());
+                }
 
                 // 发送 intent 以启动新活动
                 startActivity(intent);
             }
         });
 
-        // If there is a network connection, fetch data
-        if (checkNetworkConnection()) {
-            // 引用 LoaderManager，以便与 loader 进行交互。
-            LoaderManager loaderManager = getSupportLoaderManager();
+        // 在 {@link RecyclerView} 上设置适配器
+        // 以便可以在用户界面中填充列表
+        earthquakeListView.setAdapter(earthquakeAdapter);
 
-            // 初始化 loader。传递上面定义的整数 ID 常量并作为捆绑
-            // 传递 null。为 LoaderCallbacks 参数（由于
-            // 此活动实现了 LoaderCallbacks 接口而有效）传递此活动。
-            loaderManager.initLoader(EARTHQUAKE_LOADER_ID, null, this);
-        } else {
-            loadSpinner = findViewById(R.id.loading_spinner);
-            loadSpinner.setVisibility(View.GONE);
-            emptyView.setText(R.string.no_internet_connection);
+        // 列表停止滚动后，预取可见列表项中震级最大的几个地震的详情
+        detailPrefetcher = new DetailPrefetcher(this, layoutManager, earthquakeAdapter);
+        earthquakeListView.addOnScrollListener(detailPrefetcher);
+
+        // 滚动到距离列表底部 prefetchDistance 项以内时，在后台预取下一页
+        prefetchDistance = readPrefetchDistance();
+        earthquakeListView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                int totalItemCount = earthquakeAdapter.getItemCount();
+                int lastVisibleItem = layoutManager.findLastVisibleItemPosition();
+                // 搜索时列表只显示匹配的地震，不预取下一页
+                if (searchQuery.isEmpty() && totalItemCount > 0
+                        && lastVisibleItem >= totalItemCount - 1 - prefetchDistance) {
+                    loadNextPage();
+                }
+            }
+        });
+
+        // 在后台定期同步地震数据，已调度时不会重复调度
+        EarthquakeSyncScheduler.schedulePeriodicSync(this);
+
+        // 引用 LoaderManager，以便与 loader 进行交互。
+        LoaderManager loaderManager = getSupportLoaderManager();
+
+        // 初始化 loader。传递上面定义的整数 ID 常量并作为捆绑
+        // 传递 null。为 LoaderCallbacks 参数（由于
+        // 此活动实现了 LoaderCallbacks 接口而有效）传递此活动。
+        // 没有网络连接时，loader 只从本地数据库读取地震数据。
+        Loader<List<EarthquakeItem>> loader = loaderManager.initLoader(EARTHQUAKE_LOADER_ID, null, this);
+        if (loader instanceof EarthquakeLoader) {
+            // 配置变化后复用已有的 loader 时，不会调用 onCreateLoader
+            currentQuery = ((EarthquakeLoader) loader).getQuery();
+            LocationFilter locationFilter = ((EarthquakeLoader) loader).getLocationFilter();
+            currentNearMeRadiusKm = locationFilter == null ? 0 : locationFilter.getRadiusKm();
+        }
+
+        // 活动重建后搜索框为空，之前的搜索结果不再需要
+        loaderManager.destroyLoader(PLACE_SEARCH_LOADER_ID);
+    }
+
+    @Override
+    protected void onRestart() {
+        super.onRestart();
+
+        // 从设置页面返回后，若查询参数有变化则重新查询。
+        // 最小震级更严格或只改变了排序方式时，loader 直接从内存回答，不访问网络。
+        prefetchDistance = readPrefetchDistance();
+        if (!EarthquakeQuery.fromPreferences(this).equals(currentQuery)
+                || LocationFilter.readRadiusKm(this) != currentNearMeRadiusKm) {
+            Bundle args = new Bundle();
+            args.putBoolean(ARG_REQUERY, true);
+            getSupportLoaderManager().restartLoader(EARTHQUAKE_LOADER_ID, args, this);
         }
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+
+        // 开启实时模式时，定期把最近一小时的新事件合并到列表中
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
+        if (sharedPrefs.getBoolean(getString(R.string.settings_live_mode_key), false) && currentQuery != null) {
+            liveFeedPoller = new LiveFeedPoller(this, currentQuery.getMinMagnitude(), readLiveIntervalMillis(),
+                    new LiveFeedPoller.Listener() {
+                        @Override
+                        public void onEarthquakesChanged(int changedCount) {
+                            Loader<List<EarthquakeItem>> loader =
+                                    getSupportLoaderManager().getLoader(EARTHQUAKE_LOADER_ID);
+                            if (loader instanceof EarthquakeLoader) {
+                                ((EarthquakeLoader) loader).onStoreChanged();
+                            }
+                        }
+                    });
+            liveFeedPoller.start();
+        }
+
+        // 在设置中关闭性能工具后，浮层也随之关闭
+        if (!isPerfToolsEnabled()) {
+            sPerfOverlayEnabled = false;
+        }
+        if (sPerfOverlayEnabled) {
+            startPerfOverlay();
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+
+        if (liveFeedPoller != null) {
+            liveFeedPoller.stop();
+            liveFeedPoller = null;
+        }
+
+        stopPerfOverlay();
+        detailPrefetcher.cancel();
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main, menu);
+
+        // 边输入边按位置过滤地震列表
+        SearchView searchView = (SearchView) menu.findItem(R.id.action_search).getActionView();
+        searchView.setQueryHint(getString(R.string.search_hint));
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                return false;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                searchQuery = newText == null ? "" : newText.trim();
+                if (searchQuery.isEmpty()) {
+                    getSupportLoaderManager().destroyLoader(PLACE_SEARCH_LOADER_ID);
+                    searchResults = null;
+                    showEarthquakes();
+                } else {
+                    searchPlaces();
+                }
+                return true;
+            }
+        });
         return true;
     }
 
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        // 性能浮层和导出只在设置中开启性能工具后显示，每次打开菜单时按当前设置更新
+        boolean perfToolsEnabled = isPerfToolsEnabled();
+        menu.findItem(R.id.action_perf_overlay).setVisible(perfToolsEnabled).setChecked(sPerfOverlayEnabled);
+        menu.findItem(R.id.action_perf_dump).setVisible(perfToolsEnabled);
+        return super.onPrepareOptionsMenu(menu);
+    }
+
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         int id = item.getItemId();
@@ -148,75 +450,298 @@ public class EarthquakeActivity extends AppCompatActivity implements LoaderManag
             Intent settingsIntent = new Intent(this, SettingsActivity.class);
             startActivity(settingsIntent);
             return true;
+        } else if (id == R.id.action_map) {
+            startActivity(new Intent(this, EarthquakeMapActivity.class));
+            return true;
+        } else if (id == R.id.action_perf_overlay) {
+            sPerfOverlayEnabled = !item.isChecked();
+            item.setChecked(sPerfOverlayEnabled);
+            if (sPerfOverlayEnabled) {
+                startPerfOverlay();
+            } else {
+                stopPerfOverlay();
+            }
+            return true;
+        } else if (id == R.id.action_perf_dump) {
+            exportPerfMetrics();
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
 
     @NonNull
     @Override
-    public Loader<List<Earthquake>> onCreateLoader(int id, @Nullable Bundle args) {
+    public Loader<List<EarthquakeItem>> onCreateLoader(int id, @Nullable Bundle args) {
         Log.i(LOG_TAG, "TEST: onCreateLoader() called ...");
 
-        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
-
-        // 地震最小震级的偏好设置
-        String minMagnitude = sharedPrefs.getString(getString(
-                R.string.settings_min_magnitude_key),
-                getString(R.string.settings_min_magnitude_default));
-        Uri baseUri = Uri.parse(USGS_REQUEST_URL);
-        Uri.Builder uriBuilder = baseUri.buildUpon();
-
-        // 按照地震发生的最近时间排序偏好
-        String orderBy = sharedPrefs.getString(getString(
-                R.string.settings_order_by_key),
-                getString(R.string.settings_order_by_default));
-
-        // 按照地震发生的最近时间排序偏好
-        String limit = sharedPrefs.getString(getString(
-                R.string.settings_limit_key),
-                getString(R.string.settings_limit_default));
-
-        // 最多显示地震个数偏好
-        String limit = sharedPrefs.getString(getString(
-                R.string.settings_limit_key),
-                getString(R.string.settings_limit_default));
-
-        // 构造 USGS 请求地址
-        uriBuilder.appendQueryParameter("format", "geojson");
-        uriBuilder.appendQueryParameter("limit", limit);
-        uriBuilder.appendQueryParameter("minmag", minMagnitude);
-        uriBuilder.appendQueryParameter("orderby", orderBy);
+        currentQuery = EarthquakeQuery.fromPreferences(this);
+        boolean requery = args != null && args.getBoolean(ARG_REQUERY);
+        LocationFilter locationFilter = readLocationFilter();
+        currentNearMeRadiusKm = locationFilter == null ? 0 : locationFilter.getRadiusKm();
+        return new EarthquakeLoader(this, currentQuery, checkNetworkConnection(), requery, locationFilter);
+    }
 
-        return new EarthquakeLoader(this, uriBuilder.toString());
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions,
+                                           @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode == LOCATION_PERMISSION_REQUEST_CODE && grantResults.length > 0
+                && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+            // 取得权限后按用户的位置重新查询
+            Bundle args = new Bundle();
+            args.putBoolean(ARG_REQUERY, true);
+            getSupportLoaderManager().restartLoader(EARTHQUAKE_LOADER_ID, args, this);
+        }
     }
 
     @Override
-    public void onLoadFinished(@NonNull Loader<List<Earthquake>> loader, List<Earthquake> earthquakes) {
+    public void onLoadFinished(@NonNull Loader<List<EarthquakeItem>> loader, List<EarthquakeItem> earthquakes) {
         Log.i(LOG_TAG, "TEST: onLoadFinished() called ...");
 
         // Set empty state text to display "No earthquakes found."
-        emptyView.setText(R.string.no_earthquakes);
+        // 本地没有数据且没有网络连接时，提示用户连接网络
+        if (checkNetworkConnection()) {
+            emptyView.setText(R.string.no_earthquakes);
+        } else {
+            emptyView.setText(R.string.no_internet_connection);
+        }
+
+        isLoadingNextPage = false;
 
         // 因数据已加载，隐藏加载指示符
         loadSpinner = findViewById(R.id.loading_spinner);
         loadSpinner.setVisibility(View.GONE);
 
-        // 清除之前地震数据的适配器
-        earthquakeAdapter.clear();
-
-        // 如果存在 {@link Earthquake} 的有效列表，则将其添加到适配器的
-        // 数据集。这将触发 ListView 执行更新。
-        if (earthquakes != null && !earthquakes.isEmpty()) {
-            earthquakeAdapter.addAll(earthquakes);
+        allEarthquakes = earthquakes;
+        if (searchQuery.isEmpty()) {
+            showEarthquakes();
+        } else {
+            // 本地数据库可能有变化，重新搜索
+            searchPlaces();
+        }
+        if (loader instanceof EarthquakeLoader) {
+            showSummary(((EarthquakeLoader) loader).getSummary());
         }
     }
 
     @Override
-    public void onLoaderReset(@NonNull Loader<List<Earthquake>> loader) {
+    public void onLoaderReset(@NonNull Loader<List<EarthquakeItem>> loader) {
         Log.i(LOG_TAG, "TEST: onLoaderReset() called ...");
 
         // 重置 Loader，以便能够清除现有数据。
-        earthquakeAdapter.clear();
+        allEarthquakes = null;
+        earthquakeAdapter.submitList(null);
+    }
+
+    /**
+     * 在后台按搜索框中的文字搜索本地数据库中的所有地震，正在进行的上一次搜索被取消
+     */
+    private void searchPlaces() {
+        Bundle args = new Bundle();
+        args.putString(ARG_SEARCH_TEXT, searchQuery);
+        getSupportLoaderManager().restartLoader(PLACE_SEARCH_LOADER_ID, args, placeSearchCallbacks);
+    }
+
+    /**
+     * 把地震列表提交给适配器：搜索框为空时显示已加载的所有页，否则显示搜索结果
+     */
+    private void showEarthquakes() {
+        List<EarthquakeItem> earthquakes = searchQuery.isEmpty() ? allEarthquakes : searchResults;
+
+        // 将新的地震列表提交给适配器，在后台线程计算差异后
+        // 只更新有变化的列表项，并保持当前的滚动位置。
+        earthquakeAdapter.submitList(earthquakes, new Runnable() {
+            @Override
+            public void run() {
+                detailPrefetcher.onListChanged();
+            }
+        });
+
+        // 列表为空时显示空视图
+        boolean isEmpty = earthquakes == null || earthquakes.isEmpty();
+        emptyView.setVisibility(isEmpty ? View.VISIBLE : View.GONE);
+    }
+
+    /**
+     * 在列表上方显示统计摘要：事件总数和最大震级、最近一小时/一天/一周的事件数、
+     * 各震级段的事件数（使用震级圆圈的颜色）以及每天的事件数
+     */
+    private void showSummary(EarthquakeStats.Summary summary) {
+        if (summary == null) {
+            return;
+        }
+
+        summaryHeader.setVisibility(View.VISIBLE);
+        summaryText.setText(getString(R.string.summary_text, summary.getCount(),
+                Double.isNaN(summary.getMaxMagnitude()) ? "-" : magnitudeFormat.format(summary.getMaxMagnitude())));
+        summaryRatesText.setText(getString(R.string.summary_rates, summary.getLastHourCount(),
+                summary.getLastDayCount(), summary.getLastWeekCount()));
+
+        // 只显示有事件的震级段
+        SpannableStringBuilder bands = new SpannableStringBuilder();
+        for (int band = 0; band < EarthquakeStats.BAND_COUNT; band++) {
+            int count = summary.getBandCount(band);
+            if (count == 0) {
+                continue;
+            }
+            if (bands.length() > 0) {
+                bands.append("   ");
+            }
+            int start = bands.length();
+            bands.append(getString(R.string.summary_band, band, count));
+            bands.setSpan(new ForegroundColorSpan(ContextCompat.getColor(this,
+                    EarthquakeFormatter.getMagnitudeColorResourceId(band))),
+                    start, bands.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+        summaryBandsText.setText(bands);
+        summaryHistogram.setCounts(summary.getDailyCounts());
+    }
+
+    /**
+     * 显示性能浮层，并开始统计掉帧
+     */
+    private void startPerfOverlay() {
+        perfOverlay.setVisibility(View.VISIBLE);
+        frameMonitor.start();
+        perfOverlayHandler.removeCallbacks(perfOverlayRefresh);
+        perfOverlayRefresh.run();
+    }
+
+    /**
+     * 隐藏性能浮层，并停止统计掉帧
+     */
+    private void stopPerfOverlay() {
+        perfOverlayHandler.removeCallbacks(perfOverlayRefresh);
+        frameMonitor.stop();
+        perfOverlay.setVisibility(View.GONE);
+    }
+
+    /**
+     * 返回是否在设置中开启了性能工具
+     */
+    private boolean isPerfToolsEnabled() {
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
+        return sharedPrefs.getBoolean(getString(R.string.settings_perf_tools_key), false);
+    }
+
+    /**
+     * 在后台线程把性能报告写入应用的外部文件目录，完成后提示文件位置，并打开分享面板发送报告
+     */
+    private void exportPerfMetrics() {
+        final Context appContext = getApplicationContext();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final String report = PerfMetrics.report();
+                final File file = PerfMetrics.dump(appContext, report);
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (isFinishing()) {
+                            return;
+                        }
+                        if (file != null) {
+                            Toast.makeText(EarthquakeActivity.this,
+                                    getString(R.string.perf_dump_done, file.getAbsolutePath()), Toast.LENGTH_LONG).show();
+                        } else {
+                            Toast.makeText(EarthquakeActivity.this, R.string.perf_dump_failed, Toast.LENGTH_SHORT).show();
+                        }
+
+                        // 写入失败时报告仍然可以分享
+                        Intent shareIntent = new Intent(Intent.ACTION_SEND)
+                                .setType("text/plain")
+                                .putExtra(Intent.EXTRA_SUBJECT, getString(R.string.perf_dump_subject))
+                                .putExtra(Intent.EXTRA_TEXT, report);
+                        startActivity(Intent.createChooser(shareIntent, getString(R.string.perf_dump_share_title)));
+                    }
+                });
+            }
+        }, "PerfMetricsExport").start();
+    }
+
+    /**
+     * 如果还有下一页且当前没有正在加载，则让 loader 在后台加载下一页
+     */
+    private void loadNextPage() {
+        if (isLoadingNextPage) {
+            return;
+        }
+
+        Loader<List<EarthquakeItem>> loader = getSupportLoaderManager().getLoader(EARTHQUAKE_LOADER_ID);
+        if (loader instanceof EarthquakeLoader && ((EarthquakeLoader) loader).hasMorePages()) {
+            isLoadingNextPage = true;
+            ((EarthquakeLoader) loader).loadNextPage();
+        }
+    }
+
+    /**
+     * 根据“我附近”的偏好设置和最近一次已知的位置创建过滤条件。
+     * 设置已关闭时返回 null；还没有位置权限时请求权限，位置未知时提示用户，这两种情况下暂不过滤
+     */
+    private LocationFilter readLocationFilter() {
+        double radiusKm = LocationFilter.readRadiusKm(this);
+        if (radiusKm <= 0) {
+            return null;
+        }
+
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_COARSE_LOCATION)
+                != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this,
+                    new String[]{Manifest.permission.ACCESS_COARSE_LOCATION}, LOCATION_PERMISSION_REQUEST_CODE);
+            return null;
+        }
+
+        // 使用各个定位提供者中最新的已知位置，不主动定位
+        LocationManager locationManager = (LocationManager) getSystemService(Context.LOCATION_SERVICE);
+        Location best = null;
+        try {
+            for (String provider : locationManager.getProviders(true)) {
+                Location location = locationManager.getLastKnownLocation(provider);
+                if (location != null && (best == null || location.getTime() > best.getTime())) {
+                    best = location;
+                }
+            }
+        } catch (SecurityException e) {
+            Log.e(LOG_TAG, "Problem reading the last known location", e);
+        }
+        if (best == null) {
+            Toast.makeText(this, R.string.near_me_no_location, Toast.LENGTH_LONG).show();
+            return null;
+        }
+        return new LocationFilter(best.getLatitude(), best.getLongitude(), radiusKm);
+    }
+
+    /**
+     * 读取预取距离的偏好设置，无效的设置值将使用默认值代替
+     */
+    private int readPrefetchDistance() {
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
+        String prefetchDistance = sharedPrefs.getString(getString(
+                R.string.settings_prefetch_distance_key),
+                getString(R.string.settings_prefetch_distance_default));
+        try {
+            return Integer.parseInt(prefetchDistance);
+        } catch (NumberFormatException e) {
+            return Integer.parseInt(getString(R.string.settings_prefetch_distance_default));
+        }
+    }
+
+    /**
+     * 读取实时模式轮询间隔的偏好设置（秒），无效的设置值将使用默认值代替，过小的设置值提高到最小值
+     */
+    private long readLiveIntervalMillis() {
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
+        String liveInterval = sharedPrefs.getString(getString(
+                R.string.settings_live_interval_key),
+                getString(R.string.settings_live_interval_default));
+        long seconds;
+        try {
+            seconds = Long.parseLong(liveInterval);
+        } catch (NumberFormatException e) {
+            seconds = Long.parseLong(getString(R.string.settings_live_interval_default));
+        }
+        seconds = Math.max(seconds, MIN_LIVE_INTERVAL_SECONDS);
+        return TimeUnit.SECONDS.toMillis(seconds);
     }
 
     /**
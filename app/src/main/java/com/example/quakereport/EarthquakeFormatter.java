@@ -0,0 +1,169 @@
+package com.example.quakereport;
+
+import android.content.Context;
+
+import androidx.core.content.ContextCompat;
+
+import com.example.quakereport.data.EarthquakeColumns;
+
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 把 {@link Earthquake} 转换为可以直接显示的 {@link EarthquakeItem}。
+ * <p>
+ * 日期、时间和震级的格式化对象以及震级颜色都只创建一次并重复使用。
+ * 这些格式化对象不是线程安全的，每个实例只能在一个线程上使用（通常是 loader 的后台线程）。
+ */
+public class EarthquakeFormatter {
+
+    private static final String LOCATION_SEPARATOR = " of ";
+
+    /**
+     * 震级圆圈的颜色资源，下标为震级的整数部分（负震级、0 与 1 共用一种颜色，10 及以上共用最后一种）
+     */
+    private static final int[] MAGNITUDE_COLOR_RESOURCE_IDS = {
+            R.color.magnitude1,
+            R.color.magnitude1,
+            R.color.magnitude2,
+            R.color.magnitude3,
+            R.color.magnitude4,
+            R.color.magnitude5,
+            R.color.magnitude6,
+            R.color.magnitude7,
+            R.color.magnitude8,
+            R.color.magnitude9,
+            R.color.magnitude10plus
+    };
+
+    /**
+     * 日期格式（即 "Mar 3, 1984"）
+     */
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("LLL dd, yyyy");
+
+    /**
+     * 时间格式（即 "4:30 PM"）
+     */
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("h:mm a");
+
+    /**
+     * 仅显示一位小数的震级格式（如“3.2”）
+     */
+    private final DecimalFormat magnitudeFormat = new DecimalFormat("0.0");
+
+    /**
+     * 已解析的震级圆圈颜色值，与 {@link #MAGNITUDE_COLOR_RESOURCE_IDS} 一一对应
+     */
+    private final int[] magnitudeColors = new int[MAGNITUDE_COLOR_RESOURCE_IDS.length];
+
+    /**
+     * 没有具体距离时显示的位置偏移（"Near the"）
+     */
+    private final String nearThe;
+
+    /**
+     * 复用的 Date 对象
+     */
+    private final Date dateObject = new Date();
+
+    public EarthquakeFormatter(Context context) {
+        for (int i = 0; i < MAGNITUDE_COLOR_RESOURCE_IDS.length; i++) {
+            magnitudeColors[i] = ContextCompat.getColor(context, MAGNITUDE_COLOR_RESOURCE_IDS[i]);
+        }
+        nearThe = context.getString(R.string.near_the);
+    }
+
+    /**
+     * 根据 震级的级别 返回震级圆圈颜色的资源 ID
+     */
+    public static int getMagnitudeColorResourceId(double magnitude) {
+        return MAGNITUDE_COLOR_RESOURCE_IDS[getMagnitudeBucket(magnitude)];
+    }
+
+    /**
+     * 返回震级所在颜色分组的下标。对于正小数，可以将其看作截去小数点后的数字部分。
+     * 负震级（很小的微震）归入第一组，与 0 到 2 级使用同一种颜色。
+     */
+    private static int getMagnitudeBucket(double magnitude) {
+        int magnitudeFloor = (int) Math.floor(magnitude);
+        return Math.max(0, Math.min(magnitudeFloor, MAGNITUDE_COLOR_RESOURCE_IDS.length - 1));
+    }
+
+    /**
+     * 返回震级圆圈的颜色值
+     */
+    public int getMagnitudeColor(double magnitude) {
+        return magnitudeColors[getMagnitudeBucket(magnitude)];
+    }
+
+    /**
+     * 将地震列表转换为可显示的列表项
+     */
+    public List<EarthquakeItem> format(List<Earthquake> earthquakes) {
+        if (earthquakes == null) {
+            return null;
+        }
+
+        List<EarthquakeItem> items = new ArrayList<>(earthquakes.size());
+        for (Earthquake earthquake : earthquakes) {
+            items.add(format(earthquake));
+        }
+        return items;
+    }
+
+    /**
+     * 将按列保存的地震转换为可显示的列表项。位置已在 {@link EarthquakeColumns} 中拆分好，无需再次查找分隔符。
+     */
+    public List<EarthquakeItem> format(EarthquakeColumns earthquakes) {
+        if (earthquakes == null) {
+            return null;
+        }
+
+        List<EarthquakeItem> items = new ArrayList<>(earthquakes.size());
+        for (int i = 0; i < earthquakes.size(); i++) {
+            String placeOffset = earthquakes.getPlaceOffset(i);
+            String primaryPlace = earthquakes.getPrimaryPlace(i);
+            double mag = earthquakes.getMag(i);
+
+            dateObject.setTime(earthquakes.getTime(i));
+            items.add(new EarthquakeItem(earthquakes.get(i),
+                    magnitudeFormat.format(mag),
+                    getMagnitudeColor(mag),
+                    placeOffset == null ? nearThe : placeOffset,
+                    primaryPlace == null ? "" : primaryPlace,
+                    dateFormat.format(dateObject),
+                    timeFormat.format(dateObject)));
+        }
+        return items;
+    }
+
+    /**
+     * 将单个地震转换为可显示的列表项
+     */
+    public EarthquakeItem format(Earthquake earthquake) {
+        // 位置信息的拆分
+        String primaryPlace;
+        String placeOffset;
+        String originalPlace = earthquake.getPlace() == null ? "" : earthquake.getPlace();
+        int separatorIndex = originalPlace.indexOf(LOCATION_SEPARATOR);
+        if (separatorIndex >= 0) {
+            placeOffset = originalPlace.substring(0, separatorIndex + LOCATION_SEPARATOR.length());
+            primaryPlace = originalPlace.substring(separatorIndex + LOCATION_SEPARATOR.length());
+        } else {
+            placeOffset = nearThe;
+            primaryPlace = originalPlace;
+        }
+
+        dateObject.setTime(earthquake.getTime());
+        return new EarthquakeItem(earthquake,
+                magnitudeFormat.format(earthquake.getMag()),
+                getMagnitudeColor(earthquake.getMag()),
+                placeOffset,
+                primaryPlace,
+                dateFormat.format(dateObject),
+                timeFormat.format(dateObject));
+    }
+}
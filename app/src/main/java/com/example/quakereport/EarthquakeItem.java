@@ -0,0 +1,84 @@
+package com.example.quakereport;
+
+/**
+ * 可以直接显示在列表项中的地震数据。
+ * <p>
+ * 所有文字和颜色都由 {@link EarthquakeFormatter} 在后台线程上预先计算好，
+ * 绑定视图时只需要赋值。
+ */
+public class EarthquakeItem {
+
+    /**
+     * 原始的地震数据
+     */
+    private final Earthquake earthquake;
+
+    /**
+     * 格式化后的震级（如 "3.2"）
+     */
+    private final String magnitude;
+
+    /**
+     * 震级圆圈的颜色值
+     */
+    private final int magnitudeColor;
+
+    /**
+     * 位置的偏移部分（如 "30km S of "）
+     */
+    private final String placeOffset;
+
+    /**
+     * 主要位置（如 "Long Beach, CA"）
+     */
+    private final String primaryPlace;
+
+    /**
+     * 格式化后的日期（如 "Mar 3, 1984"）
+     */
+    private final String date;
+
+    /**
+     * 格式化后的时间（如 "4:30 PM"）
+     */
+    private final String time;
+
+    public EarthquakeItem(Earthquake earthquake, String magnitude, int magnitudeColor,
+                          String placeOffset, String primaryPlace, String date, String time) {
+        this.earthquake = earthquake;
+        this.magnitude = magnitude;
+        this.magnitudeColor = magnitudeColor;
+        this.placeOffset = placeOffset;
+        this.primaryPlace = primaryPlace;
+        this.date = date;
+        this.time = time;
+    }
+
+    public Earthquake getEarthquake() {
+        return earthquake;
+    }
+
+    public String getMagnitude() {
+        return magnitude;
+    }
+
+    public int getMagnitudeColor() {
+        return magnitudeColor;
+    }
+
+    public String getPlaceOffset() {
+        return placeOffset;
+    }
+
+    public String getPrimaryPlace() {
+        return primaryPlace;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public String getTime() {
+        return time;
+    }
+}
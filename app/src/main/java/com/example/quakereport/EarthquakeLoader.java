@@ -1,19 +1,48 @@
 package com.example.quakereport;
 
 import android.content.Context;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
 import android.util.Log;
 
 import androidx.loader.content.AsyncTaskLoader;
 
+import com.example.quakereport.data.EarthquakeColumns;
+import com.example.quakereport.data.EarthquakeQuery;
+import com.example.quakereport.data.EarthquakeRepository;
+import com.example.quakereport.data.EarthquakeSnapshot;
+import com.example.quakereport.data.EarthquakeStats;
+import com.example.quakereport.data.LocationFilter;
 import com.example.quakereport.util.QueryUtilsPlus;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * 通过使用 AsyncTask 执行
- * 给定 URL 的网络请求，加载地震列表。
+ * 给定查询的网络请求，将结果保存到本地数据库，再从本地数据库加载地震列表。
+ * <p>
+ * 数据按页加载，每页的个数为 {@link EarthquakeQuery#getLimit()}，
+ * 调用 {@link #loadNextPage()} 追加下一页。结果在后台线程上由 {@link EarthquakeFormatter}
+ * 转换为可以直接显示的 {@link EarthquakeItem}。
+ * <p>
+ * 第一次加载时先从 {@link EarthquakeSnapshot} 读取上一次显示的第一页并立即交付，
+ * 交付后再在后台同步网络数据，用新的结果替换快照。
+ * <p>
+ * 需要完整下载时，每解析出一批地震就交付一次按查询排序的第一页（部分结果），
+ * 列表立即从顶部开始填充，不必等待整个响应下载和解析完成。
+ * <p>
+ * 有“我附近”过滤条件时，从本地读取时只保留用户附近的地震（见 {@link LocationFilter}）；
+ * 快照和部分结果都不经过过滤，因此这时不读写快照，也不交付部分结果。
+ * <p>
+ * 每次从本地读取后，同时读取本地数据库的聚合统计，由 {@link #getSummary()} 返回。
+ * <p>
+ * 加载被取消（活动销毁、偏好设置变化后重新查询等）时，中止正在进行的网络请求，
+ * 解析在下一个地震处停止，已下载的部分结果被丢弃。
  */
-public class EarthquakeLoader extends AsyncTaskLoader<List<Earthquake>> {
+public class EarthquakeLoader extends AsyncTaskLoader<List<EarthquakeItem>> {
 
     /**
      * 日志消息标签
@@ -21,19 +50,122 @@ public class EarthquakeLoader extends AsyncTaskLoader<List<Earthquake>> {
     private static final String LOG_TAG = EarthquakeLoader.class.getName();
 
     /**
-     * 查询 URL
+     * 查询参数
      */
-    private String url;
+    private EarthquakeQuery query;
+
+    /**
+     * “我附近”过滤条件，不过滤时为 null
+     */
+    private LocationFilter locationFilter;
+
+    /**
+     * 是否先从网络获取最新数据
+     */
+    private boolean fetchFromNetwork;
+
+    /**
+     * 是否为偏好设置变化后的重新查询。为 true 时，若本地数据已包含查询的所有事件，则不访问网络
+     */
+    private boolean requery;
+
+    /**
+     * 地震数据仓库，负责同步网络数据和读取本地数据库
+     */
+    private EarthquakeRepository repository;
+
+    /**
+     * 地震列表项的格式化器，只在后台线程上使用
+     */
+    private EarthquakeFormatter formatter;
+
+    /**
+     * 第一页的快照，用于冷启动时立即显示
+     */
+    private EarthquakeSnapshot snapshot;
+
+    /**
+     * 是否已尝试读取快照，快照只在第一次加载时读取
+     */
+    private volatile boolean snapshotRead;
+
+    /**
+     * 交付的结果是否来自快照，为 true 时交付后需要立即刷新
+     */
+    private volatile boolean refreshAfterDelivery;
+
+    /**
+     * 为 true 时下一次加载只从本地读取，不访问网络（实时模式已把新数据合并到本地数据库）
+     */
+    private volatile boolean reloadFromStore;
+
+    /**
+     * 是否有加载正在进行（从 forceLoad 到交付最终结果），只在主线程上访问
+     */
+    private boolean loadInProgress;
+
+    /**
+     * 加载进行期间本地数据库有变化，交付最终结果后需要再从本地读取一次，只在主线程上访问
+     */
+    private boolean storeChangedDuringLoad;
+
+    /**
+     * 正在交付的是否为部分结果，只在主线程上访问
+     */
+    private boolean deliveringPartialResult;
+
+    /**
+     * 已加载的页数
+     */
+    private volatile int pageCount = 1;
+
+    /**
+     * 最近一次加载的结果是否填满了所有页，为 true 时可能还有下一页
+     */
+    private volatile boolean hasMorePages = true;
+
+    /**
+     * 最近一次从本地读取时的聚合统计，还没有读取过时为 null
+     */
+    private volatile EarthquakeStats.Summary summary;
+
+    /**
+     * 用于在主线程上交付部分结果
+     */
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * 正在发布部分结果的发布器，同步完成后为 null，已排队但尚未执行的部分结果将被丢弃
+     */
+    private volatile PartialResultPublisher activePublisher;
+
+    /**
+     * 正在进行的加载的取消信号，没有加载时为 null
+     */
+    private CancellationSignal cancellationSignal;
 
     /**
      * 构建新 {@link EarthquakeLoader}。
      * <p>
      * 活动的 @param 上下文
-     * 要从中加载数据的 @param url
+     * 要加载的地震的 @param query 查询参数
+     * 为 true 时先从网络获取数据的 @param fetchFromNetwork
+     * 为 true 时尽量直接从内存回答查询的 @param requery
+     * “我附近”过滤条件的 @param locationFilter，不过滤时为 null
      */
-    public EarthquakeLoader(Context context, String url) {
+    public EarthquakeLoader(Context context, EarthquakeQuery query, boolean fetchFromNetwork, boolean requery,
+                            LocationFilter locationFilter) {
         super(context);
-        this.url = url;
+        this.query = query;
+        this.locationFilter = locationFilter;
+        this.fetchFromNetwork = fetchFromNetwork;
+        this.requery = requery;
+        this.repository = new EarthquakeRepository(context);
+        this.formatter = new EarthquakeFormatter(context);
+        this.snapshot = new EarthquakeSnapshot(context);
+
+        // 为网络请求启用 HTTP 缓存
+        QueryUtilsPlus.init(context);
     }
 
     @Override
@@ -44,19 +176,288 @@ public class EarthquakeLoader extends AsyncTaskLoader<List<Earthquake>> {
         forceLoad();
     }
 
+    @Override
+    protected void onForceLoad() {
+        super.onForceLoad();
+        loadInProgress = true;
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        loadInProgress = false;
+        storeChangedDuringLoad = false;
+    }
+
+    @Override
+    public void deliverResult(List<EarthquakeItem> data) {
+        super.deliverResult(data);
+        if (deliveringPartialResult) {
+            return;
+        }
+        loadInProgress = false;
+
+        // 快照已显示，接着在后台加载最新数据
+        if (refreshAfterDelivery) {
+            refreshAfterDelivery = false;
+            forceLoad();
+        } else if (storeChangedDuringLoad) {
+            storeChangedDuringLoad = false;
+            onStoreChanged();
+        }
+    }
+
+    /**
+     * 在主线程上交付同步完成前的部分结果，加载仍在进行
+     */
+    private void deliverPartialResult(List<EarthquakeItem> items) {
+        deliveringPartialResult = true;
+        try {
+            deliverResult(items);
+        } finally {
+            deliveringPartialResult = false;
+        }
+    }
+
+    /**
+     * 返回该 loader 的查询参数
+     */
+    public EarthquakeQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * 返回该 loader 的“我附近”过滤条件，不过滤时返回 null
+     */
+    public LocationFilter getLocationFilter() {
+        return locationFilter;
+    }
+
+    /**
+     * 在后台加载下一页数据，结果将包含已加载的所有页。
+     */
+    public void loadNextPage() {
+        pageCount++;
+        forceLoad();
+    }
+
+    /**
+     * 本地数据库有变化时在主线程上调用，只从本地重新读取已加载的所有页，不访问网络。
+     * 若有加载正在进行，不取消它（否则正在进行的同步或下一页的获取会被中止），
+     * 而是在其交付最终结果后再从本地读取。
+     */
+    public void onStoreChanged() {
+        if (loadInProgress) {
+            storeChangedDuringLoad = true;
+            return;
+        }
+
+        reloadFromStore = true;
+        onContentChanged();
+    }
+
+    /**
+     * 返回是否可能还有下一页数据
+     */
+    public boolean hasMorePages() {
+        return hasMorePages;
+    }
+
+    /**
+     * 返回最近一次加载时本地数据库中符合查询最小震级的地震的聚合统计，还没有时返回 null
+     */
+    public EarthquakeStats.Summary getSummary() {
+        return summary;
+    }
+
+    /**
+     * 在主线程上取消正在进行的加载：网络请求被中止，{@link #loadInBackground()} 尽快结束，其结果被丢弃。
+     */
+    @Override
+    public void cancelLoadInBackground() {
+        super.cancelLoadInBackground();
+
+        synchronized (this) {
+            if (cancellationSignal != null) {
+                cancellationSignal.cancel();
+            }
+        }
+    }
+
     /**
      * 这位于后台线程上。
      */
     @Override
-    public List<Earthquake> loadInBackground() {
+    public List<EarthquakeItem> loadInBackground() {
         Log.i(LOG_TAG, "TEST: loadInBackground() called ...");
 
-        if (null == url) {
+        if (null == query) {
             return null;
         }
 
-        // 执行网络请求、解析响应和提取地震列表。
-        List<Earthquake> earthquakes = QueryUtilsPlus.fetchEarthquakeData(url);
-        return earthquakes;
+        CancellationSignal signal;
+        synchronized (this) {
+            if (isLoadInBackgroundCanceled()) {
+                throw new OperationCanceledException();
+            }
+            signal = new CancellationSignal();
+            cancellationSignal = signal;
+        }
+        try {
+            return loadInBackground(signal);
+        } finally {
+            synchronized (this) {
+                cancellationSignal = null;
+            }
+        }
+    }
+
+    /**
+     * 执行一次加载，signal 被取消时抛出 {@link OperationCanceledException}
+     */
+    private List<EarthquakeItem> loadInBackground(CancellationSignal signal) {
+        // 冷启动时先交付快照，不访问网络和数据库（重新查询时内存中的数据更快，不需要快照）
+        if (!snapshotRead && !requery && locationFilter == null) {
+            snapshotRead = true;
+            EarthquakeColumns cached = snapshot.read(query);
+            if (cached != null && cached.size() > 0) {
+                refreshAfterDelivery = true;
+                // 刷新完成前不加载下一页
+                hasMorePages = false;
+                return formatter.format(cached);
+            }
+        }
+
+        // 第一页从网络增量同步；本地数据库已包含查询的所有事件时，之后的每一页不需要访问网络，
+        // 否则按 offset 获取，并合并到本地数据库。
+        // 重新查询时，若本地数据已包含查询的所有事件，则直接从内存回答。
+        int pages = pageCount;
+        boolean covered = repository.covers(query);
+        boolean storeOnly = reloadFromStore;
+        reloadFromStore = false;
+        if (fetchFromNetwork && !storeOnly && !(requery && covered)) {
+            if (pages == 1) {
+                // 后台同步任务刚同步过时，不需要在前台等待网络。
+                // 需要完整下载时边解析边交付第一页，同步完成前不加载下一页
+                PartialResultPublisher publisher = locationFilter == null
+                        ? new PartialResultPublisher(query.getLimit()) : null;
+                activePublisher = publisher;
+                hasMorePages = false;
+                try {
+                    repository.syncIfStale(query, publisher, signal);
+                } finally {
+                    activePublisher = null;
+                }
+            } else if (!covered) {
+                repository.fetchPage(query, pages - 1, signal);
+            }
+        }
+
+        // 已取消的加载不再读取本地数据，结果也不会被交付
+        signal.throwIfCanceled();
+
+        // 无论网络请求是否成功，都从本地读取已加载的所有页
+        int limit = pages * query.getLimit();
+        EarthquakeColumns earthquakes = locationFilter == null
+                ? repository.query(query.withLimit(limit))
+                : repository.queryNear(query.withLimit(limit), locationFilter);
+        hasMorePages = earthquakes.size() >= limit;
+        summary = repository.summarize(query.getMinMagnitude());
+
+        // 保存第一页的快照，供下一次冷启动使用
+        if (pages == 1 && locationFilter == null) {
+            snapshot.write(query, earthquakes);
+        }
+        return formatter.format(earthquakes);
+    }
+
+    /**
+     * 在同步的流式解析过程中，把已收到的地震中按查询排序的前 limit 个格式化后交付到主线程。
+     * <p>
+     * 只保存当前的前 limit 个地震，每批地震逐个与最后一个比较，较好的插入到有序数组中，
+     * 因此每批的开销与批大小成正比，与已收到的总数无关。前 limit 个没有变化时不交付。
+     * 完整下载的子窗口可能在多个线程上并发解析，所以 {@link #onBatch(EarthquakeColumns)} 是同步的。
+     */
+    private class PartialResultPublisher implements QueryUtilsPlus.BatchListener {
+
+        /**
+         * 当前的前 limit 个地震，按查询排序
+         */
+        private final Earthquake[] top;
+
+        private int size;
+
+        PartialResultPublisher(int limit) {
+            this.top = new Earthquake[Math.max(limit, 1)];
+        }
+
+        @Override
+        public synchronized void onBatch(EarthquakeColumns batch) {
+            boolean changed = false;
+            for (int i = 0; i < batch.size(); i++) {
+                if (batch.getMag(i) >= query.getMinMagnitude() && insert(batch, i)) {
+                    changed = true;
+                }
+            }
+            if (!changed || isLoadInBackgroundCanceled()) {
+                return;
+            }
+
+            final List<EarthquakeItem> items = formatter.format(Arrays.asList(top).subList(0, size));
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    // 同步已完成或加载已取消时，最终结果会替代部分结果
+                    if (activePublisher == PartialResultPublisher.this && isStarted()
+                            && !isLoadInBackgroundCanceled()) {
+                        deliverPartialResult(items);
+                    }
+                }
+            });
+        }
+
+        /**
+         * 若 batch 的第 index 行应排在前 limit 个中，则插入并返回 true
+         */
+        private boolean insert(EarthquakeColumns batch, int index) {
+            // 找到第一个排在新地震之后的位置
+            int position = size;
+            while (position > 0 && isBefore(batch, index, top[position - 1])) {
+                position--;
+            }
+            if (position == top.length) {
+                return false;
+            }
+
+            // 被拆分重新获取的子窗口会再次通知相同的地震
+            String id = batch.getId(index);
+            if (id != null) {
+                for (int i = 0; i < size; i++) {
+                    if (id.equals(top[i].getId())) {
+                        return false;
+                    }
+                }
+            }
+
+            // 已满时挤出最后一个
+            int moved = Math.min(size, top.length - 1) - position;
+            System.arraycopy(top, position, top, position + 1, moved);
+            top[position] = batch.get(index);
+            size = Math.min(size + 1, top.length);
+            return true;
+        }
+
+        /**
+         * 返回 batch 的第 index 行是否按查询排序严格排在 earthquake 之前
+         */
+        private boolean isBefore(EarthquakeColumns batch, int index, Earthquake earthquake) {
+            if (EarthquakeQuery.ORDER_BY_MAGNITUDE.equals(query.getOrderBy())) {
+                int result = Double.compare(batch.getMag(index), earthquake.getMag());
+                if (result != 0) {
+                    return result > 0;
+                }
+            }
+            return batch.getTime(index) > earthquake.getTime();
+        }
     }
 }
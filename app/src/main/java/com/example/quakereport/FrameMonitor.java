@@ -0,0 +1,63 @@
+package com.example.quakereport;
+
+import android.view.Choreographer;
+
+import com.example.quakereport.util.PerfMetrics;
+
+/**
+ * 通过 {@link Choreographer} 统计掉帧：相邻两帧的间隔超过一个刷新周期时，
+ * 多出的周期数即为掉帧数，结果记录到 {@link PerfMetrics}。
+ * <p>
+ * 运行时每一帧都会被回调，使屏幕即使静止也按刷新率唤醒，因此只在调试浮层显示时运行。
+ * 只能在主线程上使用。
+ */
+class FrameMonitor implements Choreographer.FrameCallback {
+
+    /**
+     * 刷新周期（纳秒）
+     */
+    private final long frameIntervalNanos;
+
+    /**
+     * 上一帧的时间，未运行时为 0
+     */
+    private long lastFrameNanos;
+
+    private boolean running;
+
+    /**
+     * @param refreshRate 屏幕刷新率（Hz）
+     */
+    FrameMonitor(float refreshRate) {
+        frameIntervalNanos = (long) (1000000000L / (refreshRate > 0 ? refreshRate : 60));
+    }
+
+    void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        lastFrameNanos = 0;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    void stop() {
+        running = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) {
+            return;
+        }
+
+        if (lastFrameNanos != 0) {
+            // 间隔略大于一个周期属于正常抖动，按四舍五入计算跳过的周期数
+            long skipped = Math.round((frameTimeNanos - lastFrameNanos) / (double) frameIntervalNanos) - 1;
+            PerfMetrics.recordFrames(1, Math.max(0, skipped));
+        }
+        lastFrameNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.quakereport;
+
+import android.content.Context;
+
+import androidx.loader.content.AsyncTaskLoader;
+
+import com.example.quakereport.data.EarthquakeColumns;
+import com.example.quakereport.data.EarthquakeQuery;
+import com.example.quakereport.data.EarthquakeRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 在后台按位置搜索本地数据库中的所有地震，结果由 {@link EarthquakeFormatter} 转换为列表项。
+ * <p>
+ * 搜索通过 {@link EarthquakeRepository#queryByPlace(EarthquakeQuery, String)} 在位置索引上进行，
+ * 不访问网络，也不受列表已加载的页数限制。结果保存在 loader 中，配置变化后直接交付。
+ */
+public class PlaceSearchLoader extends AsyncTaskLoader<List<EarthquakeItem>> {
+
+    /**
+     * 查询参数，决定最小震级、排序方式和最多返回的个数
+     */
+    private final EarthquakeQuery query;
+
+    /**
+     * 搜索框中的文字
+     */
+    private final String text;
+
+    private final EarthquakeRepository repository;
+
+    private final EarthquakeFormatter formatter;
+
+    /**
+     * 已加载的搜索结果
+     */
+    private List<EarthquakeItem> earthquakes;
+
+    public PlaceSearchLoader(Context context, EarthquakeQuery query, String text) {
+        super(context);
+        this.query = query;
+        this.text = text;
+        this.repository = new EarthquakeRepository(context);
+        this.formatter = new EarthquakeFormatter(context);
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (earthquakes != null) {
+            deliverResult(earthquakes);
+        } else {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        onStopLoading();
+        earthquakes = null;
+    }
+
+    @Override
+    public void deliverResult(List<EarthquakeItem> data) {
+        earthquakes = data;
+        super.deliverResult(data);
+    }
+
+    /**
+     * 这位于后台线程上。
+     */
+    @Override
+    public List<EarthquakeItem> loadInBackground() {
+        EarthquakeColumns result = repository.queryByPlace(query, text);
+        if (result == null) {
+            return new ArrayList<>();
+        }
+        return formatter.format(result);
+    }
+}
@@ -0,0 +1,373 @@
+package com.example.quakereport.data;
+
+import com.example.quakereport.Earthquake;
+import com.example.quakereport.util.EarthquakeJsonParser;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按列保存的地震集合，用于替代大量 {@link Earthquake} 对象组成的 List。
+ * <p>
+ * 震级、时间、更新时间和震中坐标保存在基本类型数组中（未知的坐标为 NaN）；事件 ID、位置和 URL 不保存为 String 对象，
+ * 而是拆分为若干"片段"，以偏移量和长度的形式存放在一个共享的 char 数组中：
+ * <ul>
+ * <li>位置按 " of " 拆分为偏移部分（如 "30km S of "）和主要位置（如 "Ridgecrest, CA"），
+ * 相同的主要位置只保存一次；</li>
+ * <li>URL 拆分为事件 ID 之前的公共前缀和其余部分，公共前缀只保存一次。</li>
+ * </ul>
+ * 需要时再通过 {@link #get(int)} 或各个 getter 按行创建对象。本类不是线程安全的。
+ **/
+public class EarthquakeColumns implements EarthquakeJsonParser.FeatureHandler {
+
+    private static final String LOCATION_SEPARATOR = " of ";
+
+    /**
+     * 表示"没有该片段"（对应的字符串为 null）
+     */
+    private static final int NO_SEGMENT = -1;
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private int size;
+
+    private double[] mags;
+    private long[] times;
+    private long[] updates;
+    private double[] longitudes;
+    private double[] latitudes;
+    private double[] depths;
+
+    /**
+     * 每一行的各个片段编号
+     */
+    private int[] idSegments;
+    private int[] placeOffsetSegments;
+    private int[] primaryPlaceSegments;
+    private int[] urlPrefixSegments;
+    private int[] urlSuffixSegments;
+
+    /**
+     * 所有片段的字符，以及每个片段在其中的起始位置和长度
+     */
+    private char[] chars = new char[DEFAULT_CAPACITY * 32];
+    private int charCount;
+    private int[] segmentStarts = new int[DEFAULT_CAPACITY * 4];
+    private int[] segmentLengths = new int[DEFAULT_CAPACITY * 4];
+    private int segmentCount;
+
+    /**
+     * 可共享的片段（主要位置、URL 前缀）到片段编号的映射
+     */
+    private final Map<String, Integer> sharedSegments = new HashMap<>();
+
+    public EarthquakeColumns() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public EarthquakeColumns(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        mags = new double[capacity];
+        times = new long[capacity];
+        updates = new long[capacity];
+        longitudes = new double[capacity];
+        latitudes = new double[capacity];
+        depths = new double[capacity];
+        idSegments = new int[capacity];
+        placeOffsetSegments = new int[capacity];
+        primaryPlaceSegments = new int[capacity];
+        urlPrefixSegments = new int[capacity];
+        urlSuffixSegments = new int[capacity];
+    }
+
+    /**
+     * 返回地震个数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 追加一个地震
+     */
+    public void add(Earthquake earthquake) {
+        add(earthquake.getId(), earthquake.getMag(), earthquake.getPlace(),
+                earthquake.getTime(), earthquake.getUpdated(), earthquake.getUrl(),
+                earthquake.getLongitude(), earthquake.getLatitude(), earthquake.getDepth());
+    }
+
+    /**
+     * 追加一个坐标未知的地震，各参数与 {@link Earthquake} 的构造函数相同
+     */
+    public void add(String id, double mag, String place, long time, long updated, String url) {
+        add(id, mag, place, time, updated, url, Double.NaN, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * 追加一个地震，各参数与 {@link Earthquake} 的构造函数相同
+     */
+    public void add(String id, double mag, String place, long time, long updated, String url,
+                    double longitude, double latitude, double depth) {
+        ensureCapacity(size + 1);
+
+        mags[size] = mag;
+        times[size] = time;
+        updates[size] = updated;
+        longitudes[size] = longitude;
+        latitudes[size] = latitude;
+        depths[size] = depth;
+        idSegments[size] = addSegment(id);
+
+        // 位置按 " of " 拆分，主要位置可以共享
+        int separatorIndex = place == null ? -1 : place.indexOf(LOCATION_SEPARATOR);
+        if (separatorIndex >= 0) {
+            int primaryStart = separatorIndex + LOCATION_SEPARATOR.length();
+            placeOffsetSegments[size] = addSegment(place.substring(0, primaryStart));
+            primaryPlaceSegments[size] = addSharedSegment(place.substring(primaryStart));
+        } else {
+            placeOffsetSegments[size] = NO_SEGMENT;
+            primaryPlaceSegments[size] = place == null ? NO_SEGMENT : addSharedSegment(place);
+        }
+
+        // URL 通常是 "公共前缀 + 事件 ID"，公共前缀可以共享
+        int idIndex = url == null || id == null ? -1 : url.lastIndexOf(id);
+        if (idIndex > 0) {
+            urlPrefixSegments[size] = addSharedSegment(url.substring(0, idIndex));
+            urlSuffixSegments[size] = addSegment(url.substring(idIndex));
+        } else {
+            urlPrefixSegments[size] = NO_SEGMENT;
+            urlSuffixSegments[size] = addSegment(url);
+        }
+
+        size++;
+    }
+
+    @Override
+    public void onFeature(String id, double mag, String place, long time, long updated, String url,
+                          double longitude, double latitude, double depth) {
+        add(id, mag, place, time, updated, url, longitude, latitude, depth);
+    }
+
+    public double getMag(int index) {
+        checkIndex(index);
+        return mags[index];
+    }
+
+    public long getTime(int index) {
+        checkIndex(index);
+        return times[index];
+    }
+
+    public long getUpdated(int index) {
+        checkIndex(index);
+        return updates[index];
+    }
+
+    /**
+     * 返回震中经度，未知时返回 NaN
+     */
+    public double getLongitude(int index) {
+        checkIndex(index);
+        return longitudes[index];
+    }
+
+    /**
+     * 返回震中纬度，未知时返回 NaN
+     */
+    public double getLatitude(int index) {
+        checkIndex(index);
+        return latitudes[index];
+    }
+
+    /**
+     * 返回震源深度（千米），未知时返回 NaN
+     */
+    public double getDepth(int index) {
+        checkIndex(index);
+        return depths[index];
+    }
+
+    public String getId(int index) {
+        checkIndex(index);
+        return segmentToString(idSegments[index]);
+    }
+
+    /**
+     * 返回位置的偏移部分（如 "30km S of "），没有偏移部分时返回 null
+     */
+    public String getPlaceOffset(int index) {
+        checkIndex(index);
+        return segmentToString(placeOffsetSegments[index]);
+    }
+
+    /**
+     * 返回主要位置（如 "Ridgecrest, CA"）
+     */
+    public String getPrimaryPlace(int index) {
+        checkIndex(index);
+        return segmentToString(primaryPlaceSegments[index]);
+    }
+
+    /**
+     * 返回完整位置中的主要位置（" of " 之后的部分），与 {@link #getPrimaryPlace(int)} 的拆分方式相同
+     */
+    static String getPrimaryPlace(String place) {
+        int separatorIndex = place == null ? -1 : place.indexOf(LOCATION_SEPARATOR);
+        return separatorIndex >= 0 ? place.substring(separatorIndex + LOCATION_SEPARATOR.length()) : place;
+    }
+
+    /**
+     * 返回完整的位置
+     */
+    public String getPlace(int index) {
+        checkIndex(index);
+        return concatSegments(placeOffsetSegments[index], primaryPlaceSegments[index]);
+    }
+
+    public String getUrl(int index) {
+        checkIndex(index);
+        return concatSegments(urlPrefixSegments[index], urlSuffixSegments[index]);
+    }
+
+    /**
+     * 为第 index 行创建 {@link Earthquake} 对象
+     */
+    public Earthquake get(int index) {
+        return new Earthquake(getId(index), getMag(index), getPlace(index),
+                getTime(index), getUpdated(index), getUrl(index),
+                getLongitude(index), getLatitude(index), getDepth(index));
+    }
+
+    /**
+     * 把另一个集合的第 index 行追加到末尾
+     */
+    public void add(EarthquakeColumns other, int index) {
+        add(other.getId(index), other.getMag(index), other.getPlace(index),
+                other.getTime(index), other.getUpdated(index), other.getUrl(index),
+                other.getLongitude(index), other.getLatitude(index), other.getDepth(index));
+    }
+
+    /**
+     * 返回只读的 List 视图，每次 get 时才创建 {@link Earthquake} 对象
+     */
+    public List<Earthquake> asList() {
+        return new AbstractList<Earthquake>() {
+            @Override
+            public Earthquake get(int index) {
+                return EarthquakeColumns.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * 释放数组中未使用的容量
+     */
+    public void trimToSize() {
+        mags = Arrays.copyOf(mags, Math.max(size, 1));
+        times = Arrays.copyOf(times, Math.max(size, 1));
+        updates = Arrays.copyOf(updates, Math.max(size, 1));
+        longitudes = Arrays.copyOf(longitudes, Math.max(size, 1));
+        latitudes = Arrays.copyOf(latitudes, Math.max(size, 1));
+        depths = Arrays.copyOf(depths, Math.max(size, 1));
+        idSegments = Arrays.copyOf(idSegments, Math.max(size, 1));
+        placeOffsetSegments = Arrays.copyOf(placeOffsetSegments, Math.max(size, 1));
+        primaryPlaceSegments = Arrays.copyOf(primaryPlaceSegments, Math.max(size, 1));
+        urlPrefixSegments = Arrays.copyOf(urlPrefixSegments, Math.max(size, 1));
+        urlSuffixSegments = Arrays.copyOf(urlSuffixSegments, Math.max(size, 1));
+        chars = Arrays.copyOf(chars, Math.max(charCount, 1));
+        segmentStarts = Arrays.copyOf(segmentStarts, Math.max(segmentCount, 1));
+        segmentLengths = Arrays.copyOf(segmentLengths, Math.max(segmentCount, 1));
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= mags.length) {
+            return;
+        }
+
+        int newCapacity = Math.max(capacity, mags.length * 2);
+        mags = Arrays.copyOf(mags, newCapacity);
+        times = Arrays.copyOf(times, newCapacity);
+        updates = Arrays.copyOf(updates, newCapacity);
+        longitudes = Arrays.copyOf(longitudes, newCapacity);
+        latitudes = Arrays.copyOf(latitudes, newCapacity);
+        depths = Arrays.copyOf(depths, newCapacity);
+        idSegments = Arrays.copyOf(idSegments, newCapacity);
+        placeOffsetSegments = Arrays.copyOf(placeOffsetSegments, newCapacity);
+        primaryPlaceSegments = Arrays.copyOf(primaryPlaceSegments, newCapacity);
+        urlPrefixSegments = Arrays.copyOf(urlPrefixSegments, newCapacity);
+        urlSuffixSegments = Arrays.copyOf(urlSuffixSegments, newCapacity);
+    }
+
+    /**
+     * 返回可共享片段的编号，相同内容的片段只保存一次
+     */
+    private int addSharedSegment(String value) {
+        Integer segment = sharedSegments.get(value);
+        if (segment == null) {
+            segment = addSegment(value);
+            sharedSegments.put(value, segment);
+        }
+        return segment;
+    }
+
+    /**
+     * 把字符串的字符追加到共享的 char 数组中，返回新片段的编号
+     */
+    private int addSegment(String value) {
+        if (value == null) {
+            return NO_SEGMENT;
+        }
+
+        int length = value.length();
+        if (charCount + length > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(charCount + length, chars.length * 2));
+        }
+        if (segmentCount == segmentStarts.length) {
+            segmentStarts = Arrays.copyOf(segmentStarts, segmentCount * 2);
+            segmentLengths = Arrays.copyOf(segmentLengths, segmentCount * 2);
+        }
+
+        value.getChars(0, length, chars, charCount);
+        segmentStarts[segmentCount] = charCount;
+        segmentLengths[segmentCount] = length;
+        charCount += length;
+        return segmentCount++;
+    }
+
+    private String segmentToString(int segment) {
+        if (segment == NO_SEGMENT) {
+            return null;
+        }
+        return new String(chars, segmentStarts[segment], segmentLengths[segment]);
+    }
+
+    private String concatSegments(int first, int second) {
+        if (first == NO_SEGMENT) {
+            return segmentToString(second);
+        }
+        if (second == NO_SEGMENT) {
+            return segmentToString(first);
+        }
+
+        int firstLength = segmentLengths[first];
+        int secondLength = segmentLengths[second];
+        char[] value = new char[firstLength + secondLength];
+        System.arraycopy(chars, segmentStarts[first], value, 0, firstLength);
+        System.arraycopy(chars, segmentStarts[second], value, firstLength, secondLength);
+        return new String(value);
+    }
+}
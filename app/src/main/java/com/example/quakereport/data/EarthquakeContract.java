@@ -0,0 +1,66 @@
+package com.example.quakereport.data;
+
+/**
+ * 地震本地数据库的表名和列名常量。
+ **/
+public final class EarthquakeContract {
+
+    private EarthquakeContract() {
+    }
+
+    /**
+     * 地震表，每个 USGS 事件只保存一行
+     */
+    public static final class EarthquakeEntry {
+
+        public static final String TABLE_NAME = "earthquakes";
+
+        /**
+         * USGS 事件 ID，主键。类型：TEXT
+         */
+        public static final String COLUMN_EVENT_ID = "event_id";
+
+        /**
+         * 震级。类型：REAL
+         */
+        public static final String COLUMN_MAG = "mag";
+
+        /**
+         * 地震位置。类型：TEXT
+         */
+        public static final String COLUMN_PLACE = "place";
+
+        /**
+         * 地震发生时间（毫秒）。类型：INTEGER
+         */
+        public static final String COLUMN_TIME = "time";
+
+        /**
+         * 事件最后一次更新时间（毫秒）。类型：INTEGER
+         */
+        public static final String COLUMN_UPDATED = "updated";
+
+        /**
+         * 地震的网站 URL。类型：TEXT
+         */
+        public static final String COLUMN_URL = "url";
+
+        /**
+         * 震中经度（度），未知时为 NULL。类型：REAL
+         */
+        public static final String COLUMN_LONGITUDE = "longitude";
+
+        /**
+         * 震中纬度（度），未知时为 NULL。类型：REAL
+         */
+        public static final String COLUMN_LATITUDE = "latitude";
+
+        /**
+         * 震源深度（千米），未知时为 NULL。类型：REAL
+         */
+        public static final String COLUMN_DEPTH = "depth";
+
+        private EarthquakeEntry() {
+        }
+    }
+}
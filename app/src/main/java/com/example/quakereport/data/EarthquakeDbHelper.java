@@ -0,0 +1,71 @@
+package com.example.quakereport.data;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.example.quakereport.data.EarthquakeContract.EarthquakeEntry;
+
+/**
+ * 管理地震本地数据库的创建和版本升级。
+ **/
+public class EarthquakeDbHelper extends SQLiteOpenHelper {
+
+    /**
+     * 数据库文件名
+     */
+    private static final String DATABASE_NAME = "earthquakes.db";
+
+    /**
+     * 数据库版本，修改表结构时需要递增。
+     * 升级时会清空数据，{@link EarthquakeRepository} 会据此重新完整同步。
+     * <ul>
+     * <li>1：初始版本</li>
+     * <li>2：增加经度、纬度和深度</li>
+     * </ul>
+     */
+    static final int DATABASE_VERSION = 2;
+
+    private static EarthquakeDbHelper sInstance;
+
+    private EarthquakeDbHelper(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    /**
+     * 返回进程内唯一的 {@link EarthquakeDbHelper}
+     */
+    public static synchronized EarthquakeDbHelper getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new EarthquakeDbHelper(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + EarthquakeEntry.TABLE_NAME + " ("
+                + EarthquakeEntry.COLUMN_EVENT_ID + " TEXT PRIMARY KEY NOT NULL, "
+                + EarthquakeEntry.COLUMN_MAG + " REAL NOT NULL, "
+                + EarthquakeEntry.COLUMN_PLACE + " TEXT, "
+                + EarthquakeEntry.COLUMN_TIME + " INTEGER NOT NULL, "
+                + EarthquakeEntry.COLUMN_UPDATED + " INTEGER NOT NULL, "
+                + EarthquakeEntry.COLUMN_URL + " TEXT, "
+                + EarthquakeEntry.COLUMN_LONGITUDE + " REAL, "
+                + EarthquakeEntry.COLUMN_LATITUDE + " REAL, "
+                + EarthquakeEntry.COLUMN_DEPTH + " REAL)");
+
+        // 按时间和震级排序、筛选时使用的索引
+        db.execSQL("CREATE INDEX idx_earthquakes_time ON "
+                + EarthquakeEntry.TABLE_NAME + " (" + EarthquakeEntry.COLUMN_TIME + ")");
+        db.execSQL("CREATE INDEX idx_earthquakes_mag ON "
+                + EarthquakeEntry.TABLE_NAME + " (" + EarthquakeEntry.COLUMN_MAG + ")");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // 数据库只是网络数据的缓存，升级时直接重建
+        db.execSQL("DROP TABLE IF EXISTS " + EarthquakeEntry.TABLE_NAME);
+        onCreate(db);
+    }
+}
@@ -0,0 +1,360 @@
+package com.example.quakereport.data;
+
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.util.Log;
+
+import com.example.quakereport.util.QueryUtilsPlus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 把较长的时间范围拆分为多个子窗口并发获取，以绕过 FDSN 单次查询的结果上限，并缩短总耗时。
+ * <p>
+ * 子窗口的个数由预计的事件密度（按 Gutenberg-Richter 关系估计的每天事件数）决定，
+ * 使每个子窗口的结果远低于上限；若某个子窗口仍然达到上限，则把它对半拆分后重新获取。
+ * 所有请求共享 {@link QueryUtilsPlus} 的 OkHttpClient，进程内同时进行的请求数不超过
+ * {@link #MAX_PARALLELISM}。结果按时间从近到远合并，并按事件 ID 去除子窗口边界上的重复事件。
+ **/
+public final class EarthquakeFetchPlanner {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = EarthquakeFetchPlanner.class.getSimpleName();
+
+    /**
+     * 同时进行的请求数上限（进程内所有调用共享）
+     */
+    private static final int MAX_PARALLELISM = 4;
+
+    /**
+     * FDSN 单次查询的结果上限
+     */
+    private static final int SLICE_LIMIT = 20000;
+
+    /**
+     * 每个子窗口预计的事件数，远低于上限，避免频繁拆分
+     */
+    static final int TARGET_EVENTS_PER_SLICE = 5000;
+
+    /**
+     * 子窗口的最小长度，达到上限的子窗口不会被拆分得比它更短
+     */
+    static final long MIN_SLICE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * 全球每年 M5 及以上地震的大致个数，以及 Gutenberg-Richter 关系的 b 值
+     */
+    private static final double M5_EVENTS_PER_YEAR = 1300;
+    private static final double GUTENBERG_RICHTER_B = 1.0;
+
+    /**
+     * USGS 目录中每天事件数的大致上限（小震级的事件并不会被全部记录）
+     */
+    private static final double MAX_CATALOG_EVENTS_PER_DAY = 1500;
+
+    /**
+     * 共享的线程池，空闲的线程会被回收
+     */
+    private static final ThreadPoolExecutor EXECUTOR;
+
+    static {
+        final AtomicInteger threadCount = new AtomicInteger();
+        EXECUTOR = new ThreadPoolExecutor(MAX_PARALLELISM, MAX_PARALLELISM,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        return new Thread(runnable, LOG_TAG + "-" + threadCount.incrementAndGet());
+                    }
+                });
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 获取的结果
+     */
+    public static class Result {
+
+        private final EarthquakeColumns earthquakes;
+
+        private final boolean truncated;
+
+        Result(EarthquakeColumns earthquakes, boolean truncated) {
+            this.earthquakes = earthquakes;
+            this.truncated = truncated;
+        }
+
+        /**
+         * 返回按时间从近到远排列、没有重复 ID 的地震
+         */
+        public EarthquakeColumns getEarthquakes() {
+            return earthquakes;
+        }
+
+        /**
+         * 返回是否有子窗口拆分到最小长度后仍然达到上限，即结果可能有遗漏
+         */
+        public boolean isTruncated() {
+            return truncated;
+        }
+    }
+
+    /**
+     * 一个子窗口 [startTime, endTime]
+     */
+    static class Slice {
+        final long startTime;
+        final long endTime;
+
+        Slice(long startTime, long endTime) {
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+    }
+
+    /**
+     * 一个子窗口的获取结果
+     */
+    static class SliceResult {
+        final Slice slice;
+        final EarthquakeColumns earthquakes;
+
+        SliceResult(Slice slice, EarthquakeColumns earthquakes) {
+            this.slice = slice;
+            this.earthquakes = earthquakes;
+        }
+    }
+
+    private EarthquakeFetchPlanner() {
+    }
+
+    /**
+     * 获取时间范围内震级不小于 minMagnitude 的所有事件。只能在后台线程调用。
+     *
+     * @param format   USGS 响应格式，见 {@link EarthquakeQuery#getFormat()}
+     * @param listener 按批接收地震的监听器，可以为 null。各个子窗口并发解析，因此可能在多个线程上同时被调用；
+     *                 被拆分重新获取的子窗口中的地震可能被通知两次
+     * @param signal   取消时中止所有子窗口的请求，可以为 null；在本方法返回前不能再被其他地方监听
+     * @return 获取的结果；任何一个子窗口请求失败或被取消时返回 null
+     */
+    public static Result fetch(double minMagnitude, String format, long startTime, long endTime,
+                               QueryUtilsPlus.BatchListener listener, CancellationSignal signal) {
+        List<Slice> slices = plan(minMagnitude, startTime, endTime);
+
+        SliceFetcher fetcher = new SliceFetcher(minMagnitude, format, listener, signal);
+        List<SliceResult> completed = new ArrayList<>();
+        int pending = 0;
+        for (Slice slice : slices) {
+            fetcher.submit(slice);
+            pending++;
+        }
+
+        boolean truncated = false;
+        try {
+            while (pending > 0) {
+                SliceResult result = fetcher.take();
+                pending--;
+                if (result.earthquakes == null) {
+                    return null;
+                }
+
+                // 达到上限的子窗口对半拆分后重新获取
+                if (result.earthquakes.size() >= SLICE_LIMIT) {
+                    List<Slice> halves = split(result.slice);
+                    if (halves != null) {
+                        for (Slice half : halves) {
+                            fetcher.submit(half);
+                        }
+                        pending += halves.size();
+                        continue;
+                    }
+                    truncated = true;
+                }
+                completed.add(result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Log.e(LOG_TAG, "Problem fetching a time slice", e);
+            return null;
+        } finally {
+            // 失败或被取消时，其余子窗口的结果已经没有用处
+            fetcher.close();
+        }
+
+        return new Result(merge(completed), truncated);
+    }
+
+    /**
+     * 按预计的事件密度把时间范围拆分为若干等长的子窗口
+     */
+    static List<Slice> plan(double minMagnitude, long startTime, long endTime) {
+        double days = (endTime - startTime) / (double) TimeUnit.DAYS.toMillis(1);
+        double expectedEvents = estimateEventsPerDay(minMagnitude) * days;
+        long maxSlices = Math.max(1, (endTime - startTime) / MIN_SLICE_MILLIS);
+        int sliceCount = (int) Math.min(maxSlices, Math.max(1, Math.ceil(expectedEvents / TARGET_EVENTS_PER_SLICE)));
+
+        List<Slice> slices = new ArrayList<>(sliceCount);
+        long length = (endTime - startTime) / sliceCount;
+        for (int i = 0; i < sliceCount; i++) {
+            long sliceStart = startTime + i * length;
+            long sliceEnd = i == sliceCount - 1 ? endTime : sliceStart + length;
+            slices.add(new Slice(sliceStart, sliceEnd));
+        }
+        return slices;
+    }
+
+    /**
+     * 把达到上限的子窗口对半拆分为两个相邻的子窗口，拆分后会短于 {@link #MIN_SLICE_MILLIS} 时返回 null
+     */
+    static List<Slice> split(Slice slice) {
+        long length = slice.endTime - slice.startTime;
+        if (length < 2 * MIN_SLICE_MILLIS) {
+            return null;
+        }
+        long middle = slice.startTime + length / 2;
+        return Arrays.asList(new Slice(slice.startTime, middle), new Slice(middle, slice.endTime));
+    }
+
+    /**
+     * 按 Gutenberg-Richter 关系 log10 N = a - b·M 估计全球每天震级不小于 minMagnitude 的事件数
+     */
+    static double estimateEventsPerDay(double minMagnitude) {
+        double perYear = M5_EVENTS_PER_YEAR * Math.pow(10, GUTENBERG_RICHTER_B * (5 - minMagnitude));
+        return Math.min(perYear / 365, MAX_CATALOG_EVENTS_PER_DAY);
+    }
+
+    /**
+     * 并发获取子窗口。每个子窗口的请求使用各自的取消信号，调用者的取消信号被取消时全部取消
+     */
+    private static class SliceFetcher {
+
+        private final double minMagnitude;
+
+        private final String format;
+
+        private final QueryUtilsPlus.BatchListener listener;
+
+        private final CancellationSignal signal;
+
+        private final ExecutorCompletionService<SliceResult> completionService =
+                new ExecutorCompletionService<>(EXECUTOR);
+
+        /**
+         * 已提交的子窗口的取消信号
+         */
+        private final List<CancellationSignal> sliceSignals = new ArrayList<>();
+
+        SliceFetcher(double minMagnitude, String format, QueryUtilsPlus.BatchListener listener,
+                     CancellationSignal signal) {
+            this.minMagnitude = minMagnitude;
+            this.format = format;
+            this.listener = listener;
+            this.signal = signal;
+            if (signal != null) {
+                signal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+                    @Override
+                    public void onCancel() {
+                        cancelAll();
+                    }
+                });
+            }
+        }
+
+        void submit(final Slice slice) {
+            final CancellationSignal sliceSignal = new CancellationSignal();
+            synchronized (sliceSignals) {
+                sliceSignals.add(sliceSignal);
+            }
+            if (signal != null && signal.isCanceled()) {
+                sliceSignal.cancel();
+            }
+
+            completionService.submit(new Callable<SliceResult>() {
+                @Override
+                public SliceResult call() {
+                    if (sliceSignal.isCanceled()) {
+                        return new SliceResult(slice, null);
+                    }
+
+                    Uri.Builder uriBuilder = new EarthquakeQuery(
+                            minMagnitude, EarthquakeQuery.ORDER_BY_TIME, SLICE_LIMIT, format).buildRequestUri();
+                    uriBuilder.appendQueryParameter("starttime", EarthquakeRepository.formatTime(slice.startTime));
+                    uriBuilder.appendQueryParameter("endtime", EarthquakeRepository.formatTime(slice.endTime));
+                    return new SliceResult(slice, QueryUtilsPlus.fetchEarthquakeColumns(
+                            uriBuilder.toString(), listener, sliceSignal));
+                }
+            });
+        }
+
+        SliceResult take() throws InterruptedException, ExecutionException {
+            return completionService.take().get();
+        }
+
+        /**
+         * 停止监听调用者的取消信号，并取消仍在进行的子窗口请求
+         */
+        void close() {
+            if (signal != null) {
+                signal.setOnCancelListener(null);
+            }
+            cancelAll();
+        }
+
+        private void cancelAll() {
+            synchronized (sliceSignals) {
+                for (CancellationSignal sliceSignal : sliceSignals) {
+                    sliceSignal.cancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * 按时间从近到远合并各个子窗口的结果，跳过重复的事件 ID
+     */
+    static EarthquakeColumns merge(List<SliceResult> results) {
+        // 子窗口互不重叠（只共享边界），按起点从晚到早排列即可得到整体的时间顺序
+        SliceResult[] ordered = results.toArray(new SliceResult[0]);
+        Arrays.sort(ordered, new Comparator<SliceResult>() {
+            @Override
+            public int compare(SliceResult left, SliceResult right) {
+                return Long.compare(right.slice.startTime, left.slice.startTime);
+            }
+        });
+
+        int total = 0;
+        for (SliceResult result : ordered) {
+            total += result.earthquakes.size();
+        }
+
+        EarthquakeColumns merged = new EarthquakeColumns(total);
+        Set<String> ids = new HashSet<>(total * 2);
+        for (SliceResult result : ordered) {
+            EarthquakeColumns earthquakes = result.earthquakes;
+            for (int i = 0; i < earthquakes.size(); i++) {
+                String id = earthquakes.getId(i);
+                if (id == null || ids.add(id)) {
+                    merged.add(earthquakes, i);
+                }
+            }
+        }
+        return merged;
+    }
+}
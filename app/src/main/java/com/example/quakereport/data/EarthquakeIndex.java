@@ -0,0 +1,266 @@
+package com.example.quakereport.data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 内存中的地震超集，以及按震级和按时间预先排好序的下标、按震中坐标建立的空间索引和按事件 ID 的下标。
+ * 空间索引和事件 ID 下标在第一次用到时才构建，列表查询和实时合并后的重建不需要为它们付出代价。
+ * <p>
+ * 超集包含本地数据库中震级不小于 {@link #getMinMagnitude()} 的所有地震。
+ * 最小震级不低于该值的任何查询都可以直接在内存中回答：按震级排序时沿震级下标读取，
+ * 遇到小于最小震级的地震即可停止；按时间排序时沿时间下标读取并跳过震级不足的地震。
+ * 构建完成后不再修改（空间索引和事件 ID 下标除外，它们只会被构建一次），可以在多个线程间共享。
+ **/
+public class EarthquakeIndex {
+
+    /**
+     * 比较两个行号的顺序
+     */
+    private interface RowComparator {
+        int compare(int left, int right);
+    }
+
+    private final EarthquakeColumns earthquakes;
+
+    private final double minMagnitude;
+
+    /**
+     * 按震级从大到小排列的行号
+     */
+    private final int[] byMagnitude;
+
+    /**
+     * 按发生时间从近到远排列的行号
+     */
+    private final int[] byTime;
+
+    /**
+     * 按震中坐标建立的空间索引，第一次空间查询前为 null
+     */
+    private volatile EarthquakeSpatialIndex spatialIndex;
+
+    /**
+     * 事件 ID → 行号，第一次按事件 ID 查询前为 null
+     */
+    private volatile Map<String, Integer> rowsById;
+
+    /**
+     * 用给定的地震构建索引。
+     *
+     * @param earthquakes  震级不小于 minMagnitude 的所有地震，构建后不能再修改
+     * @param minMagnitude 超集的最小震级
+     */
+    public EarthquakeIndex(final EarthquakeColumns earthquakes, double minMagnitude) {
+        this.earthquakes = earthquakes;
+        this.minMagnitude = minMagnitude;
+
+        // 震级相同时按时间排序，时间相同时保持原有顺序
+        byMagnitude = sortedRows(earthquakes.size(), new RowComparator() {
+            @Override
+            public int compare(int left, int right) {
+                int result = Double.compare(earthquakes.getMag(right), earthquakes.getMag(left));
+                return result != 0 ? result
+                        : Long.compare(earthquakes.getTime(right), earthquakes.getTime(left));
+            }
+        });
+        byTime = sortedRows(earthquakes.size(), new RowComparator() {
+            @Override
+            public int compare(int left, int right) {
+                return Long.compare(earthquakes.getTime(right), earthquakes.getTime(left));
+            }
+        });
+    }
+
+    public double getMinMagnitude() {
+        return minMagnitude;
+    }
+
+    public int size() {
+        return earthquakes.size();
+    }
+
+    /**
+     * 返回该索引能否回答给定的查询，即查询的最小震级不低于超集的最小震级
+     */
+    public boolean covers(EarthquakeQuery query) {
+        return query.getMinMagnitude() >= minMagnitude;
+    }
+
+    /**
+     * 在内存中回答查询，返回最多 {@link EarthquakeQuery#getLimit()} 个地震。
+     * 调用前应先用 {@link #covers(EarthquakeQuery)} 检查。
+     */
+    public EarthquakeColumns query(EarthquakeQuery query) {
+        boolean orderByMagnitude = EarthquakeQuery.ORDER_BY_MAGNITUDE.equals(query.getOrderBy());
+        int[] rows = orderByMagnitude ? byMagnitude : byTime;
+        int limit = Math.min(query.getLimit(), rows.length);
+        double queryMinMagnitude = query.getMinMagnitude();
+
+        EarthquakeColumns result = new EarthquakeColumns(limit);
+        for (int i = 0; i < rows.length && result.size() < limit; i++) {
+            int row = rows[i];
+            double mag = earthquakes.getMag(row);
+            if (mag < queryMinMagnitude) {
+                if (orderByMagnitude) {
+                    // 之后的地震震级都更小
+                    break;
+                }
+                continue;
+            }
+            result.add(earthquakes, row);
+        }
+        return result;
+    }
+
+    /**
+     * 在内存中查询震中与给定位置的距离不超过 radiusKm 的地震，按查询的排序方式返回最多
+     * {@link EarthquakeQuery#getLimit()} 个。调用前应先用 {@link #covers(EarthquakeQuery)} 检查。
+     */
+    public EarthquakeColumns queryWithinRadius(EarthquakeQuery query,
+                                               double latitude, double longitude, double radiusKm) {
+        return select(query, getSpatialIndex().withinRadius(latitude, longitude, radiusKm));
+    }
+
+    /**
+     * 在内存中查询震中位于给定经纬度矩形内的地震，按查询的排序方式返回最多
+     * {@link EarthquakeQuery#getLimit()} 个。west 大于 east 时表示矩形跨越 180° 经线。
+     * 调用前应先用 {@link #covers(EarthquakeQuery)} 检查。
+     */
+    public EarthquakeColumns queryWithinBounds(EarthquakeQuery query,
+                                               double south, double west, double north, double east) {
+        return select(query, getSpatialIndex().withinBounds(south, west, north, east));
+    }
+
+    /**
+     * 在内存中查询距离给定位置最近的最多 {@link EarthquakeQuery#getLimit()} 个地震，
+     * 按距离从近到远排序，忽略查询的排序方式。调用前应先用 {@link #covers(EarthquakeQuery)} 检查。
+     */
+    public EarthquakeColumns queryNearest(EarthquakeQuery query, double latitude, double longitude) {
+        EarthquakeSpatialIndex spatialIndex = getSpatialIndex();
+        // 震级不足的地震会被跳过，先取出足够多的候选
+        int candidates = query.getMinMagnitude() > minMagnitude ? spatialIndex.size() : query.getLimit();
+        int[] rows = spatialIndex.nearest(latitude, longitude, candidates);
+
+        EarthquakeColumns result = new EarthquakeColumns(Math.min(query.getLimit(), rows.length));
+        for (int i = 0; i < rows.length && result.size() < query.getLimit(); i++) {
+            if (earthquakes.getMag(rows[i]) >= query.getMinMagnitude()) {
+                result.add(earthquakes, rows[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 在内存中查询给定事件 ID 中满足最小震级的地震，按查询的排序方式返回最多
+     * {@link EarthquakeQuery#getLimit()} 个。不在超集中的事件 ID 被忽略。
+     * 调用前应先用 {@link #covers(EarthquakeQuery)} 检查。
+     */
+    public EarthquakeColumns queryByIds(EarthquakeQuery query, String[] ids) {
+        Map<String, Integer> rows = getRowsById();
+        int[] selected = new int[ids.length];
+        int count = 0;
+        for (String id : ids) {
+            Integer row = rows.get(id);
+            if (row != null) {
+                selected[count++] = row;
+            }
+        }
+        return select(query, Arrays.copyOf(selected, count));
+    }
+
+    /**
+     * 返回事件 ID 到行号的映射，第一次调用时构建
+     */
+    private Map<String, Integer> getRowsById() {
+        Map<String, Integer> rows = rowsById;
+        if (rows == null) {
+            synchronized (this) {
+                rows = rowsById;
+                if (rows == null) {
+                    rows = new HashMap<>(earthquakes.size() * 2);
+                    for (int row = 0; row < earthquakes.size(); row++) {
+                        String id = earthquakes.getId(row);
+                        if (id != null) {
+                            rows.put(id, row);
+                        }
+                    }
+                    rowsById = rows;
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * 返回空间索引，第一次调用时构建
+     */
+    private EarthquakeSpatialIndex getSpatialIndex() {
+        EarthquakeSpatialIndex index = spatialIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = spatialIndex;
+                if (index == null) {
+                    index = new EarthquakeSpatialIndex(earthquakes);
+                    spatialIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 从给定的行中选出满足最小震级的行，按查询的排序方式返回最多 {@link EarthquakeQuery#getLimit()} 个
+     */
+    private EarthquakeColumns select(EarthquakeQuery query, int[] rows) {
+        boolean[] selected = new boolean[earthquakes.size()];
+        for (int row : rows) {
+            selected[row] = earthquakes.getMag(row) >= query.getMinMagnitude();
+        }
+
+        // 沿预先排好序的下标读取，不需要再次排序
+        int[] order = EarthquakeQuery.ORDER_BY_MAGNITUDE.equals(query.getOrderBy()) ? byMagnitude : byTime;
+        int limit = Math.min(query.getLimit(), rows.length);
+        EarthquakeColumns result = new EarthquakeColumns(limit);
+        for (int i = 0; i < order.length && result.size() < limit; i++) {
+            if (selected[order[i]]) {
+                result.add(earthquakes, order[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 返回按给定顺序排列的行号 0..size-1（稳定的归并排序，不需要装箱）
+     */
+    private static int[] sortedRows(int size, RowComparator comparator) {
+        int[] rows = new int[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = i;
+        }
+
+        int[] buffer = new int[size];
+        for (int width = 1; width < size; width *= 2) {
+            for (int start = 0; start < size - width; start += width * 2) {
+                int middle = start + width;
+                int end = Math.min(start + width * 2, size);
+                int left = start;
+                int right = middle;
+                int out = start;
+                while (left < middle && right < end) {
+                    buffer[out++] = comparator.compare(rows[right], rows[left]) < 0
+                            ? rows[right++] : rows[left++];
+                }
+                while (left < middle) {
+                    buffer[out++] = rows[left++];
+                }
+                while (right < end) {
+                    buffer[out++] = rows[right++];
+                }
+                System.arraycopy(buffer, start, rows, start, end - start);
+            }
+        }
+        return rows;
+    }
+}
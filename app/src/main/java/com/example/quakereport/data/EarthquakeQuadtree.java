@@ -0,0 +1,280 @@
+package com.example.quakereport.data;
+
+import java.util.Arrays;
+
+/**
+ * 按震中经纬度（等距圆柱投影，x 为经度，y 为纬度）建立的四叉树，用于按缩放级别聚合显示。
+ * <p>
+ * 每个节点把范围等分为四个象限，保存子树中事件的个数、平均位置和最大震级；
+ * 子树中的事件在事件数组中连续排列，叶子节点最多 {@link #LEAF_CAPACITY} 个事件。
+ * {@link #query} 从根节点向下遍历，范围小于给定聚合尺寸的节点作为一个聚合返回，
+ * 因此返回的个数取决于可见范围和聚合尺寸，与事件总数无关。
+ * <p>
+ * 节点保存在并列的数组中，遍历时不分配对象。没有坐标的地震不会被索引。
+ * 构建完成后不再修改，可以在多个线程间共享。
+ **/
+public class EarthquakeQuadtree {
+
+    /**
+     * 叶子节点最多包含的事件个数
+     */
+    private static final int LEAF_CAPACITY = 8;
+
+    /**
+     * 最大深度，坐标完全相同的事件超过叶子容量时在此深度停止划分
+     */
+    private static final int MAX_DEPTH = 24;
+
+    /**
+     * 遍历时的节点栈大小：每层最多压入 4 个节点
+     */
+    private static final int STACK_SIZE = 4 * MAX_DEPTH + 1;
+
+    /**
+     * 遍历到的每一个聚合（或单个事件）的回调
+     */
+    public interface Visitor {
+
+        /**
+         * @param longitude    聚合的平均经度
+         * @param latitude     聚合的平均纬度
+         * @param count        聚合中的事件个数，为 1 时是单个事件
+         * @param maxMagnitude 聚合中的最大震级
+         */
+        void visit(float longitude, float latitude, int count, float maxMagnitude);
+    }
+
+    /**
+     * 每个事件的经度、纬度和震级，按节点顺序排列
+     */
+    private final float[] longitudes;
+    private final float[] latitudes;
+    private final float[] magnitudes;
+
+    /**
+     * 节点的范围
+     */
+    private float[] nodeMinX;
+    private float[] nodeMinY;
+    private float[] nodeMaxX;
+    private float[] nodeMaxY;
+
+    /**
+     * 节点的平均位置和最大震级
+     */
+    private float[] nodeCenterX;
+    private float[] nodeCenterY;
+    private float[] nodeMaxMagnitude;
+
+    /**
+     * 子树中的事件保存在 [nodeStart, nodeEnd) 中
+     */
+    private int[] nodeStart;
+    private int[] nodeEnd;
+
+    /**
+     * 第一个子节点的下标（四个子节点连续保存），叶子节点为 -1
+     */
+    private int[] nodeFirstChild;
+
+    private int nodeCount;
+
+    /**
+     * 遍历用的节点栈，只在持有本对象的锁时使用
+     */
+    private final int[] stack = new int[STACK_SIZE];
+
+    /**
+     * 用给定的地震构建四叉树
+     */
+    public EarthquakeQuadtree(EarthquakeColumns earthquakes) {
+        int size = earthquakes.size();
+        float[] x = new float[size];
+        float[] y = new float[size];
+        float[] mag = new float[size];
+        int indexed = 0;
+        for (int row = 0; row < size; row++) {
+            double latitude = earthquakes.getLatitude(row);
+            double longitude = earthquakes.getLongitude(row);
+            if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+                continue;
+            }
+            x[indexed] = (float) Math.max(-180, Math.min(180, longitude));
+            y[indexed] = (float) Math.max(-90, Math.min(90, latitude));
+            mag[indexed] = (float) earthquakes.getMag(row);
+            indexed++;
+        }
+        longitudes = Arrays.copyOf(x, indexed);
+        latitudes = Arrays.copyOf(y, indexed);
+        magnitudes = Arrays.copyOf(mag, indexed);
+
+        int capacity = Math.max(16, indexed / LEAF_CAPACITY * 2);
+        nodeMinX = new float[capacity];
+        nodeMinY = new float[capacity];
+        nodeMaxX = new float[capacity];
+        nodeMaxY = new float[capacity];
+        nodeCenterX = new float[capacity];
+        nodeCenterY = new float[capacity];
+        nodeMaxMagnitude = new float[capacity];
+        nodeStart = new int[capacity];
+        nodeEnd = new int[capacity];
+        nodeFirstChild = new int[capacity];
+
+        int root = newNode(-180, -90, 180, 90, 0, indexed);
+        build(root, 0);
+    }
+
+    /**
+     * 返回已索引的事件个数
+     */
+    public int size() {
+        return longitudes.length;
+    }
+
+    /**
+     * 遍历与给定范围相交的聚合。范围（经度或纬度方向）不超过 clusterDegrees 的节点作为一个聚合返回，
+     * 更大的叶子节点逐个返回其中的事件。
+     *
+     * @param clusterDegrees 聚合尺寸（度），通常为屏幕上的聚合直径除以缩放比例
+     */
+    public synchronized void query(float minLongitude, float minLatitude, float maxLongitude, float maxLatitude,
+                                   float clusterDegrees, Visitor visitor) {
+        if (longitudes.length == 0) {
+            return;
+        }
+
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (nodeMaxX[node] < minLongitude || nodeMinX[node] > maxLongitude
+                    || nodeMaxY[node] < minLatitude || nodeMinY[node] > maxLatitude) {
+                continue;
+            }
+
+            int count = nodeEnd[node] - nodeStart[node];
+            if (count == 0) {
+                continue;
+            }
+            if (count == 1 || Math.max(nodeMaxX[node] - nodeMinX[node], nodeMaxY[node] - nodeMinY[node]) <= clusterDegrees) {
+                visitor.visit(nodeCenterX[node], nodeCenterY[node], count, nodeMaxMagnitude[node]);
+                continue;
+            }
+
+            int firstChild = nodeFirstChild[node];
+            if (firstChild < 0) {
+                for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+                    visitor.visit(longitudes[i], latitudes[i], 1, magnitudes[i]);
+                }
+                continue;
+            }
+            for (int child = firstChild; child < firstChild + 4; child++) {
+                stack[top++] = child;
+            }
+        }
+    }
+
+    /**
+     * 计算节点的摘要，事件个数超过叶子容量时原地划分为四个象限并递归构建
+     */
+    private void build(int node, int depth) {
+        int start = nodeStart[node];
+        int end = nodeEnd[node];
+        double sumX = 0;
+        double sumY = 0;
+        float maxMagnitude = Float.NEGATIVE_INFINITY;
+        for (int i = start; i < end; i++) {
+            sumX += longitudes[i];
+            sumY += latitudes[i];
+            maxMagnitude = Math.max(maxMagnitude, magnitudes[i]);
+        }
+        int count = end - start;
+        if (count > 0) {
+            nodeCenterX[node] = (float) (sumX / count);
+            nodeCenterY[node] = (float) (sumY / count);
+            nodeMaxMagnitude[node] = maxMagnitude;
+        }
+        if (count <= LEAF_CAPACITY || depth >= MAX_DEPTH) {
+            return;
+        }
+
+        float minX = nodeMinX[node];
+        float minY = nodeMinY[node];
+        float maxX = nodeMaxX[node];
+        float maxY = nodeMaxY[node];
+        float midX = (minX + maxX) / 2;
+        float midY = (minY + maxY) / 2;
+
+        // 先按纬度分为南北两半，再把每一半按经度分为西东两半
+        int splitY = partition(start, end, midY, false);
+        int splitSouth = partition(start, splitY, midX, true);
+        int splitNorth = partition(splitY, end, midX, true);
+
+        int firstChild = newNode(minX, minY, midX, midY, start, splitSouth);
+        newNode(midX, minY, maxX, midY, splitSouth, splitY);
+        newNode(minX, midY, midX, maxY, splitY, splitNorth);
+        newNode(midX, midY, maxX, maxY, splitNorth, end);
+        nodeFirstChild[node] = firstChild;
+        for (int child = firstChild; child < firstChild + 4; child++) {
+            build(child, depth + 1);
+        }
+    }
+
+    /**
+     * 把 [start, end) 中坐标小于 mid 的事件移到前面
+     *
+     * @return 第一个坐标不小于 mid 的事件的位置
+     */
+    private int partition(int start, int end, float mid, boolean byLongitude) {
+        float[] values = byLongitude ? longitudes : latitudes;
+        int i = start;
+        int j = end - 1;
+        while (i <= j) {
+            if (values[i] < mid) {
+                i++;
+            } else {
+                swap(i, j);
+                j--;
+            }
+        }
+        return i;
+    }
+
+    private void swap(int i, int j) {
+        float longitude = longitudes[i];
+        longitudes[i] = longitudes[j];
+        longitudes[j] = longitude;
+        float latitude = latitudes[i];
+        latitudes[i] = latitudes[j];
+        latitudes[j] = latitude;
+        float magnitude = magnitudes[i];
+        magnitudes[i] = magnitudes[j];
+        magnitudes[j] = magnitude;
+    }
+
+    private int newNode(float minX, float minY, float maxX, float maxY, int start, int end) {
+        if (nodeCount == nodeStart.length) {
+            int capacity = nodeCount * 2;
+            nodeMinX = Arrays.copyOf(nodeMinX, capacity);
+            nodeMinY = Arrays.copyOf(nodeMinY, capacity);
+            nodeMaxX = Arrays.copyOf(nodeMaxX, capacity);
+            nodeMaxY = Arrays.copyOf(nodeMaxY, capacity);
+            nodeCenterX = Arrays.copyOf(nodeCenterX, capacity);
+            nodeCenterY = Arrays.copyOf(nodeCenterY, capacity);
+            nodeMaxMagnitude = Arrays.copyOf(nodeMaxMagnitude, capacity);
+            nodeStart = Arrays.copyOf(nodeStart, capacity);
+            nodeEnd = Arrays.copyOf(nodeEnd, capacity);
+            nodeFirstChild = Arrays.copyOf(nodeFirstChild, capacity);
+        }
+
+        int node = nodeCount++;
+        nodeMinX[node] = minX;
+        nodeMinY[node] = minY;
+        nodeMaxX[node] = maxX;
+        nodeMaxY[node] = maxY;
+        nodeStart[node] = start;
+        nodeEnd[node] = end;
+        nodeFirstChild[node] = -1;
+        return node;
+    }
+}
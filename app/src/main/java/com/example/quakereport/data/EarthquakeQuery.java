@@ -0,0 +1,197 @@
+package com.example.quakereport.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.preference.PreferenceManager;
+
+import com.example.quakereport.R;
+
+import java.util.Objects;
+
+/**
+ * 一次地震查询的参数（最小震级、排序方式、最多显示个数、响应格式），
+ * 既用于构造 USGS 请求地址，也用于查询本地数据库。
+ **/
+public class EarthquakeQuery {
+
+    /**
+     * URL for earthquake data from the USGS dataset
+     */
+    public static final String USGS_REQUEST_URL = "https://earthquake.usgs.gov/fdsnws/event/1/query";
+
+    /**
+     * 按震级从大到小排序
+     */
+    public static final String ORDER_BY_MAGNITUDE = "magnitude";
+
+    /**
+     * 按发生时间从近到远排序
+     */
+    public static final String ORDER_BY_TIME = "time";
+
+    /**
+     * USGS 响应格式：GeoJSON
+     */
+    public static final String FORMAT_GEOJSON = "geojson";
+
+    /**
+     * USGS 响应格式：CSV，体积比 GeoJSON 小得多，解析也更快
+     */
+    public static final String FORMAT_CSV = "csv";
+
+    /**
+     * 最小震级
+     */
+    private final double minMagnitude;
+
+    /**
+     * 排序方式，{@link #ORDER_BY_MAGNITUDE} 或 {@link #ORDER_BY_TIME}
+     */
+    private final String orderBy;
+
+    /**
+     * 每页的地震个数
+     */
+    private final int limit;
+
+    /**
+     * USGS 响应格式，{@link #FORMAT_GEOJSON} 或 {@link #FORMAT_CSV}，不影响本地数据库的查询
+     */
+    private final String format;
+
+    public EarthquakeQuery(double minMagnitude, String orderBy, int limit) {
+        this(minMagnitude, orderBy, limit, FORMAT_GEOJSON);
+    }
+
+    public EarthquakeQuery(double minMagnitude, String orderBy, int limit, String format) {
+        this.minMagnitude = minMagnitude;
+        this.orderBy = ORDER_BY_MAGNITUDE.equals(orderBy) ? ORDER_BY_MAGNITUDE : ORDER_BY_TIME;
+        this.limit = limit;
+        this.format = FORMAT_CSV.equals(format) ? FORMAT_CSV : FORMAT_GEOJSON;
+    }
+
+    /**
+     * 根据用户的偏好设置创建查询参数，无效的设置值将使用默认值代替。
+     */
+    public static EarthquakeQuery fromPreferences(Context context) {
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(context);
+
+        // 地震最小震级的偏好设置
+        String minMagnitude = sharedPrefs.getString(context.getString(
+                R.string.settings_min_magnitude_key),
+                context.getString(R.string.settings_min_magnitude_default));
+
+        // 按照地震发生的最近时间排序偏好
+        String orderBy = sharedPrefs.getString(context.getString(
+                R.string.settings_order_by_key),
+                context.getString(R.string.settings_order_by_default));
+
+        // 每页地震个数偏好
+        String limit = sharedPrefs.getString(context.getString(
+                R.string.settings_limit_key),
+                context.getString(R.string.settings_limit_default));
+
+        // USGS 响应格式偏好
+        String format = sharedPrefs.getString(context.getString(
+                R.string.settings_format_key),
+                context.getString(R.string.settings_format_default));
+
+        return new EarthquakeQuery(
+                parseDouble(minMagnitude, context.getString(R.string.settings_min_magnitude_default)),
+                orderBy,
+                parseInt(limit, context.getString(R.string.settings_limit_default)),
+                format);
+    }
+
+    public double getMinMagnitude() {
+        return minMagnitude;
+    }
+
+    public String getOrderBy() {
+        return orderBy;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * 返回只修改了个数的新查询参数，用于一次从本地数据库读取多页数据。
+     */
+    public EarthquakeQuery withLimit(int limit) {
+        return new EarthquakeQuery(minMagnitude, orderBy, limit, format);
+    }
+
+    /**
+     * 返回用于 USGS 请求地址的 Uri.Builder，已包含格式、个数、最小震级和排序参数。
+     */
+    public Uri.Builder buildRequestUri() {
+        return buildRequestUri(limit);
+    }
+
+    /**
+     * 返回用于 USGS 请求地址的 Uri.Builder，使用给定的个数代替 {@link #getLimit()}。
+     */
+    public Uri.Builder buildRequestUri(int limit) {
+        Uri.Builder uriBuilder = Uri.parse(USGS_REQUEST_URL).buildUpon();
+        uriBuilder.appendQueryParameter("format", format);
+        uriBuilder.appendQueryParameter("limit", String.valueOf(limit));
+        uriBuilder.appendQueryParameter("minmag", String.valueOf(minMagnitude));
+        uriBuilder.appendQueryParameter("orderby", orderBy);
+        return uriBuilder;
+    }
+
+    /**
+     * 返回 USGS 请求地址
+     */
+    public String toRequestUrl() {
+        return buildRequestUri().toString();
+    }
+
+    private static double parseDouble(String value, String defaultValue) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.parseDouble(defaultValue);
+        }
+    }
+
+    private static int parseInt(String value, String defaultValue) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return Integer.parseInt(defaultValue);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        EarthquakeQuery that = (EarthquakeQuery) o;
+        return Double.compare(that.minMagnitude, minMagnitude) == 0 &&
+                limit == that.limit &&
+                orderBy.equals(that.orderBy) &&
+                format.equals(that.format);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(minMagnitude, orderBy, limit, format);
+    }
+
+    @Override
+    public String toString() {
+        return "EarthquakeQuery{" +
+                "minMagnitude=" + minMagnitude +
+                ", orderBy='" + orderBy + '\'' +
+                ", limit=" + limit +
+                ", format='" + format + '\'' +
+                '}';
+    }
+}
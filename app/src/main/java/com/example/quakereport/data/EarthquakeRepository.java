@@ -0,0 +1,410 @@
+package com.example.quakereport.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.os.CancellationSignal;
+
+import com.example.quakereport.util.PerfMetrics;
+import com.example.quakereport.util.QueryUtilsPlus;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 负责把 USGS 的地震数据同步到 {@link EarthquakeStore}。
+ * <p>
+ * 第一次同步时完整下载时间窗口内震级不小于查询最小震级的所有事件（超集）；之后记住已收到数据中
+ * 最新的 updated 时间（水位线），只通过 FDSN 的 updatedafter 参数请求在其之后有变化的事件，
+ * 再合并到本地数据库中。只有放宽最小震级时才需要重新完整下载。
+ * <p>
+ * 超集同时保存在内存中的 {@link EarthquakeIndex} 里，更严格的最小震级或不同的排序方式
+ * 都可以直接由它回答，不需要访问网络或数据库。
+ **/
+public class EarthquakeRepository {
+
+    /**
+     * 保存同步水位线的 SharedPreferences 文件名
+     */
+    private static final String SYNC_PREFS_NAME = "earthquake_sync";
+
+    /**
+     * 同步水位线、已同步的最小震级和超集是否完整的键
+     */
+    private static final String KEY_WATERMARK = "watermark";
+    private static final String KEY_COVERED_MIN_MAGNITUDE = "covered_min_magnitude";
+    private static final String KEY_COMPLETE = "complete";
+
+    /**
+     * 最近一次同步成功的时间
+     */
+    private static final String KEY_LAST_SYNC = "last_sync";
+
+    /**
+     * 同步时的数据库版本。数据库升级会清空数据，版本不一致时之前的同步状态全部作废
+     */
+    private static final String KEY_DATABASE_VERSION = "database_version";
+
+    /**
+     * 同步的时间窗口，与 FDSN starttime 的默认值（30 天前）一致
+     */
+    private static final long SYNC_WINDOW_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+    /**
+     * 同步成功后的这段时间内，数据被认为是最新的，{@link #syncIfStale(EarthquakeQuery)} 不再访问网络
+     */
+    private static final long FRESHNESS_MILLIS = TimeUnit.MINUTES.toMillis(15);
+
+    /**
+     * 前台 loader 和后台同步任务可能同时同步，同一时间只允许一个同步
+     */
+    private static final Object SYNC_LOCK = new Object();
+
+    /**
+     * 同步请求的最大个数（FDSN 单次查询的上限）。
+     * 若结果达到该数量，说明可能有遗漏。
+     */
+    private static final int DELTA_LIMIT = 20000;
+
+    /**
+     * 进程内共享的地震超集
+     */
+    private static EarthquakeIndex mIndex;
+
+    private final EarthquakeStore mStore;
+
+    private final SharedPreferences mSyncPrefs;
+
+    public EarthquakeRepository(Context context) {
+        mStore = new EarthquakeStore(context);
+        mSyncPrefs = context.getApplicationContext()
+                .getSharedPreferences(SYNC_PREFS_NAME, Context.MODE_PRIVATE);
+
+        if (mSyncPrefs.getInt(KEY_DATABASE_VERSION, 0) != EarthquakeDbHelper.DATABASE_VERSION) {
+            mSyncPrefs.edit()
+                    .clear()
+                    .putInt(KEY_DATABASE_VERSION, EarthquakeDbHelper.DATABASE_VERSION)
+                    .apply();
+        }
+    }
+
+    public EarthquakeStore getStore() {
+        return mStore;
+    }
+
+    /**
+     * 从 USGS 同步给定查询的数据到本地数据库。只能在后台线程调用。
+     * <p>
+     * 若已同步过的最小震级不高于查询的最小震级，只需按已同步的最小震级下载增量；
+     * 否则（第一次同步或放宽了最小震级）按查询的最小震级完整下载时间窗口内的所有事件。
+     * 排序方式和每页个数不影响同步的内容。
+     *
+     * @return 同步成功返回 true，网络请求或解析失败返回 false
+     */
+    public boolean sync(EarthquakeQuery query) {
+        synchronized (SYNC_LOCK) {
+            return syncLocked(query, null, null);
+        }
+    }
+
+    /**
+     * 若给定查询的数据在 {@link #FRESHNESS_MILLIS} 内已同步过则直接返回，否则调用 {@link #sync(EarthquakeQuery)}。
+     * 正在进行的同步完成后才会检查，因此同时发起的多个同步只会访问一次网络。只能在后台线程调用。
+     *
+     * @return 数据是最新的或同步成功返回 true，网络请求或解析失败返回 false
+     */
+    public boolean syncIfStale(EarthquakeQuery query) {
+        return syncIfStale(query, null, null);
+    }
+
+    /**
+     * 与 {@link #syncIfStale(EarthquakeQuery)} 相同，完整下载时还会在解析过程中把收到的地震按批交给 listener，
+     * 使调用者可以在下载完成前显示已收到的部分。增量同步只包含有变化的事件，不能单独显示，因此不会通知。
+     * <p>
+     * signal 被取消时中止网络请求，已下载的部分结果被丢弃，本地数据库和同步状态保持不变。
+     *
+     * @param listener 按批接收地震的监听器，可以为 null，可能在多个线程上同时被调用
+     * @param signal   取消信号，可以为 null
+     * @return 数据是最新的或同步成功返回 true，网络请求或解析失败、被取消返回 false
+     */
+    public boolean syncIfStale(EarthquakeQuery query, QueryUtilsPlus.BatchListener listener,
+                               CancellationSignal signal) {
+        synchronized (SYNC_LOCK) {
+            if (isFresh(query)) {
+                return true;
+            }
+            return syncLocked(query, listener, signal);
+        }
+    }
+
+    /**
+     * 返回给定查询的数据是否在 {@link #FRESHNESS_MILLIS} 内同步过
+     */
+    public boolean isFresh(EarthquakeQuery query) {
+        long lastSync = mSyncPrefs.getLong(KEY_LAST_SYNC, 0);
+        long age = System.currentTimeMillis() - lastSync;
+        return age >= 0 && age < FRESHNESS_MILLIS
+                && mSyncPrefs.getLong(KEY_WATERMARK, 0) > 0
+                && query.getMinMagnitude() >= getCoveredMinMagnitude();
+    }
+
+    private boolean syncLocked(EarthquakeQuery query, QueryUtilsPlus.BatchListener listener,
+                               CancellationSignal signal) {
+        // 等待其他同步完成期间可能已被取消
+        if (signal != null && signal.isCanceled()) {
+            return false;
+        }
+
+        double coveredMinMagnitude = getCoveredMinMagnitude();
+        long watermark = mSyncPrefs.getLong(KEY_WATERMARK, 0);
+        boolean delta = watermark > 0 && query.getMinMagnitude() >= coveredMinMagnitude;
+        double minMagnitude = delta ? coveredMinMagnitude : query.getMinMagnitude();
+        long startTime = getWindowStartTime();
+
+        EarthquakeColumns earthquakes;
+        boolean complete;
+        boolean deltaTruncated = false;
+        if (delta) {
+            // 只请求水位线之后有变化的事件；按时间排序，超出上限时保留的是最近的事件
+            Uri.Builder uriBuilder = new EarthquakeQuery(
+                    minMagnitude, EarthquakeQuery.ORDER_BY_TIME, DELTA_LIMIT, query.getFormat()).buildRequestUri();
+            uriBuilder.appendQueryParameter("updatedafter", formatTime(watermark));
+            uriBuilder.appendQueryParameter("starttime", formatTime(startTime));
+
+            earthquakes = QueryUtilsPlus.fetchEarthquakeColumns(uriBuilder.toString(), null, signal);
+            if (earthquakes == null) {
+                return false;
+            }
+            // 增量同步只能保持超集的完整性，不能补全被截断的完整下载：只有完整下载能把标志由 false 变为 true
+            deltaTruncated = earthquakes.size() >= DELTA_LIMIT;
+            complete = mSyncPrefs.getBoolean(KEY_COMPLETE, false) && !deltaTruncated;
+        } else {
+            // 完整下载的事件可能超过单次查询的上限，按时间拆分为多个子窗口并发获取
+            EarthquakeFetchPlanner.Result result = EarthquakeFetchPlanner.fetch(
+                    minMagnitude, query.getFormat(), startTime, getWindowEndTime(), listener, signal);
+            if (result == null) {
+                return false;
+            }
+            earthquakes = result.getEarthquakes();
+            complete = !result.isTruncated();
+        }
+
+        int changed = mStore.upsert(earthquakes);
+        // 超出时间窗口的事件不再被同步，从本地数据库中删除
+        changed += mStore.evictBefore(startTime);
+        if (changed > 0 || !delta) {
+            invalidateIndex();
+        }
+
+        // 推进水位线
+        long newWatermark = delta ? watermark : 0;
+        for (int i = 0; i < earthquakes.size(); i++) {
+            newWatermark = Math.max(newWatermark, earthquakes.getUpdated(i));
+        }
+
+        // 结果达到上限时可能有遗漏：增量同步将在下次重新完整下载，完整下载则不能用作超集
+        if (deltaTruncated) {
+            newWatermark = 0;
+        }
+        mSyncPrefs.edit()
+                .putLong(KEY_WATERMARK, newWatermark)
+                .putString(KEY_COVERED_MIN_MAGNITUDE, String.valueOf(minMagnitude))
+                .putBoolean(KEY_COMPLETE, complete)
+                .putLong(KEY_LAST_SYNC, System.currentTimeMillis())
+                .apply();
+
+        return true;
+    }
+
+    /**
+     * 返回本地数据库是否已包含给定查询的所有事件。为 true 时不需要按页从网络获取，
+     * 更严格的最小震级或不同的排序方式都可以直接在内存中回答。
+     */
+    public boolean covers(EarthquakeQuery query) {
+        return mSyncPrefs.getBoolean(KEY_COMPLETE, false)
+                && query.getMinMagnitude() >= getCoveredMinMagnitude();
+    }
+
+    /**
+     * 读取给定查询的地震。本地数据库已包含查询的所有事件时由内存中的 {@link EarthquakeIndex} 回答，
+     * 否则查询本地数据库。只能在后台线程调用。
+     */
+    public EarthquakeColumns query(EarthquakeQuery query) {
+        if (covers(query)) {
+            EarthquakeIndex index = getIndex();
+            if (index.covers(query)) {
+                return index.query(query);
+            }
+        }
+        return mStore.query(query);
+    }
+
+    /**
+     * 查询主要位置与 text 匹配的地震（见 {@link PlaceSearchIndex#search(String)}），按查询的排序方式返回。
+     * 匹配在本地数据库所有地震的位置索引上进行，不受列表已加载的页数限制。
+     * text 中没有任何词时返回 null，表示不过滤。只能在后台线程调用。
+     */
+    public EarthquakeColumns queryByPlace(EarthquakeQuery query, String text) {
+        String[] ids = mStore.searchPlaces(text);
+        if (ids == null) {
+            return null;
+        }
+        if (ids.length == 0) {
+            return new EarthquakeColumns();
+        }
+        return getIndex(query).queryByIds(query, ids);
+    }
+
+    /**
+     * 查询满足“我附近”过滤条件的地震，在内存中的空间索引上进行，不访问网络。只能在后台线程调用。
+     * <p>
+     * 不限制距离时返回距离最近的地震，按距离从近到远排序；否则返回震中与用户的距离不超过半径的地震，
+     * 按查询的排序方式排序。
+     */
+    public EarthquakeColumns queryNear(EarthquakeQuery query, LocationFilter filter) {
+        EarthquakeIndex index = getIndex(query);
+        if (filter.isNearestFirst()) {
+            return index.queryNearest(query, filter.getLatitude(), filter.getLongitude());
+        }
+        return index.queryWithinRadius(query, filter.getLatitude(), filter.getLongitude(), filter.getRadiusKm());
+    }
+
+    /**
+     * 返回可以回答给定查询的索引：超集包含查询的所有事件时使用内存中的超集，
+     * 否则用本地数据库中满足查询最小震级的地震临时构建
+     */
+    private EarthquakeIndex getIndex(EarthquakeQuery query) {
+        if (covers(query)) {
+            EarthquakeIndex index = getIndex();
+            if (index.covers(query)) {
+                return index;
+            }
+        }
+        return new EarthquakeIndex(mStore.queryAll(query.getMinMagnitude()), query.getMinMagnitude());
+    }
+
+    /**
+     * 返回内存中的地震超集，不存在或已过期时从本地数据库重新构建
+     */
+    private EarthquakeIndex getIndex() {
+        synchronized (EarthquakeRepository.class) {
+            double coveredMinMagnitude = getCoveredMinMagnitude();
+            if (mIndex == null || mIndex.getMinMagnitude() != coveredMinMagnitude) {
+                EarthquakeColumns earthquakes = mStore.queryAll(coveredMinMagnitude);
+                long startTime = System.nanoTime();
+                mIndex = new EarthquakeIndex(earthquakes, coveredMinMagnitude);
+                PerfMetrics.recordIndex(System.nanoTime() - startTime);
+            }
+            return mIndex;
+        }
+    }
+
+    /**
+     * 本地数据库有变化时丢弃内存中的超集，下次查询时重新构建
+     */
+    private static void invalidateIndex() {
+        synchronized (EarthquakeRepository.class) {
+            mIndex = null;
+        }
+    }
+
+    /**
+     * 返回已完整同步的最小震级，从未同步时返回正无穷
+     */
+    private double getCoveredMinMagnitude() {
+        String value = mSyncPrefs.getString(KEY_COVERED_MIN_MAGNITUDE, null);
+        if (value == null) {
+            return Double.POSITIVE_INFINITY;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.POSITIVE_INFINITY;
+        }
+    }
+
+    /**
+     * 返回本地数据库中震级不小于 minMagnitude 的地震的聚合统计，开销与地震个数无关
+     * （每个进程第一次调用时需要扫描一次数据库）。只能在后台线程调用。
+     */
+    public EarthquakeStats.Summary summarize(double minMagnitude) {
+        return mStore.getStats().summarize(minMagnitude);
+    }
+
+    /**
+     * 使用 FDSN 的 offset 参数从 USGS 获取给定查询的第 pageIndex 页（从 0 开始）数据，
+     * 并合并到本地数据库。第 0 页由 {@link #sync(EarthquakeQuery)} 负责，
+     * 本地数据库已包含查询的所有事件时不需要调用。只能在后台线程调用。
+     *
+     * @param signal 取消信号，可以为 null；取消时丢弃已下载的部分结果
+     * @return 获取成功返回 true，网络请求或解析失败、被取消返回 false
+     */
+    public boolean fetchPage(EarthquakeQuery query, int pageIndex, CancellationSignal signal) {
+        long startTime = getWindowStartTime();
+
+        // FDSN 的 offset 从 1 开始
+        Uri.Builder uriBuilder = query.buildRequestUri();
+        uriBuilder.appendQueryParameter("offset", String.valueOf(pageIndex * query.getLimit() + 1));
+        uriBuilder.appendQueryParameter("starttime", formatTime(startTime));
+
+        EarthquakeColumns earthquakes = QueryUtilsPlus.fetchEarthquakeColumns(uriBuilder.toString(), null, signal);
+        if (earthquakes == null) {
+            return false;
+        }
+        if (mStore.upsert(earthquakes) > 0) {
+            invalidateIndex();
+        }
+
+        return true;
+    }
+
+    /**
+     * 从 USGS 预先生成的摘要 feed（如 all_hour.geojson）获取最近的事件，按事件 ID 合并到本地数据库。
+     * 只有新事件或 updated 时间更新的事件会被写入。只能在后台线程调用。
+     *
+     * @param feedUrl 摘要 feed 的地址
+     * @return 新插入或被更新的事件个数；网络请求或解析失败返回 -1
+     */
+    public int mergeSummaryFeed(String feedUrl) {
+        EarthquakeColumns earthquakes = QueryUtilsPlus.fetchEarthquakeColumns(feedUrl);
+        if (earthquakes == null) {
+            return -1;
+        }
+
+        int changed = mStore.upsert(earthquakes);
+        if (changed > 0) {
+            invalidateIndex();
+        }
+        return changed;
+    }
+
+    /**
+     * 返回同步时间窗口的起点。向下取整到分钟，使一分钟内的相同请求得到相同的 URL，
+     * 可以被合并或由缓存回答
+     */
+    private static long getWindowStartTime() {
+        long startTime = System.currentTimeMillis() - SYNC_WINDOW_MILLIS;
+        return startTime - startTime % TimeUnit.MINUTES.toMillis(1);
+    }
+
+    /**
+     * 返回同步时间窗口的终点：当前时间向上取整到分钟，与 {@link #getWindowStartTime()} 对应
+     */
+    private static long getWindowEndTime() {
+        long minute = TimeUnit.MINUTES.toMillis(1);
+        long endTime = System.currentTimeMillis() + minute;
+        return endTime - endTime % minute;
+    }
+
+    /**
+     * 将毫秒时间格式化为 FDSN 接受的 ISO8601 UTC 时间（如 "2021-02-21T01:37:00.000"）
+     */
+    static String formatTime(long millis) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(millis));
+    }
+}
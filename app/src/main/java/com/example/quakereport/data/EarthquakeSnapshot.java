@@ -0,0 +1,176 @@
+package com.example.quakereport.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 上一次显示的地震列表的二进制快照，用于冷启动时立即显示数据。
+ * <p>
+ * 文件格式（大端序）：
+ * <pre>
+ * int    MAGIC
+ * int    FORMAT_VERSION
+ * string 查询标识（{@link EarthquakeQuery#toRequestUrl()}）
+ * int    地震个数 n
+ * n × { string id, double mag, string place, long time, long updated, string url,
+ *         double longitude, double latitude, double depth }
+ * </pre>
+ * 其中 string 为 int 长度（-1 表示 null）加上相应个数的 UTF-16 字符。
+ * 读取时通过内存映射访问文件，不需要解析 JSON；魔数、版本或查询标识不匹配的快照会被丢弃。
+ **/
+public class EarthquakeSnapshot {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = EarthquakeSnapshot.class.getSimpleName();
+
+    /**
+     * 快照文件名（位于应用缓存目录下）
+     */
+    private static final String SNAPSHOT_FILE_NAME = "earthquakes.snapshot";
+
+    /**
+     * 文件魔数 "QRSN"
+     */
+    private static final int MAGIC = 0x5152534E;
+
+    /**
+     * 文件格式版本，修改格式时需要递增，旧版本的快照将被丢弃
+     */
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+     * 每个地震记录至少占用的字节数：三个 string 的长度，两个 long 和四个 double
+     */
+    private static final int MIN_RECORD_BYTES = 3 * 4 + 2 * 8 + 4 * 8;
+
+    private final File mFile;
+
+    public EarthquakeSnapshot(Context context) {
+        mFile = new File(context.getApplicationContext().getCacheDir(), SNAPSHOT_FILE_NAME);
+    }
+
+    /**
+     * 读取与给定查询对应的快照。只能在后台线程调用。
+     *
+     * @return 快照中的地震；快照不存在、已损坏、版本不符或属于其他查询时返回 null
+     */
+    public EarthquakeColumns read(EarthquakeQuery query) {
+        if (!mFile.isFile()) {
+            return null;
+        }
+
+        try (FileInputStream in = new FileInputStream(mFile);
+             FileChannel channel = in.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+            if (!query.toRequestUrl().equals(readString(buffer))) {
+                return null;
+            }
+
+            int count = buffer.getInt();
+            if (count < 0 || count > buffer.remaining() / MIN_RECORD_BYTES) {
+                // 截断或损坏的文件，不能按其中的个数分配空间
+                return null;
+            }
+
+            EarthquakeColumns earthquakes = new EarthquakeColumns(count);
+            for (int i = 0; i < count; i++) {
+                String id = readString(buffer);
+                double mag = buffer.getDouble();
+                String place = readString(buffer);
+                long time = buffer.getLong();
+                long updated = buffer.getLong();
+                String url = readString(buffer);
+                double longitude = buffer.getDouble();
+                double latitude = buffer.getDouble();
+                double depth = buffer.getDouble();
+                earthquakes.add(id, mag, place, time, updated, url, longitude, latitude, depth);
+            }
+            return earthquakes;
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            Log.e(LOG_TAG, "Problem reading the earthquake snapshot", e);
+            return null;
+        }
+    }
+
+    /**
+     * 用给定的地震替换快照。先写入临时文件再重命名，避免留下写了一半的快照。
+     * 每次写入使用各自的临时文件，加载器和后台同步可以同时写入。只能在后台线程调用。
+     */
+    public void write(EarthquakeQuery query, EarthquakeColumns earthquakes) {
+        File tempFile;
+        try {
+            tempFile = File.createTempFile(SNAPSHOT_FILE_NAME, ".tmp", mFile.getParentFile());
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem creating the earthquake snapshot", e);
+            return;
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, query.toRequestUrl());
+            out.writeInt(earthquakes.size());
+            for (int i = 0; i < earthquakes.size(); i++) {
+                writeString(out, earthquakes.getId(i));
+                out.writeDouble(earthquakes.getMag(i));
+                writeString(out, earthquakes.getPlace(i));
+                out.writeLong(earthquakes.getTime(i));
+                out.writeLong(earthquakes.getUpdated(i));
+                writeString(out, earthquakes.getUrl(i));
+                out.writeDouble(earthquakes.getLongitude(i));
+                out.writeDouble(earthquakes.getLatitude(i));
+                out.writeDouble(earthquakes.getDepth(i));
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem writing the earthquake snapshot", e);
+            tempFile.delete();
+            return;
+        }
+
+        if (!tempFile.renameTo(mFile)) {
+            Log.e(LOG_TAG, "Problem replacing the earthquake snapshot");
+            tempFile.delete();
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining() / 2) {
+            throw new BufferUnderflowException();
+        }
+
+        char[] chars = new char[length];
+        buffer.asCharBuffer().get(chars);
+        buffer.position(buffer.position() + length * 2);
+        return new String(chars);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(value.length());
+        out.writeChars(value);
+    }
+}
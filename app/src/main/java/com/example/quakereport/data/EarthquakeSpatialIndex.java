@@ -0,0 +1,274 @@
+package com.example.quakereport.data;
+
+import java.util.Arrays;
+
+/**
+ * 按震中坐标建立的网格空间索引，用于半径查询、矩形范围查询和按距离排序，不需要访问 USGS。
+ * <p>
+ * 地球表面按经纬度划分为 1°×1° 的网格，每个网格中的行号连续保存在一个数组中
+ * （与 CSR 稀疏矩阵相同的布局），查询时只需检查与查询范围相交的网格。
+ * 没有坐标的地震不会被索引。构建完成后不再修改，可以在多个线程间共享。
+ **/
+public class EarthquakeSpatialIndex {
+
+    /**
+     * 地球平均半径（千米）
+     */
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    /**
+     * 经度和纬度方向的网格个数（每个网格 1°）
+     */
+    private static final int COLUMNS = 360;
+    private static final int ROWS = 180;
+
+    /**
+     * 查找最近的地震时，第一次搜索的半径（千米）
+     */
+    private static final double NEAREST_INITIAL_RADIUS_KM = 100;
+
+    private final EarthquakeColumns earthquakes;
+
+    /**
+     * 第 cell 个网格中的行号保存在 cellRows[cellStarts[cell]..cellStarts[cell + 1]) 中
+     */
+    private final int[] cellStarts = new int[COLUMNS * ROWS + 1];
+    private final int[] cellRows;
+
+    /**
+     * 每一行震中纬度、经度的弧度值和纬度的余弦，用于计算大圆距离
+     */
+    private final double[] latitudeRadians;
+    private final double[] longitudeRadians;
+    private final double[] latitudeCosines;
+
+    /**
+     * 用给定的地震构建索引
+     *
+     * @param earthquakes 要索引的地震，构建后不能再修改
+     */
+    public EarthquakeSpatialIndex(EarthquakeColumns earthquakes) {
+        this.earthquakes = earthquakes;
+
+        int size = earthquakes.size();
+        int[] cells = new int[size];
+        latitudeRadians = new double[size];
+        longitudeRadians = new double[size];
+        latitudeCosines = new double[size];
+
+        // 计数排序：先统计每个网格的行数，再依次放入各自的位置
+        int indexed = 0;
+        for (int row = 0; row < size; row++) {
+            double latitude = earthquakes.getLatitude(row);
+            double longitude = earthquakes.getLongitude(row);
+            if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+                cells[row] = -1;
+                continue;
+            }
+
+            cells[row] = cellOf(latitude, longitude);
+            cellStarts[cells[row] + 1]++;
+            latitudeRadians[row] = Math.toRadians(latitude);
+            longitudeRadians[row] = Math.toRadians(longitude);
+            latitudeCosines[row] = Math.cos(latitudeRadians[row]);
+            indexed++;
+        }
+        for (int cell = 0; cell < COLUMNS * ROWS; cell++) {
+            cellStarts[cell + 1] += cellStarts[cell];
+        }
+
+        cellRows = new int[indexed];
+        int[] next = Arrays.copyOf(cellStarts, COLUMNS * ROWS);
+        for (int row = 0; row < size; row++) {
+            if (cells[row] >= 0) {
+                cellRows[next[cells[row]]++] = row;
+            }
+        }
+    }
+
+    /**
+     * 返回已索引（有坐标）的地震个数
+     */
+    public int size() {
+        return cellRows.length;
+    }
+
+    /**
+     * 返回震中与给定位置的距离不超过 radiusKm 的所有行号，顺序不确定。
+     */
+    public int[] withinRadius(double latitude, double longitude, double radiusKm) {
+        RowBuffer result = new RowBuffer();
+        if (radiusKm < 0) {
+            return result.toArray();
+        }
+
+        double latitudeRadian = Math.toRadians(latitude);
+        double longitudeRadian = Math.toRadians(longitude);
+        double cosLatitude = Math.cos(latitudeRadian);
+        double angularRadius = radiusKm / EARTH_RADIUS_KM;
+
+        // 与查询圆相交的纬度范围；包含极点时需要检查所有经度
+        double radiusDegrees = Math.toDegrees(angularRadius);
+        double south = latitude - radiusDegrees;
+        double north = latitude + radiusDegrees;
+        double longitudeDegrees;
+        if (south <= -90 || north >= 90 || angularRadius >= Math.PI / 2) {
+            longitudeDegrees = 180;
+        } else {
+            longitudeDegrees = Math.toDegrees(Math.asin(Math.sin(angularRadius) / cosLatitude));
+        }
+
+        int firstRow = latitudeRow(Math.max(south, -90));
+        int lastRow = latitudeRow(Math.min(north, 90));
+        int firstColumn = (int) Math.floor(longitude - longitudeDegrees + 180);
+        int lastColumn = (int) Math.floor(longitude + longitudeDegrees + 180);
+        if (lastColumn - firstColumn + 1 >= COLUMNS) {
+            firstColumn = 0;
+            lastColumn = COLUMNS - 1;
+        }
+
+        for (int cellRow = firstRow; cellRow <= lastRow; cellRow++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int cell = cellRow * COLUMNS + Math.floorMod(column, COLUMNS);
+                for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+                    int row = cellRows[i];
+                    if (distanceKm(latitudeRadian, longitudeRadian, cosLatitude, row) <= radiusKm) {
+                        result.add(row);
+                    }
+                }
+            }
+        }
+        return result.toArray();
+    }
+
+    /**
+     * 返回震中位于给定经纬度矩形内的所有行号，顺序不确定。
+     * west 大于 east 时表示矩形跨越 180° 经线。
+     */
+    public int[] withinBounds(double south, double west, double north, double east) {
+        RowBuffer result = new RowBuffer();
+        if (south > north) {
+            return result.toArray();
+        }
+
+        double eastUnwrapped = east < west ? east + 360 : east;
+        int firstRow = latitudeRow(Math.max(south, -90));
+        int lastRow = latitudeRow(Math.min(north, 90));
+        int firstColumn = (int) Math.floor(west + 180);
+        int lastColumn = (int) Math.floor(eastUnwrapped + 180);
+        if (lastColumn - firstColumn + 1 >= COLUMNS) {
+            firstColumn = 0;
+            lastColumn = COLUMNS - 1;
+        }
+
+        for (int cellRow = firstRow; cellRow <= lastRow; cellRow++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int cell = cellRow * COLUMNS + Math.floorMod(column, COLUMNS);
+                for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+                    int row = cellRows[i];
+                    double latitude = earthquakes.getLatitude(row);
+                    double longitude = earthquakes.getLongitude(row);
+                    if (longitude < west) {
+                        longitude += 360;
+                    }
+                    if (latitude >= south && latitude <= north && longitude <= eastUnwrapped) {
+                        result.add(row);
+                    }
+                }
+            }
+        }
+        return result.toArray();
+    }
+
+    /**
+     * 返回距离给定位置最近的最多 count 个行号，按距离从近到远排序。
+     * <p>
+     * 从较小的半径开始搜索，找到的地震不足 count 个时把半径加倍；
+     * 半径内的地震一定比半径外的近，因此结果是准确的。
+     */
+    public int[] nearest(double latitude, double longitude, int count) {
+        double maxRadiusKm = Math.PI * EARTH_RADIUS_KM;
+        int[] rows;
+        double radiusKm = NEAREST_INITIAL_RADIUS_KM;
+        while (true) {
+            rows = withinRadius(latitude, longitude, radiusKm);
+            if (rows.length >= count || radiusKm >= maxRadiusKm) {
+                break;
+            }
+            radiusKm = Math.min(radiusKm * 2, maxRadiusKm);
+        }
+
+        int[] sorted = sortByDistance(rows, latitude, longitude);
+        return sorted.length > count ? Arrays.copyOf(sorted, count) : sorted;
+    }
+
+    /**
+     * 返回按与给定位置的距离从近到远排序的行号
+     */
+    public int[] sortByDistance(int[] rows, double latitude, double longitude) {
+        double latitudeRadian = Math.toRadians(latitude);
+        double longitudeRadian = Math.toRadians(longitude);
+        double cosLatitude = Math.cos(latitudeRadian);
+
+        // 距离（米，最大约 2×10^7）放在高 32 位，行号放在低 32 位，用基本类型排序，不需要装箱
+        long[] keys = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            long meters = Math.round(distanceKm(latitudeRadian, longitudeRadian, cosLatitude, rows[i]) * 1000);
+            keys[i] = meters << 32 | rows[i];
+        }
+        Arrays.sort(keys);
+
+        int[] sorted = new int[rows.length];
+        for (int i = 0; i < keys.length; i++) {
+            sorted[i] = (int) keys[i];
+        }
+        return sorted;
+    }
+
+    /**
+     * 返回 row 行的震中与给定位置的大圆距离（千米）
+     */
+    public double distanceKm(double latitude, double longitude, int row) {
+        double latitudeRadian = Math.toRadians(latitude);
+        return distanceKm(latitudeRadian, Math.toRadians(longitude), Math.cos(latitudeRadian), row);
+    }
+
+    /**
+     * 使用 haversine 公式计算大圆距离（千米）
+     */
+    private double distanceKm(double latitudeRadian, double longitudeRadian, double cosLatitude, int row) {
+        double sinHalfLatitude = Math.sin((latitudeRadians[row] - latitudeRadian) / 2);
+        double sinHalfLongitude = Math.sin((longitudeRadians[row] - longitudeRadian) / 2);
+        double a = sinHalfLatitude * sinHalfLatitude
+                + cosLatitude * latitudeCosines[row] * sinHalfLongitude * sinHalfLongitude;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static int cellOf(double latitude, double longitude) {
+        int column = Math.floorMod((int) Math.floor(longitude + 180), COLUMNS);
+        return latitudeRow(latitude) * COLUMNS + column;
+    }
+
+    private static int latitudeRow(double latitude) {
+        return Math.max(0, Math.min((int) Math.floor(latitude + 90), ROWS - 1));
+    }
+
+    /**
+     * 可增长的行号数组
+     */
+    private static class RowBuffer {
+        private int[] rows = new int[16];
+        private int size;
+
+        void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(rows, size);
+        }
+    }
+}
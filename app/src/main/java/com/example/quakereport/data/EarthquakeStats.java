@@ -0,0 +1,325 @@
+package com.example.quakereport.data;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地数据库中地震的聚合统计，随插入、更新和删除增量维护，读取的开销与地震个数无关。
+ * <p>
+ * 震级按 0.01 分档计数（USGS 的震级最多两位小数，因此是精确的），用于各震级段的个数和最大震级；
+ * 最近一小时、一天、一周的事件数和每天的直方图来自按分钟、小时、天划分的环形计数，
+ * 每个时间格内再按 0.1 震级分档，以便按查询的最小震级筛选。时间格随当前时间滚动，
+ * 超出范围的格被清空；按时间格统计时，最早的一格可能包含比窗口略早（不到一格）的事件。
+ * <p>
+ * 由 {@link EarthquakeStore} 在写入数据库的事务中更新，所有方法都是线程安全的。
+ **/
+public class EarthquakeStats {
+
+    /**
+     * 震级段的个数，与列表中震级圆圈的颜色分组一致：[0, 1)（含负震级）、[1, 2)、……、[10, +∞)
+     */
+    public static final int BAND_COUNT = 11;
+
+    /**
+     * 每天直方图的天数，与同步的时间窗口一致
+     */
+    public static final int HISTOGRAM_DAYS = 30;
+
+    /**
+     * 细分震级档（0.01）的范围 [MIN_HUNDREDTHS, MAX_HUNDREDTHS]，超出范围的震级计入两端
+     */
+    private static final int MIN_HUNDREDTHS = -300;
+    private static final int MAX_HUNDREDTHS = 1299;
+
+    /**
+     * 时间格内震级档（0.1）的个数
+     */
+    private static final int TENTH_BIN_COUNT = (MAX_HUNDREDTHS - MIN_HUNDREDTHS) / 10 + 1;
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * 按 0.01 震级分档的事件数
+     */
+    private final int[] hundredthCounts = new int[MAX_HUNDREDTHS - MIN_HUNDREDTHS + 1];
+
+    /**
+     * 当前时间所在的格只过了一部分，窗口需要多包含一格才能覆盖完整的一小时、一天或一周
+     */
+    private final TimeRing minutes = new TimeRing(MINUTE, 60 + 1);
+    private final TimeRing hours = new TimeRing(HOUR, 7 * 24 + 1);
+    private final TimeRing days = new TimeRing(DAY, HISTOGRAM_DAYS);
+
+    /**
+     * 聚合统计的只读快照
+     */
+    public static class Summary {
+
+        private final double minMagnitude;
+        private final int count;
+        private final int[] bandCounts;
+        private final int[] dailyCounts;
+        private final double maxMagnitude;
+        private final int lastHourCount;
+        private final int lastDayCount;
+        private final int lastWeekCount;
+
+        Summary(double minMagnitude, int count, int[] bandCounts, int[] dailyCounts, double maxMagnitude,
+                int lastHourCount, int lastDayCount, int lastWeekCount) {
+            this.minMagnitude = minMagnitude;
+            this.count = count;
+            this.bandCounts = bandCounts;
+            this.dailyCounts = dailyCounts;
+            this.maxMagnitude = maxMagnitude;
+            this.lastHourCount = lastHourCount;
+            this.lastDayCount = lastDayCount;
+            this.lastWeekCount = lastWeekCount;
+        }
+
+        public double getMinMagnitude() {
+            return minMagnitude;
+        }
+
+        /**
+         * 返回震级不小于最小震级的事件总数
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * 返回第 band 个震级段（见 {@link #BAND_COUNT}）中的事件数
+         */
+        public int getBandCount(int band) {
+            return bandCounts[band];
+        }
+
+        /**
+         * 返回最近 {@link #HISTOGRAM_DAYS} 天（UTC）每天的事件数，从早到晚排列，最后一个为今天
+         */
+        public int[] getDailyCounts() {
+            return dailyCounts.clone();
+        }
+
+        /**
+         * 返回最大震级，没有事件时返回 NaN
+         */
+        public double getMaxMagnitude() {
+            return maxMagnitude;
+        }
+
+        public int getLastHourCount() {
+            return lastHourCount;
+        }
+
+        public int getLastDayCount() {
+            return lastDayCount;
+        }
+
+        public int getLastWeekCount() {
+            return lastWeekCount;
+        }
+
+        @Override
+        public String toString() {
+            return "Summary{" +
+                    "minMagnitude=" + minMagnitude +
+                    ", count=" + count +
+                    ", bands=" + Arrays.toString(bandCounts) +
+                    ", max=" + maxMagnitude +
+                    ", hour=" + lastHourCount +
+                    ", day=" + lastDayCount +
+                    ", week=" + lastWeekCount +
+                    '}';
+        }
+    }
+
+    /**
+     * 一个事务中对统计的改变，事务成功后由 {@link #apply(Changes)} 一次应用
+     */
+    static class Changes {
+
+        private double[] mags = new double[16];
+        private long[] times = new long[16];
+        private int[] deltas = new int[16];
+        private int size;
+
+        /**
+         * 记录一个事件的加入（delta 为 1）或移除（delta 为 -1）
+         */
+        void add(double mag, long time, int delta) {
+            if (size == mags.length) {
+                mags = Arrays.copyOf(mags, size * 2);
+                times = Arrays.copyOf(times, size * 2);
+                deltas = Arrays.copyOf(deltas, size * 2);
+            }
+            mags[size] = mag;
+            times[size] = time;
+            deltas[size] = delta;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    void apply(Changes changes) {
+        apply(changes, System.currentTimeMillis());
+    }
+
+    /**
+     * 以 now 为当前时间应用改变
+     */
+    synchronized void apply(Changes changes, long now) {
+        for (int i = 0; i < changes.size; i++) {
+            int hundredths = toHundredths(changes.mags[i]);
+            int delta = changes.deltas[i];
+            int index = hundredths - MIN_HUNDREDTHS;
+            hundredthCounts[index] = Math.max(0, hundredthCounts[index] + delta);
+
+            int tenthBin = Math.floorDiv(hundredths, 10) - MIN_HUNDREDTHS / 10;
+            long time = changes.times[i];
+            minutes.add(time, tenthBin, delta, now);
+            hours.add(time, tenthBin, delta, now);
+            days.add(time, tenthBin, delta, now);
+        }
+    }
+
+    /**
+     * 返回震级不小于 minMagnitude 的事件的聚合统计。
+     * 时间格按 0.1 震级分档，最小震级不是 0.1 的整数倍时，最近一小时、一天、一周的事件数和每天的直方图
+     * 会包含最小震级所在档中略小于最小震级的事件。
+     */
+    public Summary summarize(double minMagnitude) {
+        return summarize(minMagnitude, System.currentTimeMillis());
+    }
+
+    /**
+     * 以 now 为当前时间返回聚合统计
+     */
+    synchronized Summary summarize(double minMagnitude, long now) {
+        int minHundredths = Math.max(MIN_HUNDREDTHS, Math.min(MAX_HUNDREDTHS, (int) Math.ceil(minMagnitude * 100 - 1e-6)));
+        int minTenthBin = Math.floorDiv(minHundredths, 10) - MIN_HUNDREDTHS / 10;
+
+        int count = 0;
+        int[] bandCounts = new int[BAND_COUNT];
+        double maxMagnitude = Double.NaN;
+        for (int hundredths = MAX_HUNDREDTHS; hundredths >= minHundredths; hundredths--) {
+            int n = hundredthCounts[hundredths - MIN_HUNDREDTHS];
+            if (n == 0) {
+                continue;
+            }
+            if (Double.isNaN(maxMagnitude)) {
+                maxMagnitude = hundredths / 100.0;
+            }
+            count += n;
+            bandCounts[Math.max(0, Math.min(BAND_COUNT - 1, Math.floorDiv(hundredths, 100)))] += n;
+        }
+
+        int[] dailyCounts = new int[HISTOGRAM_DAYS];
+        days.counts(minTenthBin, now, dailyCounts);
+        return new Summary(minMagnitude, count, bandCounts, dailyCounts, maxMagnitude,
+                minutes.sum(60 + 1, minTenthBin, now),
+                hours.sum(24 + 1, minTenthBin, now),
+                hours.sum(7 * 24 + 1, minTenthBin, now));
+    }
+
+    /**
+     * 把震级换算为 0.01 的整数倍并限制在范围内
+     */
+    private static int toHundredths(double mag) {
+        if (Double.isNaN(mag)) {
+            return 0;
+        }
+        return (int) Math.max(MIN_HUNDREDTHS, Math.min(MAX_HUNDREDTHS, Math.round(mag * 100)));
+    }
+
+    /**
+     * 最近 slotCount 个时间格的环形计数，每格再按 0.1 震级分档
+     */
+    private static class TimeRing {
+
+        private final long slotMillis;
+
+        private final int slotCount;
+
+        /**
+         * slotCount × TENTH_BIN_COUNT 的计数
+         */
+        private final int[] counts;
+
+        /**
+         * 最新的时间格（从纪元开始的格数），第 slot 格的计数保存在 slot % slotCount 的位置
+         */
+        private long head = Long.MIN_VALUE;
+
+        TimeRing(long slotMillis, int slotCount) {
+            this.slotMillis = slotMillis;
+            this.slotCount = slotCount;
+            this.counts = new int[slotCount * TENTH_BIN_COUNT];
+        }
+
+        void add(long time, int bin, int delta, long now) {
+            advance(now);
+            // 时钟误差造成的未来事件计入当前格
+            long slot = Math.min(Math.floorDiv(time, slotMillis), head);
+            if (slot <= head - slotCount) {
+                return;
+            }
+            int position = (int) Math.floorMod(slot, (long) slotCount);
+            int index = position * TENTH_BIN_COUNT + bin;
+            counts[index] = Math.max(0, counts[index] + delta);
+        }
+
+        /**
+         * 返回最近 n 个时间格中档位不小于 minBin 的事件数
+         */
+        int sum(int n, int minBin, long now) {
+            advance(now);
+            int sum = 0;
+            for (long slot = head - n + 1; slot <= head; slot++) {
+                sum += sumSlot(slot, minBin);
+            }
+            return sum;
+        }
+
+        /**
+         * 按从早到晚的顺序把最近 out.length 个时间格的事件数写入 out
+         */
+        void counts(int minBin, long now, int[] out) {
+            advance(now);
+            for (int i = 0; i < out.length; i++) {
+                out[i] = sumSlot(head - out.length + 1 + i, minBin);
+            }
+        }
+
+        private int sumSlot(long slot, int minBin) {
+            int position = (int) Math.floorMod(slot, (long) slotCount);
+            int offset = position * TENTH_BIN_COUNT;
+            int sum = 0;
+            for (int bin = minBin; bin < TENTH_BIN_COUNT; bin++) {
+                sum += counts[offset + bin];
+            }
+            return sum;
+        }
+
+        /**
+         * 滚动到当前时间所在的格，清空被覆盖的旧格
+         */
+        private void advance(long now) {
+            long slot = Math.floorDiv(now, slotMillis);
+            if (slot <= head) {
+                return;
+            }
+            long first = head == Long.MIN_VALUE ? slot - slotCount + 1 : Math.max(head + 1, slot - slotCount + 1);
+            for (long s = first; s <= slot; s++) {
+                int position = (int) Math.floorMod(s, (long) slotCount);
+                Arrays.fill(counts, position * TENTH_BIN_COUNT, (position + 1) * TENTH_BIN_COUNT, 0);
+            }
+            head = slot;
+        }
+    }
+}
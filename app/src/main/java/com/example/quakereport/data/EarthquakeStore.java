@@ -0,0 +1,420 @@
+package com.example.quakereport.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.example.quakereport.Earthquake;
+import com.example.quakereport.data.EarthquakeContract.EarthquakeEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 地震的本地存储，以 USGS 事件 ID 为主键保存每一个 {@link Earthquake}。
+ * <p>
+ * 同时维护所有已保存地震的 {@link EarthquakeStats} 和主要位置的 {@link PlaceSearchIndex}：
+ * 第一次使用时扫描一次数据库，之后在插入、更新和删除的同一事务中增量更新。
+ * <p>
+ * 所有方法都会访问数据库，只能在后台线程调用。
+ **/
+public class EarthquakeStore {
+
+    /**
+     * 插入新事件，若事件 ID 已存在则忽略
+     */
+    private static final String SQL_INSERT = "INSERT OR IGNORE INTO " + EarthquakeEntry.TABLE_NAME + " ("
+            + EarthquakeEntry.COLUMN_EVENT_ID + ", "
+            + EarthquakeEntry.COLUMN_MAG + ", "
+            + EarthquakeEntry.COLUMN_PLACE + ", "
+            + EarthquakeEntry.COLUMN_TIME + ", "
+            + EarthquakeEntry.COLUMN_UPDATED + ", "
+            + EarthquakeEntry.COLUMN_URL + ", "
+            + EarthquakeEntry.COLUMN_LONGITUDE + ", "
+            + EarthquakeEntry.COLUMN_LATITUDE + ", "
+            + EarthquakeEntry.COLUMN_DEPTH + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * 仅当新数据的更新时间比已保存的数据更新时才覆盖
+     */
+    private static final String SQL_UPDATE = "UPDATE " + EarthquakeEntry.TABLE_NAME + " SET "
+            + EarthquakeEntry.COLUMN_MAG + " = ?, "
+            + EarthquakeEntry.COLUMN_PLACE + " = ?, "
+            + EarthquakeEntry.COLUMN_TIME + " = ?, "
+            + EarthquakeEntry.COLUMN_UPDATED + " = ?, "
+            + EarthquakeEntry.COLUMN_URL + " = ?, "
+            + EarthquakeEntry.COLUMN_LONGITUDE + " = ?, "
+            + EarthquakeEntry.COLUMN_LATITUDE + " = ?, "
+            + EarthquakeEntry.COLUMN_DEPTH + " = ? WHERE "
+            + EarthquakeEntry.COLUMN_EVENT_ID + " = ? AND "
+            + EarthquakeEntry.COLUMN_UPDATED + " < ?";
+
+    /**
+     * 读取即将被 {@link #SQL_UPDATE} 覆盖的旧震级和时间（以空格分隔），不会被覆盖时返回空字符串
+     */
+    private static final String SQL_SELECT_REPLACED = "SELECT IFNULL((SELECT "
+            + EarthquakeEntry.COLUMN_MAG + " || ' ' || " + EarthquakeEntry.COLUMN_TIME
+            + " FROM " + EarthquakeEntry.TABLE_NAME + " WHERE "
+            + EarthquakeEntry.COLUMN_EVENT_ID + " = ? AND "
+            + EarthquakeEntry.COLUMN_UPDATED + " < ?), '')";
+
+    /**
+     * 所有已保存地震的聚合统计，第一次调用 {@link #getStats()} 之前为 null
+     */
+    private static volatile EarthquakeStats sStats;
+
+    /**
+     * 所有已保存地震的主要位置索引，第一次调用 {@link #searchPlaces(String)} 之前为 null。
+     * 不是线程安全的，读写时对其加锁
+     */
+    private static volatile PlaceSearchIndex sPlaceIndex;
+
+    private static final String[] PROJECTION = {
+            EarthquakeEntry.COLUMN_EVENT_ID,
+            EarthquakeEntry.COLUMN_MAG,
+            EarthquakeEntry.COLUMN_PLACE,
+            EarthquakeEntry.COLUMN_TIME,
+            EarthquakeEntry.COLUMN_UPDATED,
+            EarthquakeEntry.COLUMN_URL,
+            EarthquakeEntry.COLUMN_LONGITUDE,
+            EarthquakeEntry.COLUMN_LATITUDE,
+            EarthquakeEntry.COLUMN_DEPTH
+    };
+
+    private final EarthquakeDbHelper mDbHelper;
+
+    public EarthquakeStore(Context context) {
+        mDbHelper = EarthquakeDbHelper.getInstance(context);
+    }
+
+    /**
+     * 在一个事务中插入或更新地震列表。已存在的事件只有在 updated 时间更新时才会被覆盖，
+     * 没有事件 ID 的地震将被忽略。
+     *
+     * @return 新插入或被更新的行数
+     */
+    public int upsert(EarthquakeColumns earthquakes) {
+        if (earthquakes == null || earthquakes.size() == 0) {
+            return 0;
+        }
+
+        int changed = 0;
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        SQLiteStatement insert = db.compileStatement(SQL_INSERT);
+        SQLiteStatement update = db.compileStatement(SQL_UPDATE);
+        SQLiteStatement selectReplaced = db.compileStatement(SQL_SELECT_REPLACED);
+        db.beginTransaction();
+        try {
+            // 在事务中读取：统计要么已包含之前提交的所有行，要么将在本事务之后由扫描建立
+            EarthquakeStats stats = sStats;
+            EarthquakeStats.Changes statsChanges = stats == null ? null : new EarthquakeStats.Changes();
+            PlaceSearchIndex placeIndex = sPlaceIndex;
+            boolean[] written = placeIndex == null ? null : new boolean[earthquakes.size()];
+            for (int i = 0; i < earthquakes.size(); i++) {
+                String id = earthquakes.getId(i);
+                if (id == null) {
+                    continue;
+                }
+
+                String place = earthquakes.getPlace(i);
+                String url = earthquakes.getUrl(i);
+                insert.bindString(1, id);
+                insert.bindDouble(2, earthquakes.getMag(i));
+                bindNullableString(insert, 3, place);
+                insert.bindLong(4, earthquakes.getTime(i));
+                insert.bindLong(5, earthquakes.getUpdated(i));
+                bindNullableString(insert, 6, url);
+                bindNullableDouble(insert, 7, earthquakes.getLongitude(i));
+                bindNullableDouble(insert, 8, earthquakes.getLatitude(i));
+                bindNullableDouble(insert, 9, earthquakes.getDepth(i));
+                if (insert.executeInsert() != -1) {
+                    if (statsChanges != null) {
+                        statsChanges.add(earthquakes.getMag(i), earthquakes.getTime(i), 1);
+                    }
+                    if (written != null) {
+                        written[i] = true;
+                    }
+                    changed++;
+                    continue;
+                }
+
+                if (statsChanges != null) {
+                    selectReplaced.bindString(1, id);
+                    selectReplaced.bindLong(2, earthquakes.getUpdated(i));
+                    String replaced = selectReplaced.simpleQueryForString();
+                    if (replaced.isEmpty()) {
+                        // updated 时间没有更新，不会被覆盖
+                        continue;
+                    }
+                    int separator = replaced.indexOf(' ');
+                    statsChanges.add(Double.parseDouble(replaced.substring(0, separator)),
+                            Long.parseLong(replaced.substring(separator + 1)), -1);
+                    statsChanges.add(earthquakes.getMag(i), earthquakes.getTime(i), 1);
+                }
+
+                update.bindDouble(1, earthquakes.getMag(i));
+                bindNullableString(update, 2, place);
+                update.bindLong(3, earthquakes.getTime(i));
+                update.bindLong(4, earthquakes.getUpdated(i));
+                bindNullableString(update, 5, url);
+                bindNullableDouble(update, 6, earthquakes.getLongitude(i));
+                bindNullableDouble(update, 7, earthquakes.getLatitude(i));
+                bindNullableDouble(update, 8, earthquakes.getDepth(i));
+                update.bindString(9, id);
+                update.bindLong(10, earthquakes.getUpdated(i));
+                int updated = update.executeUpdateDelete();
+                if (written != null) {
+                    written[i] = updated > 0;
+                }
+                changed += updated;
+            }
+            db.setTransactionSuccessful();
+            if (statsChanges != null) {
+                stats.apply(statsChanges);
+            }
+            if (placeIndex != null) {
+                synchronized (placeIndex) {
+                    for (int i = 0; i < written.length; i++) {
+                        if (written[i]) {
+                            placeIndex.add(earthquakes.getId(i), earthquakes.getPrimaryPlace(i));
+                        }
+                    }
+                }
+            }
+        } finally {
+            db.endTransaction();
+            insert.close();
+            update.close();
+            selectReplaced.close();
+        }
+
+        return changed;
+    }
+
+    /**
+     * 删除发生时间早于 time 的地震（如超出同步时间窗口的事件）。
+     *
+     * @return 被删除的行数
+     */
+    public int evictBefore(long time) {
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        String[] selectionArgs = {String.valueOf(time)};
+        int evicted;
+        db.beginTransaction();
+        try {
+            EarthquakeStats stats = sStats;
+            PlaceSearchIndex placeIndex = sPlaceIndex;
+            EarthquakeStats.Changes statsChanges = null;
+            List<String> evictedIds = null;
+            if (stats != null || placeIndex != null) {
+                statsChanges = new EarthquakeStats.Changes();
+                evictedIds = new ArrayList<>();
+                try (Cursor cursor = db.query(EarthquakeEntry.TABLE_NAME,
+                        new String[]{EarthquakeEntry.COLUMN_MAG, EarthquakeEntry.COLUMN_TIME,
+                                EarthquakeEntry.COLUMN_EVENT_ID},
+                        EarthquakeEntry.COLUMN_TIME + " < ?",
+                        selectionArgs,
+                        null,
+                        null,
+                        null)) {
+                    while (cursor.moveToNext()) {
+                        statsChanges.add(cursor.getDouble(0), cursor.getLong(1), -1);
+                        evictedIds.add(cursor.getString(2));
+                    }
+                }
+            }
+
+            evicted = db.delete(EarthquakeEntry.TABLE_NAME, EarthquakeEntry.COLUMN_TIME + " < ?", selectionArgs);
+            db.setTransactionSuccessful();
+            if (stats != null) {
+                stats.apply(statsChanges);
+            }
+            if (placeIndex != null) {
+                synchronized (placeIndex) {
+                    for (String id : evictedIds) {
+                        placeIndex.remove(id);
+                    }
+                }
+            }
+        } finally {
+            db.endTransaction();
+        }
+
+        return evicted;
+    }
+
+    /**
+     * 返回所有已保存地震的聚合统计。第一次调用时扫描一次数据库建立统计，之后随写入增量更新。
+     */
+    public EarthquakeStats getStats() {
+        EarthquakeStats stats = sStats;
+        if (stats != null) {
+            return stats;
+        }
+
+        synchronized (EarthquakeStore.class) {
+            if (sStats != null) {
+                return sStats;
+            }
+
+            stats = new EarthquakeStats();
+            EarthquakeStats.Changes changes = new EarthquakeStats.Changes();
+            SQLiteDatabase db = mDbHelper.getWritableDatabase();
+            // 在事务中扫描并发布，使并发的写入要么已被扫描到，要么在发布之后增量更新
+            db.beginTransaction();
+            try {
+                try (Cursor cursor = db.query(EarthquakeEntry.TABLE_NAME,
+                        new String[]{EarthquakeEntry.COLUMN_MAG, EarthquakeEntry.COLUMN_TIME},
+                        null,
+                        null,
+                        null,
+                        null,
+                        null)) {
+                    while (cursor.moveToNext()) {
+                        changes.add(cursor.getDouble(0), cursor.getLong(1), 1);
+                    }
+                }
+                stats.apply(changes);
+                sStats = stats;
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+
+            return stats;
+        }
+    }
+
+    /**
+     * 返回主要位置与 text 匹配的所有已保存地震的事件 ID（见 {@link PlaceSearchIndex#search(String)}），
+     * text 中没有任何词时返回 null。第一次调用时扫描一次数据库建立索引，之后随写入增量更新。
+     */
+    public String[] searchPlaces(String text) {
+        PlaceSearchIndex placeIndex = getPlaceIndex();
+        synchronized (placeIndex) {
+            PlaceSearchIndex.Result result = placeIndex.search(text);
+            return result == null ? null : result.getIds();
+        }
+    }
+
+    private PlaceSearchIndex getPlaceIndex() {
+        PlaceSearchIndex placeIndex = sPlaceIndex;
+        if (placeIndex != null) {
+            return placeIndex;
+        }
+
+        synchronized (EarthquakeStore.class) {
+            if (sPlaceIndex != null) {
+                return sPlaceIndex;
+            }
+
+            placeIndex = new PlaceSearchIndex();
+            SQLiteDatabase db = mDbHelper.getWritableDatabase();
+            // 与 getStats() 相同，在事务中扫描并发布
+            db.beginTransaction();
+            try {
+                try (Cursor cursor = db.query(EarthquakeEntry.TABLE_NAME,
+                        new String[]{EarthquakeEntry.COLUMN_EVENT_ID, EarthquakeEntry.COLUMN_PLACE},
+                        null,
+                        null,
+                        null,
+                        null,
+                        null)) {
+                    while (cursor.moveToNext()) {
+                        placeIndex.add(cursor.getString(0), EarthquakeColumns.getPrimaryPlace(cursor.getString(1)));
+                    }
+                }
+                sPlaceIndex = placeIndex;
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+
+            return placeIndex;
+        }
+    }
+
+    /**
+     * 按照查询参数从本地数据库读取地震列表，结果按列保存。
+     */
+    public EarthquakeColumns query(EarthquakeQuery query) {
+        String orderBy = EarthquakeQuery.ORDER_BY_MAGNITUDE.equals(query.getOrderBy())
+                ? EarthquakeEntry.COLUMN_MAG + " DESC"
+                : EarthquakeEntry.COLUMN_TIME + " DESC";
+
+        SQLiteDatabase db = mDbHelper.getReadableDatabase();
+        try (Cursor cursor = db.query(EarthquakeEntry.TABLE_NAME,
+                PROJECTION,
+                EarthquakeEntry.COLUMN_MAG + " >= ?",
+                new String[]{String.valueOf(query.getMinMagnitude())},
+                null,
+                null,
+                orderBy,
+                String.valueOf(query.getLimit()))) {
+            return readEarthquakes(cursor);
+        }
+    }
+
+    /**
+     * 读取震级不小于 minMagnitude 的所有地震，按发生时间从近到远排序。
+     */
+    public EarthquakeColumns queryAll(double minMagnitude) {
+        SQLiteDatabase db = mDbHelper.getReadableDatabase();
+        try (Cursor cursor = db.query(EarthquakeEntry.TABLE_NAME,
+                PROJECTION,
+                EarthquakeEntry.COLUMN_MAG + " >= ?",
+                new String[]{String.valueOf(minMagnitude)},
+                null,
+                null,
+                EarthquakeEntry.COLUMN_TIME + " DESC")) {
+            return readEarthquakes(cursor);
+        }
+    }
+
+    /**
+     * 将游标中的所有行读入 {@link EarthquakeColumns}
+     */
+    private static EarthquakeColumns readEarthquakes(Cursor cursor) {
+        EarthquakeColumns earthquakes = new EarthquakeColumns(cursor.getCount());
+        while (cursor.moveToNext()) {
+            earthquakes.add(
+                    cursor.getString(0),
+                    cursor.getDouble(1),
+                    cursor.getString(2),
+                    cursor.getLong(3),
+                    cursor.getLong(4),
+                    cursor.getString(5),
+                    getNullableDouble(cursor, 6),
+                    getNullableDouble(cursor, 7),
+                    getNullableDouble(cursor, 8));
+        }
+        return earthquakes;
+    }
+
+    /**
+     * 读取可能为 NULL 的 REAL 列，NULL 返回 NaN
+     */
+    private static double getNullableDouble(Cursor cursor, int index) {
+        return cursor.isNull(index) ? Double.NaN : cursor.getDouble(index);
+    }
+
+    /**
+     * 绑定可能未知的数值，NaN 绑定为 NULL
+     */
+    private static void bindNullableDouble(SQLiteStatement statement, int index, double value) {
+        if (Double.isNaN(value)) {
+            statement.bindNull(index);
+        } else {
+            statement.bindDouble(index, value);
+        }
+    }
+
+    private static void bindNullableString(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.quakereport.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+import com.example.quakereport.R;
+
+/**
+ * “我附近”过滤条件：用户的位置和搜索半径。
+ * <p>
+ * 半径为 {@link #ANY_DISTANCE} 时不限制距离，地震按与用户的距离从近到远排序；
+ * 否则只保留距离不超过半径的地震，仍按查询的排序方式排序。
+ **/
+public class LocationFilter {
+
+    /**
+     * 不限制距离，按距离从近到远排序
+     */
+    public static final double ANY_DISTANCE = Double.POSITIVE_INFINITY;
+
+    private final double latitude;
+
+    private final double longitude;
+
+    private final double radiusKm;
+
+    public LocationFilter(double latitude, double longitude, double radiusKm) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.radiusKm = radiusKm;
+    }
+
+    /**
+     * 读取“我附近”的偏好设置，返回搜索半径（公里）或 {@link #ANY_DISTANCE}；
+     * 关闭或无效的设置值返回 0
+     */
+    public static double readRadiusKm(Context context) {
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(context);
+        String nearMe = sharedPrefs.getString(context.getString(
+                R.string.settings_near_me_key),
+                context.getString(R.string.settings_near_me_default));
+        if (context.getString(R.string.settings_near_me_nearest_value).equals(nearMe)) {
+            return ANY_DISTANCE;
+        }
+        try {
+            return Math.max(0, Double.parseDouble(nearMe));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public double getRadiusKm() {
+        return radiusKm;
+    }
+
+    /**
+     * 返回是否不限制距离、按距离排序
+     */
+    public boolean isNearestFirst() {
+        return radiusKm == ANY_DISTANCE;
+    }
+}
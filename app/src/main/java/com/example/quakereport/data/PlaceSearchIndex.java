@@ -0,0 +1,298 @@
+package com.example.quakereport.data;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * 地震位置的倒排索引，用于边输入边搜索。
+ * <p>
+ * 主要位置（如 "Ridgecrest, CA"）被规范化为小写、去掉重音符号的词（"ridgecrest"、"ca"），
+ * 每个词对应一个按编号排序的事件列表。词典按字典序保存，因此前缀相同的词是连续的一段，
+ * 查询 "ridge" 只需把这一段的事件列表合并到一个 {@link BitSet} 中；
+ * 查询中的每个词都作为前缀匹配，结果为各个词匹配结果的交集。
+ * <p>
+ * 新增或位置有变化的事件通过 {@link #add(String, String)} 逐个更新，不需要重建索引；
+ * 查询结果通过 {@link Result#getIds()} 只遍历匹配的事件。
+ * 本类不是线程安全的。
+ **/
+public class PlaceSearchIndex {
+
+    /**
+     * 分词时的分隔符：字母和数字以外的所有字符
+     */
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * 规范化后需要去掉的重音符号
+     */
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    /**
+     * 编号个数超过已索引事件个数的该倍数时重新编号，避免长期增量更新后编号和结果集合无限增长
+     */
+    private static final int MAX_DOCUMENT_RATIO = 2;
+
+    /**
+     * 搜索结果：匹配的事件集合
+     */
+    public class Result {
+
+        private final BitSet documents;
+
+        private Result(BitSet documents) {
+            this.documents = documents;
+        }
+
+        /**
+         * 返回给定的事件是否匹配
+         */
+        public boolean contains(String id) {
+            Integer document = documentIds.get(id);
+            return document != null && documents.get(document);
+        }
+
+        /**
+         * 返回匹配的事件个数
+         */
+        public int size() {
+            return documents.cardinality();
+        }
+
+        /**
+         * 返回匹配的事件 ID。只遍历匹配的事件编号，开销与匹配个数成正比，与已索引的事件个数无关。
+         * 索引被修改后结果不再有效，应在修改前读取。
+         */
+        public String[] getIds() {
+            String[] ids = new String[documents.cardinality()];
+            int count = 0;
+            for (int document = documents.nextSetBit(0); document >= 0;
+                 document = documents.nextSetBit(document + 1)) {
+                ids[count++] = idsByDocument[document];
+            }
+            return ids;
+        }
+    }
+
+    /**
+     * 词 → 包含该词的事件编号（升序）
+     */
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+
+    /**
+     * 事件 ID → 事件编号。编号按索引的先后顺序分配，因此新事件总是追加在事件列表的末尾
+     */
+    private final Map<String, Integer> documentIds = new HashMap<>();
+
+    /**
+     * 事件编号 → 事件 ID，已删除的编号为 null
+     */
+    private String[] idsByDocument = new String[16];
+
+    /**
+     * 事件编号 → 已索引的位置和词，用于判断位置是否有变化以及删除旧的词
+     */
+    private final Map<Integer, String> places = new HashMap<>();
+    private final Map<Integer, String[]> tokens = new HashMap<>();
+
+    private int nextDocument;
+
+    /**
+     * 返回已索引的事件个数
+     */
+    public int size() {
+        return places.size();
+    }
+
+    /**
+     * 索引一个事件的位置。事件已索引且位置不变时不做任何事；位置有变化时先删除旧的词。
+     *
+     * @param id    USGS 事件 ID，为 null 时忽略
+     * @param place 要搜索的位置（通常是主要位置）
+     */
+    public void add(String id, String place) {
+        if (id == null) {
+            return;
+        }
+
+        Integer document = documentIds.get(id);
+        if (document != null) {
+            String indexedPlace = places.get(document);
+            if (indexedPlace == null ? place == null : indexedPlace.equals(place)) {
+                return;
+            }
+            remove(id);
+        }
+
+        if (nextDocument >= idsByDocument.length && nextDocument > MAX_DOCUMENT_RATIO * size()) {
+            compact();
+        }
+
+        // 重新分配一个更大的编号，使每个事件列表保持升序
+        document = nextDocument++;
+        String[] placeTokens = tokenize(place);
+        if (document == idsByDocument.length) {
+            idsByDocument = Arrays.copyOf(idsByDocument, document * 2);
+        }
+        idsByDocument[document] = id;
+        documentIds.put(id, document);
+        places.put(document, place);
+        tokens.put(document, placeTokens);
+        for (String token : placeTokens) {
+            Postings tokenPostings = postings.get(token);
+            if (tokenPostings == null) {
+                tokenPostings = new Postings();
+                postings.put(token, tokenPostings);
+            }
+            tokenPostings.append(document);
+        }
+    }
+
+    /**
+     * 从索引中删除一个事件
+     */
+    public void remove(String id) {
+        Integer document = documentIds.remove(id);
+        if (document == null) {
+            return;
+        }
+
+        places.remove(document);
+        idsByDocument[document] = null;
+        for (String token : tokens.remove(document)) {
+            Postings tokenPostings = postings.get(token);
+            if (tokenPostings != null && tokenPostings.remove(document) && tokenPostings.size == 0) {
+                postings.remove(token);
+            }
+        }
+    }
+
+    /**
+     * 按原有顺序为所有事件重新分配连续的编号
+     */
+    private void compact() {
+        int count = 0;
+        String[] ids = new String[size()];
+        String[] indexedPlaces = new String[size()];
+        for (int document = 0; document < nextDocument; document++) {
+            if (idsByDocument[document] != null) {
+                ids[count] = idsByDocument[document];
+                indexedPlaces[count] = places.get(document);
+                count++;
+            }
+        }
+
+        clear();
+        for (int i = 0; i < count; i++) {
+            add(ids[i], indexedPlaces[i]);
+        }
+    }
+
+    /**
+     * 清空索引
+     */
+    public void clear() {
+        postings.clear();
+        documentIds.clear();
+        places.clear();
+        tokens.clear();
+        Arrays.fill(idsByDocument, 0, nextDocument, null);
+        nextDocument = 0;
+    }
+
+    /**
+     * 返回位置与查询匹配的事件：查询中的每个词都必须是位置中某个词的前缀。
+     * 查询中没有任何词时返回 null，表示不过滤。
+     */
+    public Result search(String query) {
+        String[] queryTokens = tokenize(query);
+        if (queryTokens.length == 0) {
+            return null;
+        }
+
+        BitSet result = null;
+        for (String token : queryTokens) {
+            BitSet match = prefixMatch(token);
+            if (result == null) {
+                result = match;
+            } else {
+                result.and(match);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return new Result(result);
+    }
+
+    /**
+     * 返回包含以 prefix 开头的词的所有事件编号
+     */
+    private BitSet prefixMatch(String prefix) {
+        BitSet documents = new BitSet(nextDocument);
+        for (Postings tokenPostings : postings.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+            for (int i = 0; i < tokenPostings.size; i++) {
+                documents.set(tokenPostings.documents[i]);
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * 把文字拆分为规范化后的词（小写、去掉重音符号），重复的词只保留一个
+     */
+    private static String[] tokenize(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+
+        String normalized = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        Set<String> result = new HashSet<>();
+        for (String token : TOKEN_SEPARATOR.split(normalized)) {
+            if (!token.isEmpty()) {
+                result.add(token);
+            }
+        }
+        return result.toArray(new String[0]);
+    }
+
+    /**
+     * 一个词的事件列表，按编号升序保存在 int 数组中
+     */
+    private static class Postings {
+        private int[] documents = new int[4];
+        private int size;
+
+        /**
+         * 追加一个比已有编号都大的编号
+         */
+        void append(int document) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+            }
+            documents[size++] = document;
+        }
+
+        /**
+         * 删除一个编号，返回是否存在
+         */
+        boolean remove(int document) {
+            int index = Arrays.binarySearch(documents, 0, size, document);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(documents, index + 1, documents, index, size - index - 1);
+            size--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.quakereport.detail;
+
+/**
+ * 启动 {@link EarthquakeDetailActivity} 的 intent 参数
+ **/
+public class DetailIntentContract {
+    public final static String S_EARTHQUAKE_ID = "EARTHQUAKE_ID";
+    public final static String S_EARTHQUAKE_PLACE = "EARTHQUAKE_PLACE";
+    public final static String S_EARTHQUAKE_URI = "EARTHQUAKE_URI";
+    public final static String S_EARTHQUAKE_MAG = "EARTHQUAKE_MAG";
+    public final static String S_EARTHQUAKE_TIME = "EARTHQUAKE_TIME";
+}
@@ -0,0 +1,166 @@
+package com.example.quakereport.detail;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.quakereport.Earthquake;
+import com.example.quakereport.EarthquakeAdapter;
+import com.example.quakereport.EarthquakeItem;
+import com.example.quakereport.util.QueryUtilsPlus;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预测用户可能点击的地震，提前获取其详情，使 {@link EarthquakeDetailActivity} 打开时几乎立即显示。
+ * <p>
+ * 列表停止滚动并停留 {@link #LINGER_MILLIS} 后，取可见列表项中震级最大的 {@link #MAX_PREFETCH} 个，
+ * 在后台依次调用 {@link QueryUtilsPlus#fetchEarthquakeDetail}，结果保存在其按事件 ID 的缓存中。
+ * 新的预测会替换尚未开始的旧预测。只在不按流量计费的网络上预取。
+ */
+public class DetailPrefetcher extends RecyclerView.OnScrollListener {
+
+    /**
+     * 列表停止滚动后停留多久才算用户在浏览这些列表项
+     */
+    private static final long LINGER_MILLIS = 500;
+
+    /**
+     * 每次预测最多预取的个数
+     */
+    private static final int MAX_PREFETCH = 3;
+
+    /**
+     * 依次执行预取的后台线程，空闲时回收
+     */
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(1, 1,
+            30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+
+    static {
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 尚未开始预取的事件 ID
+     */
+    private static final Deque<String> sPending = new ArrayDeque<>();
+
+    private final Context context;
+
+    private final LinearLayoutManager layoutManager;
+
+    private final EarthquakeAdapter adapter;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private final Runnable predict = new Runnable() {
+        @Override
+        public void run() {
+            prefetchVisible();
+        }
+    };
+
+    public DetailPrefetcher(Context context, LinearLayoutManager layoutManager, EarthquakeAdapter adapter) {
+        this.context = context.getApplicationContext();
+        this.layoutManager = layoutManager;
+        this.adapter = adapter;
+    }
+
+    /**
+     * 返回当前是否适合预取：有网络连接且不按流量计费
+     */
+    public static boolean isPrefetchAllowed(Context context) {
+        ConnectivityManager connMgr = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo networkInfo = connMgr.getActiveNetworkInfo();
+        return networkInfo != null && networkInfo.isConnected() && !connMgr.isActiveNetworkMetered();
+    }
+
+    @Override
+    public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        handler.removeCallbacks(predict);
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            handler.postDelayed(predict, LINGER_MILLIS);
+        }
+    }
+
+    /**
+     * 列表内容变化（如加载完成）后调用，用户停留在当前位置时同样会预取
+     */
+    public void onListChanged() {
+        handler.removeCallbacks(predict);
+        handler.postDelayed(predict, LINGER_MILLIS);
+    }
+
+    /**
+     * 停止预测，并丢弃尚未开始的预取
+     */
+    public void cancel() {
+        handler.removeCallbacks(predict);
+        synchronized (sPending) {
+            sPending.clear();
+        }
+    }
+
+    private void prefetchVisible() {
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        List<EarthquakeItem> items = adapter.getCurrentList();
+        if (first == RecyclerView.NO_POSITION || last >= items.size() || !isPrefetchAllowed(context)) {
+            return;
+        }
+
+        List<Earthquake> visible = new ArrayList<>(last - first + 1);
+        for (int i = first; i <= last; i++) {
+            Earthquake earthquake = items.get(i).getEarthquake();
+            if (earthquake.getId() != null) {
+                visible.add(earthquake);
+            }
+        }
+        Collections.sort(visible, new Comparator<Earthquake>() {
+            @Override
+            public int compare(Earthquake left, Earthquake right) {
+                return Double.compare(right.getMag(), left.getMag());
+            }
+        });
+
+        synchronized (sPending) {
+            sPending.clear();
+            for (int i = 0; i < visible.size() && i < MAX_PREFETCH; i++) {
+                sPending.add(visible.get(i).getId());
+            }
+            for (int i = 0; i < sPending.size(); i++) {
+                EXECUTOR.execute(PREFETCH_NEXT);
+            }
+        }
+    }
+
+    /**
+     * 取出下一个尚未开始的事件 ID 并预取，已被替换的旧预测不会执行
+     */
+    private static final Runnable PREFETCH_NEXT = new Runnable() {
+        @Override
+        public void run() {
+            String eventId;
+            synchronized (sPending) {
+                eventId = sPending.pollFirst();
+            }
+            if (eventId != null) {
+                QueryUtilsPlus.fetchEarthquakeDetail(eventId, null);
+            }
+        }
+    };
+}
@@ -0,0 +1,195 @@
+package com.example.quakereport.detail;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * USGS 单个事件 detail GeoJSON 中用于详情页的字段。
+ * 数值字段未知时为 NaN（浮点数）或 -1（整数），字符串字段未知时为 null。
+ **/
+public class EarthquakeDetail {
+
+    /**
+     * 一个震级测定结果（来自 origin / phase-data 等产品）
+     */
+    public static class Magnitude {
+
+        private final String type;
+
+        private final double value;
+
+        private final String source;
+
+        public Magnitude(String type, double value, String source) {
+            this.type = type;
+            this.value = value;
+            this.source = source;
+        }
+
+        /**
+         * 返回震级类型（如 "mww"、"mb"）
+         */
+        public String getType() {
+            return type;
+        }
+
+        public double getValue() {
+            return value;
+        }
+
+        /**
+         * 返回给出该震级的台网（如 "us"），未知时为 null
+         */
+        public String getSource() {
+            return source;
+        }
+    }
+
+    private final String id;
+    private final String title;
+    private final double mag;
+    private final String magType;
+    private final long time;
+    private final double longitude;
+    private final double latitude;
+    private final double depth;
+    private final int felt;
+    private final double cdi;
+    private final double mmi;
+    private final String alert;
+    private final boolean tsunami;
+    private final int significance;
+    private final String status;
+    private final String url;
+    private final List<Magnitude> magnitudes;
+
+    public EarthquakeDetail(String id, String title, double mag, String magType, long time,
+                            double longitude, double latitude, double depth, int felt, double cdi, double mmi,
+                            String alert, boolean tsunami, int significance, String status, String url,
+                            List<Magnitude> magnitudes) {
+        this.id = id;
+        this.title = title;
+        this.mag = mag;
+        this.magType = magType;
+        this.time = time;
+        this.longitude = longitude;
+        this.latitude = latitude;
+        this.depth = depth;
+        this.felt = felt;
+        this.cdi = cdi;
+        this.mmi = mmi;
+        this.alert = alert;
+        this.tsunami = tsunami;
+        this.significance = significance;
+        this.status = status;
+        this.url = url;
+        this.magnitudes = Collections.unmodifiableList(magnitudes);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * 返回事件标题（如 "M 6.1 - 10 km SW of Somewhere"）
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * 返回首选震级
+     */
+    public double getMag() {
+        return mag;
+    }
+
+    /**
+     * 返回首选震级的类型
+     */
+    public String getMagType() {
+        return magType;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * 返回震源深度（千米）
+     */
+    public double getDepth() {
+        return depth;
+    }
+
+    /**
+     * 返回 "Did You Feel It?" 的有感报告数
+     */
+    public int getFelt() {
+        return felt;
+    }
+
+    /**
+     * 返回由有感报告得出的最大烈度（CDI）
+     */
+    public double getCdi() {
+        return cdi;
+    }
+
+    /**
+     * 返回 ShakeMap 给出的最大仪器烈度（MMI）
+     */
+    public double getMmi() {
+        return mmi;
+    }
+
+    /**
+     * 返回 PAGER 警报级别（"green"、"yellow"、"orange"、"red"），没有警报时为 null
+     */
+    public String getAlert() {
+        return alert;
+    }
+
+    /**
+     * 返回是否位于可能引发海啸的海域（并不表示已发生海啸）
+     */
+    public boolean isTsunami() {
+        return tsunami;
+    }
+
+    /**
+     * 返回 USGS 的重要性评分（0 - 1000 左右）
+     */
+    public int getSignificance() {
+        return significance;
+    }
+
+    /**
+     * 返回审核状态（"automatic"、"reviewed"）
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * 返回完整事件网页的 URL
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * 返回各个产品给出的震级，不含重复的类型和值
+     */
+    public List<Magnitude> getMagnitudes() {
+        return magnitudes;
+    }
+}
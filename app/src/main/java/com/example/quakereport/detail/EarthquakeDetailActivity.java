@@ -0,0 +1,237 @@
+package com.example.quakereport.detail;
+
+import android.content.Intent;
+import android.graphics.drawable.GradientDrawable;
+import android.os.Bundle;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
+import androidx.loader.app.LoaderManager;
+import androidx.loader.content.Loader;
+
+import com.example.quakereport.EarthquakeFormatter;
+import com.example.quakereport.R;
+import com.example.quakereport.web.EventPageCache;
+import com.example.quakereport.web.WebActivity;
+import com.example.quakereport.web.WebIntentContract;
+import com.example.quakereport.web.WebViewPool;
+
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * 原生的地震详情页面，显示 USGS 单个事件 detail GeoJSON 中的主要字段。
+ * <p>
+ * 列表项中已有的震级、位置和时间在打开时立即显示，其余字段加载完成后填充。
+ * 完整的 USGS 事件网页作为菜单中的后备选项，由 {@link WebActivity} 打开；
+ * 打开本页面后即预热 WebView 并预取该网页，使其打开时几乎不需要等待。
+ */
+public class EarthquakeDetailActivity extends AppCompatActivity implements LoaderManager.LoaderCallbacks<EarthquakeDetail> {
+
+    /**
+     * 详情 loader ID 的常量值
+     */
+    private static final int DETAIL_LOADER_ID = 1;
+
+
+    /**
+     * 日期和时间格式（即 "Mar 3, 1984 4:30 PM"）
+     */
+    private final SimpleDateFormat dateTimeFormat = new SimpleDateFormat("LLL dd, yyyy h:mm a");
+
+    /**
+     * 仅显示一位小数的震级格式（如“3.2”）
+     */
+    private final DecimalFormat magnitudeFormat = new DecimalFormat("0.0");
+
+    private String eventId;
+    private String place;
+    private String uri;
+
+    private TextView magnitudeView;
+    private TextView titleView;
+    private TextView timeView;
+    private View loadSpinner;
+    private View errorView;
+    private View table;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_detail);
+
+        Intent intent = getIntent();
+        eventId = intent.getStringExtra(DetailIntentContract.S_EARTHQUAKE_ID);
+        place = intent.getStringExtra(DetailIntentContract.S_EARTHQUAKE_PLACE);
+        uri = intent.getStringExtra(DetailIntentContract.S_EARTHQUAKE_URI);
+        setTitle(place);
+
+        magnitudeView = findViewById(R.id.detail_mag_text);
+        titleView = findViewById(R.id.detail_title_text);
+        timeView = findViewById(R.id.detail_time_text);
+        loadSpinner = findViewById(R.id.detail_loading_spinner);
+        errorView = findViewById(R.id.detail_error_text);
+        table = findViewById(R.id.detail_table);
+
+        // 列表项中已有的字段立即显示
+        showHeader(intent.getDoubleExtra(DetailIntentContract.S_EARTHQUAKE_MAG, 0), place,
+                intent.getLongExtra(DetailIntentContract.S_EARTHQUAKE_TIME, 0));
+
+        getSupportLoaderManager().initLoader(DETAIL_LOADER_ID, null, this);
+
+        // 用户可能接着打开完整网页：在不计流量的网络上预取网页，并在空闲时预热 WebView。
+        // 其他情况下不预热，打开网页时再创建 WebView
+        if (DetailPrefetcher.isPrefetchAllowed(this)) {
+            WebViewPool.prewarm(this);
+            EventPageCache.init(this);
+            EventPageCache.prefetch(uri);
+        }
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.detail, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_open_full_page) {
+            openFullPage();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    @NonNull
+    @Override
+    public Loader<EarthquakeDetail> onCreateLoader(int id, @Nullable Bundle args) {
+        return new EarthquakeDetailLoader(this, eventId);
+    }
+
+    @Override
+    public void onLoadFinished(@NonNull Loader<EarthquakeDetail> loader, EarthquakeDetail detail) {
+        loadSpinner.setVisibility(View.GONE);
+        if (detail == null) {
+            errorView.setVisibility(View.VISIBLE);
+            return;
+        }
+        errorView.setVisibility(View.GONE);
+        table.setVisibility(View.VISIBLE);
+
+        if (detail.getUrl() != null) {
+            uri = detail.getUrl();
+        }
+        if (!Double.isNaN(detail.getMag())) {
+            showHeader(detail.getMag(), detail.getTitle() != null ? detail.getTitle() : place, detail.getTime());
+        }
+
+        setText(R.id.detail_magnitudes_text, formatMagnitudes(detail));
+        setText(R.id.detail_depth_text, Double.isNaN(detail.getDepth())
+                ? null : getString(R.string.detail_depth_value, detail.getDepth()));
+        setText(R.id.detail_location_text, formatLocation(detail.getLatitude(), detail.getLongitude()));
+        setText(R.id.detail_felt_text, formatFelt(detail));
+        setText(R.id.detail_mmi_text, Double.isNaN(detail.getMmi())
+                ? null : String.format(Locale.getDefault(), "%.1f", detail.getMmi()));
+        setText(R.id.detail_alert_text, detail.getAlert() == null
+                ? getString(R.string.detail_alert_none) : capitalize(detail.getAlert()));
+        setText(R.id.detail_tsunami_text, getString(detail.isTsunami()
+                ? R.string.detail_tsunami_yes : R.string.detail_tsunami_no));
+        setText(R.id.detail_status_text, detail.getStatus() == null
+                ? null : getString(R.string.detail_status_value, capitalize(detail.getStatus()),
+                detail.getSignificance()));
+    }
+
+    @Override
+    public void onLoaderReset(@NonNull Loader<EarthquakeDetail> loader) {
+    }
+
+    /**
+     * 显示标题区域的震级（及其颜色）、位置和时间
+     */
+    private void showHeader(double mag, String title, long time) {
+        magnitudeView.setText(magnitudeFormat.format(mag));
+        GradientDrawable magnitudeCircle = (GradientDrawable) magnitudeView.getBackground().mutate();
+        magnitudeCircle.setColor(ContextCompat.getColor(this, EarthquakeFormatter.getMagnitudeColorResourceId(mag)));
+        titleView.setText(title);
+        timeView.setText(time > 0 ? dateTimeFormat.format(new Date(time)) : null);
+    }
+
+    /**
+     * 在 WebView 中打开完整的 USGS 事件网页
+     */
+    private void openFullPage() {
+        if (uri == null) {
+            return;
+        }
+        Intent intent = new Intent(this, WebActivity.class);
+        intent.putExtra(WebIntentContract.S_EARTHQUAKE_URI, uri);
+        intent.putExtra(WebIntentContract.S_EARTHQUAKE_PLACE, place);
+        startActivity(intent);
+    }
+
+    /**
+     * 设置字段的值，未知时显示 "Unknown"
+     */
+    private void setText(int viewId, String value) {
+        TextView view = findViewById(viewId);
+        view.setText(value == null ? getString(R.string.detail_unknown) : value);
+    }
+
+    /**
+     * 每行一个震级，如 "6.1 mww (us)"；没有产品震级时使用首选震级
+     */
+    private String formatMagnitudes(EarthquakeDetail detail) {
+        StringBuilder builder = new StringBuilder();
+        for (EarthquakeDetail.Magnitude magnitude : detail.getMagnitudes()) {
+            if (builder.length() > 0) {
+                builder.append('\n');
+            }
+            builder.append(magnitudeFormat.format(magnitude.getValue())).append(' ').append(magnitude.getType());
+            if (magnitude.getSource() != null) {
+                builder.append(" (").append(magnitude.getSource()).append(')');
+            }
+        }
+        if (builder.length() == 0 && !Double.isNaN(detail.getMag())) {
+            builder.append(magnitudeFormat.format(detail.getMag()));
+            if (detail.getMagType() != null) {
+                builder.append(' ').append(detail.getMagType());
+            }
+        }
+        return builder.length() == 0 ? null : builder.toString();
+    }
+
+    private String formatLocation(double latitude, double longitude) {
+        if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+            return null;
+        }
+        return getString(R.string.detail_location_value,
+                Math.abs(latitude), latitude >= 0 ? "N" : "S",
+                Math.abs(longitude), longitude >= 0 ? "E" : "W");
+    }
+
+    private String formatFelt(EarthquakeDetail detail) {
+        if (detail.getFelt() < 0) {
+            return null;
+        }
+        if (Double.isNaN(detail.getCdi())) {
+            return getString(R.string.detail_felt_value, detail.getFelt());
+        }
+        return getString(R.string.detail_felt_cdi_value, detail.getFelt(), detail.getCdi());
+    }
+
+    private static String capitalize(String value) {
+        if (value.isEmpty()) {
+            return value;
+        }
+        return value.substring(0, 1).toUpperCase(Locale.getDefault()) + value.substring(1);
+    }
+}
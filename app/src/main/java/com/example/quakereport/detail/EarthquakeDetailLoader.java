@@ -0,0 +1,102 @@
+package com.example.quakereport.detail;
+
+import android.content.Context;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+
+import androidx.loader.content.AsyncTaskLoader;
+
+import com.example.quakereport.util.QueryUtilsPlus;
+
+/**
+ * 在后台加载单个事件的 {@link EarthquakeDetail}。
+ * <p>
+ * 结果保存在 loader 中，配置变化后直接交付；加载被取消时中止网络请求。
+ */
+public class EarthquakeDetailLoader extends AsyncTaskLoader<EarthquakeDetail> {
+
+    /**
+     * USGS 事件 ID
+     */
+    private final String eventId;
+
+    /**
+     * 已加载的详情
+     */
+    private EarthquakeDetail detail;
+
+    /**
+     * 正在进行的加载的取消信号，没有加载时为 null
+     */
+    private CancellationSignal cancellationSignal;
+
+    public EarthquakeDetailLoader(Context context, String eventId) {
+        super(context);
+        this.eventId = eventId;
+
+        // 为网络请求启用 HTTP 缓存
+        QueryUtilsPlus.init(context);
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (detail != null) {
+            deliverResult(detail);
+        } else {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        onStopLoading();
+        detail = null;
+    }
+
+    @Override
+    public void deliverResult(EarthquakeDetail data) {
+        detail = data;
+        super.deliverResult(data);
+    }
+
+    @Override
+    public void cancelLoadInBackground() {
+        super.cancelLoadInBackground();
+
+        synchronized (this) {
+            if (cancellationSignal != null) {
+                cancellationSignal.cancel();
+            }
+        }
+    }
+
+    /**
+     * 这位于后台线程上。
+     */
+    @Override
+    public EarthquakeDetail loadInBackground() {
+        CancellationSignal signal;
+        synchronized (this) {
+            if (isLoadInBackgroundCanceled()) {
+                throw new OperationCanceledException();
+            }
+            signal = new CancellationSignal();
+            cancellationSignal = signal;
+        }
+        try {
+            EarthquakeDetail result = QueryUtilsPlus.fetchEarthquakeDetail(eventId, signal);
+            signal.throwIfCanceled();
+            return result;
+        } finally {
+            synchronized (this) {
+                cancellationSignal = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.quakereport.map;
+
+import android.os.Bundle;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.loader.app.LoaderManager;
+import androidx.loader.content.Loader;
+
+import com.example.quakereport.R;
+import com.example.quakereport.data.EarthquakeQuadtree;
+import com.example.quakereport.data.EarthquakeQuery;
+
+/**
+ * 在世界图上显示本地数据库中所有符合最小震级设置的地震，只使用已同步的数据，不访问网络。
+ */
+public class EarthquakeMapActivity extends AppCompatActivity implements LoaderManager.LoaderCallbacks<EarthquakeQuadtree> {
+
+    /**
+     * 地图 loader ID 的常量值
+     */
+    private static final int MAP_LOADER_ID = 1;
+
+
+    private EarthquakeMapView mapView;
+    private TextView countView;
+    private View loadSpinner;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_map);
+
+        mapView = findViewById(R.id.map_view);
+        countView = findViewById(R.id.map_count_text);
+        loadSpinner = findViewById(R.id.map_loading_spinner);
+
+        getSupportLoaderManager().initLoader(MAP_LOADER_ID, null, this);
+    }
+
+    @NonNull
+    @Override
+    public Loader<EarthquakeQuadtree> onCreateLoader(int id, @Nullable Bundle args) {
+        return new EarthquakeMapLoader(this, EarthquakeQuery.fromPreferences(this).getMinMagnitude());
+    }
+
+    @Override
+    public void onLoadFinished(@NonNull Loader<EarthquakeQuadtree> loader, EarthquakeQuadtree quadtree) {
+        loadSpinner.setVisibility(View.GONE);
+        mapView.setQuadtree(quadtree);
+        countView.setText(getString(R.string.map_count, quadtree == null ? 0 : quadtree.size()));
+    }
+
+    @Override
+    public void onLoaderReset(@NonNull Loader<EarthquakeQuadtree> loader) {
+        mapView.setQuadtree(null);
+    }
+}
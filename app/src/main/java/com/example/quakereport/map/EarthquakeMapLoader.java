@@ -0,0 +1,72 @@
+package com.example.quakereport.map;
+
+import android.content.Context;
+
+import androidx.loader.content.AsyncTaskLoader;
+
+import com.example.quakereport.data.EarthquakeColumns;
+import com.example.quakereport.data.EarthquakeQuadtree;
+import com.example.quakereport.data.EarthquakeRepository;
+import com.example.quakereport.util.PerfMetrics;
+
+/**
+ * 在后台从本地数据库读取震级不小于最小震级的所有地震，并构建 {@link EarthquakeQuadtree}。
+ * <p>
+ * 不访问网络；结果保存在 loader 中，配置变化后直接交付。
+ */
+public class EarthquakeMapLoader extends AsyncTaskLoader<EarthquakeQuadtree> {
+
+    private final double minMagnitude;
+
+    private final EarthquakeRepository repository;
+
+    /**
+     * 已构建的四叉树
+     */
+    private EarthquakeQuadtree quadtree;
+
+    public EarthquakeMapLoader(Context context, double minMagnitude) {
+        super(context);
+        this.minMagnitude = minMagnitude;
+        this.repository = new EarthquakeRepository(context);
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (quadtree != null) {
+            deliverResult(quadtree);
+        } else {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        onStopLoading();
+        quadtree = null;
+    }
+
+    @Override
+    public void deliverResult(EarthquakeQuadtree data) {
+        quadtree = data;
+        super.deliverResult(data);
+    }
+
+    /**
+     * 这位于后台线程上。
+     */
+    @Override
+    public EarthquakeQuadtree loadInBackground() {
+        EarthquakeColumns earthquakes = repository.getStore().queryAll(minMagnitude);
+        long startTime = System.nanoTime();
+        EarthquakeQuadtree result = new EarthquakeQuadtree(earthquakes);
+        PerfMetrics.recordIndex(System.nanoTime() - startTime);
+        return result;
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.quakereport.map;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import com.example.quakereport.EarthquakeFormatter;
+import com.example.quakereport.R;
+import com.example.quakereport.data.EarthquakeQuadtree;
+
+/**
+ * 在等距圆柱投影的世界图上绘制震中位置，不依赖需要网络的地图 SDK。
+ * <p>
+ * 每个点使用与列表中震级圆圈相同的颜色分组；相距不到 {@link #CLUSTER_SIZE_DP} 的点由
+ * {@link EarthquakeQuadtree} 聚合为一个圆，圆的大小随事件个数增加，颜色取其中的最大震级，
+ * 并标出事件个数。每一帧绘制的圆的个数只取决于屏幕大小，与事件总数无关，
+ * 因此即使有几万个事件，拖动和缩放时仍能保持流畅。绘制时不分配对象。
+ * <p>
+ * 单指拖动平移，双指缩放，双击放大一倍。
+ */
+public class EarthquakeMapView extends View implements EarthquakeQuadtree.Visitor {
+
+    /**
+     * 屏幕上的聚合尺寸：四叉树中小于该尺寸的节点绘制为一个聚合
+     */
+    private static final float CLUSTER_SIZE_DP = 24;
+
+    /**
+     * 单个事件的半径，以及聚合的最大半径
+     */
+    private static final float POINT_RADIUS_DP = 3;
+    private static final float MAX_CLUSTER_RADIUS_DP = 14;
+
+    /**
+     * 聚合的事件个数每增加一倍，半径增加的大小
+     */
+    private static final float CLUSTER_RADIUS_STEP_DP = 1.5f;
+
+    /**
+     * 半径不小于该值的聚合才标出事件个数
+     */
+    private static final float MIN_LABEL_RADIUS_DP = 8;
+
+    /**
+     * 经纬线之间的最小间隔，放大时使用更密的经纬线
+     */
+    private static final float MIN_GRATICULE_SPACING_DP = 48;
+
+    /**
+     * 可选的经纬线间隔（度）
+     */
+    private static final int[] GRATICULE_STEPS = {30, 10, 5, 1};
+
+    /**
+     * 最大的缩放比例（每度的像素数，约 100 米一个像素）
+     */
+    private static final float MAX_PIXELS_PER_DEGREE_DP = 1000;
+
+    private final float density;
+
+    /**
+     * 换算为像素的尺寸
+     */
+    private final float pointRadius;
+    private final float maxClusterRadius;
+    private final float clusterRadiusStep;
+    private final float minLabelRadius;
+
+    /**
+     * 使标签在圆中垂直居中的基线偏移
+     */
+    private final float labelOffsetY;
+
+    private final Paint worldPaint = new Paint();
+    private final Paint graticulePaint = new Paint();
+    private final Paint pointPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    /**
+     * 用于解析震级圆圈的颜色
+     */
+    private final EarthquakeFormatter formatter;
+
+    private final ScaleGestureDetector scaleDetector;
+    private final GestureDetector gestureDetector;
+
+    /**
+     * 事件个数标签的字符缓冲区，避免每帧创建字符串
+     */
+    private final char[] labelChars = new char[10];
+
+    private EarthquakeQuadtree quadtree;
+
+    /**
+     * 视图中心的经纬度和缩放比例（每度的像素数）
+     */
+    private float centerLongitude;
+    private float centerLatitude;
+    private float pixelsPerDegree;
+
+    /**
+     * 恰好显示整个世界时的缩放比例，也是最小的缩放比例
+     */
+    private float minPixelsPerDegree;
+
+    /**
+     * 正在绘制的画布，只在 {@link #onDraw(Canvas)} 中有效
+     */
+    private Canvas currentCanvas;
+
+    /**
+     * 经纬度 (0, 0) 在屏幕上的位置，每帧绘制前更新
+     */
+    private float originX;
+    private float originY;
+
+    public EarthquakeMapView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        density = getResources().getDisplayMetrics().density;
+        formatter = new EarthquakeFormatter(context);
+
+        setBackgroundColor(ContextCompat.getColor(context, R.color.map_background));
+        worldPaint.setColor(ContextCompat.getColor(context, R.color.map_world));
+        graticulePaint.setColor(ContextCompat.getColor(context, R.color.map_graticule));
+        graticulePaint.setStrokeWidth(density);
+        labelPaint.setColor(ContextCompat.getColor(context, R.color.white));
+        labelPaint.setTextAlign(Paint.Align.CENTER);
+        labelPaint.setTextSize(getResources().getDimension(R.dimen.sp_10));
+        labelPaint.setFakeBoldText(true);
+
+        pointRadius = POINT_RADIUS_DP * density;
+        maxClusterRadius = MAX_CLUSTER_RADIUS_DP * density;
+        clusterRadiusStep = CLUSTER_RADIUS_STEP_DP * density;
+        minLabelRadius = MIN_LABEL_RADIUS_DP * density;
+        Paint.FontMetrics fontMetrics = labelPaint.getFontMetrics();
+        labelOffsetY = -(fontMetrics.ascent + fontMetrics.descent) / 2;
+
+        scaleDetector = new ScaleGestureDetector(context, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScale(ScaleGestureDetector detector) {
+                zoomBy(detector.getScaleFactor(), detector.getFocusX(), detector.getFocusY());
+                return true;
+            }
+        });
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) {
+                return true;
+            }
+
+            @Override
+            public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+                centerLongitude += distanceX / pixelsPerDegree;
+                centerLatitude -= distanceY / pixelsPerDegree;
+                clampViewport();
+                invalidate();
+                return true;
+            }
+
+            @Override
+            public boolean onDoubleTap(MotionEvent e) {
+                zoomBy(2, e.getX(), e.getY());
+                return true;
+            }
+        });
+    }
+
+    /**
+     * 设置要绘制的事件，为 null 时只绘制世界图
+     */
+    public void setQuadtree(EarthquakeQuadtree quadtree) {
+        this.quadtree = quadtree;
+        invalidate();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        minPixelsPerDegree = Math.min(w / 360f, h / 180f);
+        if (pixelsPerDegree < minPixelsPerDegree) {
+            pixelsPerDegree = minPixelsPerDegree;
+        }
+        clampViewport();
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        scaleDetector.onTouchEvent(event);
+        if (!scaleDetector.isInProgress()) {
+            gestureDetector.onTouchEvent(event);
+        }
+        return true;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (pixelsPerDegree <= 0) {
+            return;
+        }
+
+        originX = getWidth() / 2f - centerLongitude * pixelsPerDegree;
+        originY = getHeight() / 2f + centerLatitude * pixelsPerDegree;
+        float minLongitude = toLongitude(0);
+        float maxLongitude = toLongitude(getWidth());
+        float minLatitude = toLatitude(getHeight());
+        float maxLatitude = toLatitude(0);
+
+        canvas.drawRect(toX(-180), toY(90), toX(180), toY(-90), worldPaint);
+        drawGraticule(canvas, minLongitude, minLatitude, maxLongitude, maxLatitude);
+
+        if (quadtree != null) {
+            // 扩大查询范围，使中心在屏幕外的聚合的可见部分也被绘制
+            float margin = maxClusterRadius / pixelsPerDegree;
+            currentCanvas = canvas;
+            quadtree.query(minLongitude - margin, minLatitude - margin, maxLongitude + margin, maxLatitude + margin,
+                    CLUSTER_SIZE_DP * density / pixelsPerDegree, this);
+            currentCanvas = null;
+        }
+    }
+
+    @Override
+    public void visit(float longitude, float latitude, int count, float maxMagnitude) {
+        float x = toX(longitude);
+        float y = toY(latitude);
+        float radius = pointRadius;
+        if (count > 1) {
+            radius = Math.min(maxClusterRadius,
+                    pointRadius + clusterRadiusStep * (31 - Integer.numberOfLeadingZeros(count)));
+        }
+
+        pointPaint.setColor(formatter.getMagnitudeColor(maxMagnitude));
+        currentCanvas.drawCircle(x, y, radius, pointPaint);
+        if (count > 1 && radius >= minLabelRadius) {
+            int length = formatCount(count);
+            currentCanvas.drawText(labelChars, labelChars.length - length, length, x, y + labelOffsetY, labelPaint);
+        }
+    }
+
+    /**
+     * 绘制可见范围内的经线和纬线，间隔随缩放比例变化
+     */
+    private void drawGraticule(Canvas canvas, float minLongitude, float minLatitude,
+                               float maxLongitude, float maxLatitude) {
+        int step = GRATICULE_STEPS[0];
+        for (int candidate : GRATICULE_STEPS) {
+            if (candidate * pixelsPerDegree >= MIN_GRATICULE_SPACING_DP * density) {
+                step = candidate;
+            }
+        }
+
+        float top = toY(Math.min(90, maxLatitude));
+        float bottom = toY(Math.max(-90, minLatitude));
+        for (int longitude = (int) Math.ceil(Math.max(-180, minLongitude) / step) * step;
+             longitude <= Math.min(180, maxLongitude); longitude += step) {
+            float x = toX(longitude);
+            canvas.drawLine(x, top, x, bottom, graticulePaint);
+        }
+
+        float left = toX(Math.max(-180, minLongitude));
+        float right = toX(Math.min(180, maxLongitude));
+        for (int latitude = (int) Math.ceil(Math.max(-90, minLatitude) / step) * step;
+             latitude <= Math.min(90, maxLatitude); latitude += step) {
+            float y = toY(latitude);
+            canvas.drawLine(left, y, right, y, graticulePaint);
+        }
+    }
+
+    /**
+     * 以屏幕上的 (focusX, focusY) 为中心缩放，该点下的经纬度保持不变
+     */
+    private void zoomBy(float factor, float focusX, float focusY) {
+        float focusLongitude = centerLongitude + (focusX - getWidth() / 2f) / pixelsPerDegree;
+        float focusLatitude = centerLatitude - (focusY - getHeight() / 2f) / pixelsPerDegree;
+
+        pixelsPerDegree = Math.max(minPixelsPerDegree,
+                Math.min(MAX_PIXELS_PER_DEGREE_DP * density, pixelsPerDegree * factor));
+
+        centerLongitude = focusLongitude - (focusX - getWidth() / 2f) / pixelsPerDegree;
+        centerLatitude = focusLatitude + (focusY - getHeight() / 2f) / pixelsPerDegree;
+        clampViewport();
+        invalidate();
+    }
+
+    /**
+     * 限制视图中心，使世界图尽量填满视图；整个方向都可见时居中
+     */
+    private void clampViewport() {
+        if (pixelsPerDegree <= 0) {
+            return;
+        }
+        float halfWidth = getWidth() / 2f / pixelsPerDegree;
+        float halfHeight = getHeight() / 2f / pixelsPerDegree;
+        centerLongitude = halfWidth >= 180 ? 0 : Math.max(-180 + halfWidth, Math.min(180 - halfWidth, centerLongitude));
+        centerLatitude = halfHeight >= 90 ? 0 : Math.max(-90 + halfHeight, Math.min(90 - halfHeight, centerLatitude));
+    }
+
+    /**
+     * 把正整数从右向左写入 {@link #labelChars}
+     *
+     * @return 写入的字符个数
+     */
+    private int formatCount(int count) {
+        int position = labelChars.length;
+        do {
+            labelChars[--position] = (char) ('0' + count % 10);
+            count /= 10;
+        } while (count > 0);
+        return labelChars.length - position;
+    }
+
+    private float toX(float longitude) {
+        return originX + longitude * pixelsPerDegree;
+    }
+
+    private float toY(float latitude) {
+        return originY - latitude * pixelsPerDegree;
+    }
+
+    private float toLongitude(float x) {
+        return (x - originX) / pixelsPerDegree;
+    }
+
+    private float toLatitude(float y) {
+        return (originY - y) / pixelsPerDegree;
+    }
+}
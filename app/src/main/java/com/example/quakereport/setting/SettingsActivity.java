@@ -36,6 +36,22 @@ public class SettingsActivity extends AppCompatActivity {
             // 列表中显示的地震个数偏好
             Preference limit = findPreference(getString(R.string.settings_limit_key));
             bindPreferenceSummaryToValue(limit);
+
+            // USGS 响应格式偏好
+            Preference format = findPreference(getString(R.string.settings_format_key));
+            bindPreferenceSummaryToValue(format);
+
+            // 只显示我附近的地震的偏好
+            Preference nearMe = findPreference(getString(R.string.settings_near_me_key));
+            bindPreferenceSummaryToValue(nearMe);
+
+            // 预取下一页的距离偏好
+            Preference prefetchDistance = findPreference(getString(R.string.settings_prefetch_distance_key));
+            bindPreferenceSummaryToValue(prefetchDistance);
+
+            // 实时模式的轮询间隔偏好
+            Preference liveInterval = findPreference(getString(R.string.settings_live_interval_key));
+            bindPreferenceSummaryToValue(liveInterval);
         }
 
         private void bindPreferenceSummaryToValue(Preference preference) {
@@ -0,0 +1,58 @@
+package com.example.quakereport.sync;
+
+import android.content.Context;
+
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 调度 {@link EarthquakeSyncWorker} 的周期性后台同步。
+ * <p>
+ * 同步任务以唯一名称加入队列，重复调度时保留已有的任务，因此多次调用只会有一个任务在运行；
+ * 任务只在有网络连接且电量不低时运行，失败时按指数退避重试。
+ **/
+public final class EarthquakeSyncScheduler {
+
+    /**
+     * 周期性同步任务的唯一名称
+     */
+    private static final String PERIODIC_SYNC_WORK_NAME = "earthquake_periodic_sync";
+
+    /**
+     * 同步周期
+     */
+    private static final long SYNC_INTERVAL_HOURS = 1;
+
+    /**
+     * 第一次重试前的等待时间，之后每次加倍
+     */
+    private static final long BACKOFF_DELAY_SECONDS = 30;
+
+    private EarthquakeSyncScheduler() {
+    }
+
+    /**
+     * 调度周期性同步。已调度时不做任何事，可以在每次启动应用时调用。
+     */
+    public static void schedulePeriodicSync(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                EarthquakeSyncWorker.class, SYNC_INTERVAL_HOURS, TimeUnit.HOURS)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_DELAY_SECONDS, TimeUnit.SECONDS)
+                .build();
+
+        WorkManager.getInstance(context.getApplicationContext()).enqueueUniquePeriodicWork(
+                PERIODIC_SYNC_WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.quakereport.sync;
+
+import android.content.Context;
+import android.os.CancellationSignal;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.quakereport.data.EarthquakeQuery;
+import com.example.quakereport.data.EarthquakeRepository;
+import com.example.quakereport.data.EarthquakeSnapshot;
+import com.example.quakereport.util.QueryUtilsPlus;
+
+/**
+ * 在后台把 USGS 的地震数据同步到本地数据库，并更新第一页的快照，
+ * 使用户打开应用时列表已经是最新的，不需要在前台等待网络。
+ * <p>
+ * 由 {@link EarthquakeSyncScheduler} 调度。网络请求失败时由 WorkManager 按指数退避重试。
+ **/
+public class EarthquakeSyncWorker extends Worker {
+
+    /**
+     * 最多重试的次数，超过后放弃，等待下一个周期
+     */
+    private static final int MAX_RUN_ATTEMPTS = 5;
+
+    /**
+     * WorkManager 停止任务（如约束不再满足）时取消正在进行的同步
+     */
+    private final CancellationSignal cancellationSignal = new CancellationSignal();
+
+    public EarthquakeSyncWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    @Override
+    public void onStopped() {
+        super.onStopped();
+        cancellationSignal.cancel();
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        QueryUtilsPlus.init(context);
+        EarthquakeQuery query = EarthquakeQuery.fromPreferences(context);
+        EarthquakeRepository repository = new EarthquakeRepository(context);
+
+        // 前台刚同步过时 syncIfStale 不访问网络，直接返回 true，按成功处理。
+        // 网络请求或解析失败、被取消时返回 false：按退避策略重试，多次失败后放弃本次运行
+        if (!repository.syncIfStale(query, null, cancellationSignal)) {
+            return getRunAttemptCount() + 1 < MAX_RUN_ATTEMPTS ? Result.retry() : Result.failure();
+        }
+
+        // 同步成功或数据已是最新，更新第一页的快照，下次打开应用时直接显示
+        new EarthquakeSnapshot(context).write(query, repository.query(query));
+        return Result.success();
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.quakereport.sync;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+
+import com.example.quakereport.data.EarthquakeRepository;
+import com.example.quakereport.util.QueryUtilsPlus;
+
+/**
+ * 实时模式：定期轮询 USGS 预先生成的摘要 feed（最近一小时的事件），
+ * 把新事件和有更新的事件按 ID 合并到本地数据库，有变化时通知监听器。
+ * <p>
+ * 摘要 feed 只有几 KB，且支持条件请求，比重新执行完整的 FDSN 查询轻得多。
+ * 连续没有变化（或请求失败）时轮询间隔逐次加倍，最多为基本间隔的 {@link #MAX_BACKOFF_MULTIPLIER} 倍；
+ * 一旦有变化立即恢复为基本间隔。
+ * <p>
+ * {@link #start()} 和 {@link #stop()} 只能在主线程调用，监听器也在主线程上被调用。
+ **/
+public class LiveFeedPoller {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = LiveFeedPoller.class.getSimpleName();
+
+    /**
+     * USGS 摘要 feed 的地址前缀，后接 "all_hour.geojson" 等文件名
+     */
+    private static final String SUMMARY_FEED_URL = "https://earthquake.usgs.gov/earthquakes/feed/v1.0/summary/";
+
+    /**
+     * 没有变化时，轮询间隔最多退避到基本间隔的倍数
+     */
+    private static final int MAX_BACKOFF_MULTIPLIER = 16;
+
+    /**
+     * 本地数据库有变化时的监听器
+     */
+    public interface Listener {
+        void onEarthquakesChanged(int changedCount);
+    }
+
+    private final EarthquakeRepository repository;
+
+    private final String feedUrl;
+
+    private final long baseIntervalMillis;
+
+    private final Listener listener;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private HandlerThread pollThread;
+
+    private Handler pollHandler;
+
+    /**
+     * 当前的轮询间隔，只在轮询线程上访问
+     */
+    private long intervalMillis;
+
+    /**
+     * 是否正在轮询，为 false 后不再通知监听器
+     */
+    private volatile boolean running;
+
+    /**
+     * 构建新 {@link LiveFeedPoller}。
+     *
+     * @param context            上下文
+     * @param minMagnitude       列表的最小震级，用于选择尽量小的摘要 feed
+     * @param baseIntervalMillis 有变化时的轮询间隔
+     * @param listener           本地数据库有变化时的监听器
+     */
+    public LiveFeedPoller(Context context, double minMagnitude, long baseIntervalMillis, Listener listener) {
+        this.repository = new EarthquakeRepository(context);
+        this.feedUrl = getSummaryFeedUrl(minMagnitude);
+        this.baseIntervalMillis = baseIntervalMillis;
+        this.listener = listener;
+
+        // 为网络请求启用 HTTP 缓存，摘要 feed 没有变化时服务器返回 304
+        QueryUtilsPlus.init(context);
+    }
+
+    /**
+     * 返回包含给定最小震级所有事件的最小的摘要 feed 地址
+     */
+    static String getSummaryFeedUrl(double minMagnitude) {
+        String feed;
+        if (minMagnitude >= 4.5) {
+            feed = "4.5_hour.geojson";
+        } else if (minMagnitude >= 2.5) {
+            feed = "2.5_hour.geojson";
+        } else if (minMagnitude >= 1.0) {
+            feed = "1.0_hour.geojson";
+        } else {
+            feed = "all_hour.geojson";
+        }
+        return SUMMARY_FEED_URL + feed;
+    }
+
+    /**
+     * 立即轮询一次，之后按轮询间隔继续。已经开始时不做任何事。
+     */
+    public void start() {
+        if (running) {
+            return;
+        }
+
+        running = true;
+        intervalMillis = baseIntervalMillis;
+        pollThread = new HandlerThread(LOG_TAG);
+        pollThread.start();
+        pollHandler = new Handler(pollThread.getLooper());
+        pollHandler.post(poll);
+    }
+
+    /**
+     * 停止轮询。正在进行的请求完成后丢弃其结果。
+     */
+    public void stop() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        pollHandler.removeCallbacks(poll);
+        pollThread.quit();
+        pollThread = null;
+        pollHandler = null;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 在轮询线程上执行一次轮询，并安排下一次
+     */
+    private final Runnable poll = new Runnable() {
+        @Override
+        public void run() {
+            final int changed = repository.mergeSummaryFeed(feedUrl);
+            if (changed > 0) {
+                intervalMillis = baseIntervalMillis;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (running) {
+                            listener.onEarthquakesChanged(changed);
+                        }
+                    }
+                });
+            } else {
+                intervalMillis = Math.min(intervalMillis * 2, baseIntervalMillis * MAX_BACKOFF_MULTIPLIER);
+            }
+
+            // stop() 之后 Looper 已退出，postDelayed 不会再执行
+            Handler handler = pollHandler;
+            if (running && handler != null) {
+                handler.postDelayed(this, intervalMillis);
+            }
+        }
+    };
+}
@@ -0,0 +1,230 @@
+package com.example.quakereport.util;
+
+import android.os.CancellationSignal;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 合并相同请求并缓存结果的进程内缓存。
+ * <p>
+ * 同一个键同一时间只会加载一次：第一个调用者在自己的线程上加载，其余调用者等待并共享同一个结果。
+ * 加载成功（非 null）的结果保存在按访问顺序淘汰的 LRU 中，超过有效期后重新加载；
+ * 加载失败（null）不会被缓存。结果会被多个调用者共享，调用者不能修改。
+ * <p>
+ * 调用者可以通过 {@link CancellationSignal} 表示不再需要结果；只有等待同一个加载的所有调用者都取消后，
+ * 加载本身才会被取消，取消的加载结果不会被缓存。
+ *
+ * @param <V> 结果类型
+ **/
+public class CoalescingCache<V> {
+
+    /**
+     * 加载一个键对应的结果
+     */
+    public interface Loader<V> {
+        /**
+         * @param signal 所有调用者都取消时被取消，加载应尽快停止并返回 null
+         */
+        V load(String key, CancellationSignal signal);
+    }
+
+    /**
+     * 已缓存的结果及其过期时间
+     */
+    private static class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final long ttlMillis;
+
+    /**
+     * 一个正在进行的加载，以及仍在等待其结果的调用者个数
+     */
+    private static class InFlight<V> {
+        final FutureTask<V> task;
+        final CancellationSignal signal;
+        int waiting;
+
+        InFlight(FutureTask<V> task, CancellationSignal signal) {
+            this.task = task;
+            this.signal = signal;
+        }
+    }
+
+    /**
+     * 正在加载的请求
+     */
+    private final Map<String, InFlight<V>> inFlight = new HashMap<>();
+
+    /**
+     * 已完成的结果，按访问顺序排列，超过容量时淘汰最久未访问的
+     */
+    private final LinkedHashMap<String, Entry<V>> results;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong loadCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+
+    /**
+     * @param maxEntries 最多缓存的结果个数
+     * @param ttlMillis  结果的有效期
+     */
+    public CoalescingCache(final int maxEntries, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.results = new LinkedHashMap<String, Entry<V>>(maxEntries + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 返回键对应的结果：有未过期的缓存时直接返回；有相同的请求正在加载时等待其结果；
+     * 否则在当前线程上用 loader 加载。
+     *
+     * @return 结果；加载失败或等待时被中断返回 null
+     */
+    public V get(String key, Loader<V> loader) {
+        return get(key, loader, null);
+    }
+
+    /**
+     * 与 {@link #get(String, Loader)} 相同，callerSignal 被取消表示该调用者不再需要结果。
+     * 没有其他调用者在等待同一个加载时，加载会被取消，当前调用者尽快得到 null；
+     * 否则加载继续进行，当前调用者仍等到加载完成。
+     *
+     * @param callerSignal 调用者的取消信号，可以为 null；在本方法返回前不能再被其他地方监听
+     * @return 结果；加载失败、被取消或等待时被中断返回 null
+     */
+    public V get(final String key, final Loader<V> loader, CancellationSignal callerSignal) {
+        requestCount.incrementAndGet();
+
+        final InFlight<V> load;
+        boolean owner = false;
+        synchronized (this) {
+            Entry<V> entry = results.get(key);
+            if (entry != null) {
+                if (System.currentTimeMillis() < entry.expiresAt) {
+                    hitCount.incrementAndGet();
+                    return entry.value;
+                }
+                results.remove(key);
+            }
+
+            InFlight<V> existing = inFlight.get(key);
+            if (existing == null) {
+                final CancellationSignal loadSignal = new CancellationSignal();
+                load = new InFlight<>(new FutureTask<>(new Callable<V>() {
+                    @Override
+                    public V call() {
+                        return loader.load(key, loadSignal);
+                    }
+                }), loadSignal);
+                inFlight.put(key, load);
+                owner = true;
+            } else {
+                load = existing;
+                coalescedCount.incrementAndGet();
+            }
+            load.waiting++;
+        }
+
+        if (callerSignal != null) {
+            // 已取消时会立即调用
+            callerSignal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+                @Override
+                public void onCancel() {
+                    release(key, load);
+                }
+            });
+        }
+
+        try {
+            if (owner) {
+                loadCount.incrementAndGet();
+                load.task.run();
+                synchronized (this) {
+                    if (inFlight.get(key) == load) {
+                        inFlight.remove(key);
+                    }
+                    V value = getQuietly(load.task);
+                    if (value != null && !load.signal.isCanceled()) {
+                        results.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+                    }
+                }
+            }
+
+            try {
+                return load.task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        } finally {
+            if (callerSignal != null) {
+                callerSignal.setOnCancelListener(null);
+            }
+        }
+    }
+
+    /**
+     * 一个调用者取消后调用。没有其他调用者在等待时取消加载，
+     * 并使之后相同的请求重新加载，而不是等待这个已取消的加载。
+     */
+    private void release(String key, InFlight<V> load) {
+        synchronized (this) {
+            if (--load.waiting > 0) {
+                return;
+            }
+            if (inFlight.get(key) == load) {
+                inFlight.remove(key);
+            }
+        }
+        load.signal.cancel();
+    }
+
+    /**
+     * 丢弃所有已缓存的结果，正在加载的请求不受影响
+     */
+    public synchronized void clear() {
+        results.clear();
+    }
+
+    /**
+     * 返回请求统计的快照
+     */
+    public RequestStats getStats() {
+        return new RequestStats(requestCount.get(), loadCount.get(), coalescedCount.get(), hitCount.get());
+    }
+
+    /**
+     * 返回已完成任务的结果，任务失败时返回 null
+     */
+    private static <V> V getQuietly(FutureTask<V> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException | ExecutionException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,489 @@
+package com.example.quakereport.util;
+
+import com.example.quakereport.Earthquake;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * USGS FDSN {@code format=csv} 响应的流式解析器，是 {@link EarthquakeJsonParser} 的轻量替代。
+ * <p>
+ * CSV 响应没有 GeoJSON 中重复的字段名和大量用不到的属性，同样的查询体积小得多。
+ * 解析器在自己的字符缓冲区中定位每一行的字段边界，数字和时间直接从缓冲区中解析，
+ * 不会为每个字段创建 String 或其他对象；只有需要保存的 ID 和位置才会创建字符串。
+ * 列的顺序由第一行的表头决定，缺少的列使用与 GeoJSON 解析器相同的默认值。
+ * <p>
+ * CSV 中没有事件页面地址，由事件 ID 拼接而成。
+ **/
+public final class EarthquakeCsvParser {
+
+    /**
+     * USGS 事件页面地址的前缀，后接事件 ID
+     */
+    public static final String EVENT_PAGE_URL = "https://earthquake.usgs.gov/earthquakes/eventpage/";
+
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
+    private static final int INITIAL_FIELD_COUNT = 32;
+
+    /**
+     * 可以精确表示的 10 的幂，用于快速解析小数
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * 小于 2^53 的整数可以精确地转换为 double
+     */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private final Reader reader;
+
+    private char[] buffer = new char[INITIAL_BUFFER_SIZE];
+
+    /**
+     * 下一行在缓冲区中的起点，以及缓冲区中有效字符的终点
+     */
+    private int position;
+    private int limit;
+
+    private boolean endOfStream;
+
+    /**
+     * 当前行第 i 个字段位于 buffer[fieldStarts[i]..fieldEnds[i])；
+     * fieldEscaped[i] 表示带引号的字段中是否有需要还原的 "" 转义
+     */
+    private int[] fieldStarts = new int[INITIAL_FIELD_COUNT];
+    private int[] fieldEnds = new int[INITIAL_FIELD_COUNT];
+    private boolean[] fieldEscaped = new boolean[INITIAL_FIELD_COUNT];
+    private int fieldCount;
+
+    private int lineNumber;
+
+    private EarthquakeCsvParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * 从 CSV 响应中解析出 {@link Earthquake} 对象列表。
+     *
+     * @param reader CSV 响应
+     * @return 地震列表
+     * @throws IOException 读取失败或 CSV 格式错误
+     */
+    public static List<Earthquake> parse(Reader reader) throws IOException {
+        final List<Earthquake> earthquakes = new ArrayList<>();
+        parse(reader, new EarthquakeJsonParser.FeatureHandler() {
+            @Override
+            public void onFeature(String id, double mag, String place, long time, long updated, String url,
+                                  double longitude, double latitude, double depth) {
+                earthquakes.add(new Earthquake(id, mag, place, time, updated, url, longitude, latitude, depth));
+            }
+        });
+        return earthquakes;
+    }
+
+    /**
+     * 从 CSV 响应中逐行解析地震，并交给 handler 处理。
+     *
+     * @param reader  CSV 响应，第一行为表头
+     * @param handler 接收每个地震的处理器
+     * @return 解析出的地震个数
+     * @throws IOException 读取失败或 CSV 格式错误
+     */
+    public static int parse(Reader reader, EarthquakeJsonParser.FeatureHandler handler) throws IOException {
+        return new EarthquakeCsvParser(reader).parseRecords(handler);
+    }
+
+    private int parseRecords(EarthquakeJsonParser.FeatureHandler handler) throws IOException {
+        if (!nextRecord()) {
+            return 0;
+        }
+
+        // 根据表头确定各列的位置
+        int idColumn = -1;
+        int magColumn = -1;
+        int placeColumn = -1;
+        int timeColumn = -1;
+        int updatedColumn = -1;
+        int longitudeColumn = -1;
+        int latitudeColumn = -1;
+        int depthColumn = -1;
+        for (int i = 0; i < fieldCount; i++) {
+            String name = stringField(i);
+            if (name == null) {
+                continue;
+            }
+            switch (name) {
+                case "id":
+                    idColumn = i;
+                    break;
+                case "mag":
+                    magColumn = i;
+                    break;
+                case "place":
+                    placeColumn = i;
+                    break;
+                case "time":
+                    timeColumn = i;
+                    break;
+                case "updated":
+                    updatedColumn = i;
+                    break;
+                case "longitude":
+                    longitudeColumn = i;
+                    break;
+                case "latitude":
+                    latitudeColumn = i;
+                    break;
+                case "depth":
+                    depthColumn = i;
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (idColumn < 0 || timeColumn < 0) {
+            throw new IOException("CSV header has no id or time column");
+        }
+
+        int count = 0;
+        while (nextRecord()) {
+            // 跳过空行
+            if (fieldCount == 1 && fieldStarts[0] == fieldEnds[0]) {
+                continue;
+            }
+
+            String id = stringField(idColumn);
+            handler.onFeature(id,
+                    doubleField(magColumn, 0),
+                    stringField(placeColumn),
+                    timeField(timeColumn),
+                    timeField(updatedColumn),
+                    id == null ? null : EVENT_PAGE_URL + id,
+                    doubleField(longitudeColumn, Double.NaN),
+                    doubleField(latitudeColumn, Double.NaN),
+                    doubleField(depthColumn, Double.NaN));
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 定位下一行的所有字段
+     *
+     * @return 没有更多的行时返回 false
+     */
+    private boolean nextRecord() throws IOException {
+        while (true) {
+            if (position == limit && endOfStream) {
+                return false;
+            }
+
+            int end = scanRecord();
+            if (end >= 0) {
+                position = end;
+                lineNumber++;
+                return true;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * 从 position 开始扫描一行，记录各个字段的边界。
+     *
+     * @return 下一行的起点；缓冲区中的字符不足一行时返回 -1
+     */
+    private int scanRecord() throws IOException {
+        int i = position;
+        fieldCount = 0;
+        while (true) {
+            int start;
+            int end;
+            boolean escaped = false;
+            if (i < limit && buffer[i] == '"') {
+                start = ++i;
+                while (true) {
+                    if (i >= limit) {
+                        if (!endOfStream) {
+                            return -1;
+                        }
+                        throw new IOException("Unterminated quoted field on line " + (lineNumber + 1));
+                    }
+                    if (buffer[i] == '"') {
+                        if (i + 1 >= limit && !endOfStream) {
+                            return -1;
+                        }
+                        if (i + 1 < limit && buffer[i + 1] == '"') {
+                            escaped = true;
+                            i += 2;
+                            continue;
+                        }
+                        end = i++;
+                        break;
+                    }
+                    i++;
+                }
+            } else {
+                start = i;
+                while (i < limit && buffer[i] != ',' && buffer[i] != '\n' && buffer[i] != '\r') {
+                    i++;
+                }
+                end = i;
+            }
+
+            if (i >= limit && !endOfStream) {
+                return -1;
+            }
+            addField(start, end, escaped);
+            if (i >= limit) {
+                // 最后一行没有换行符
+                return limit;
+            }
+
+            char c = buffer[i];
+            if (c == ',') {
+                i++;
+            } else if (c == '\n') {
+                return i + 1;
+            } else if (c == '\r') {
+                if (i + 1 >= limit && !endOfStream) {
+                    return -1;
+                }
+                return i + 1 < limit && buffer[i + 1] == '\n' ? i + 2 : i + 1;
+            } else {
+                throw new IOException("Unexpected character after quoted field on line " + (lineNumber + 1));
+            }
+        }
+    }
+
+    private void addField(int start, int end, boolean escaped) {
+        if (fieldCount == fieldStarts.length) {
+            int capacity = fieldCount * 2;
+            fieldStarts = Arrays.copyOf(fieldStarts, capacity);
+            fieldEnds = Arrays.copyOf(fieldEnds, capacity);
+            fieldEscaped = Arrays.copyOf(fieldEscaped, capacity);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldEscaped[fieldCount] = escaped;
+        fieldCount++;
+    }
+
+    /**
+     * 把未解析完的一行移到缓冲区开头，再读取更多字符；一行比缓冲区还长时把缓冲区加倍
+     */
+    private void fill() throws IOException {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+
+        int read = reader.read(buffer, limit, buffer.length - limit);
+        if (read == -1) {
+            endOfStream = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    /**
+     * 返回字段的字符串值，列不存在或字段为空时返回 null
+     */
+    private String stringField(int column) {
+        if (column < 0 || column >= fieldCount || fieldStarts[column] == fieldEnds[column]) {
+            return null;
+        }
+
+        String value = new String(buffer, fieldStarts[column], fieldEnds[column] - fieldStarts[column]);
+        return fieldEscaped[column] ? value.replace("\"\"", "\"") : value;
+    }
+
+    /**
+     * 返回字段的数值，列不存在或字段为空时返回 defaultValue
+     */
+    private double doubleField(int column, double defaultValue) throws IOException {
+        if (column < 0 || column >= fieldCount || fieldStarts[column] == fieldEnds[column]) {
+            return defaultValue;
+        }
+
+        try {
+            return parseDouble(buffer, fieldStarts[column], fieldEnds[column]);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed number on line " + lineNumber, e);
+        }
+    }
+
+    /**
+     * 返回字段表示的 UTC 时间（毫秒），列不存在或字段为空时返回 0
+     */
+    private long timeField(int column) throws IOException {
+        if (column < 0 || column >= fieldCount || fieldStarts[column] == fieldEnds[column]) {
+            return 0;
+        }
+
+        long time = parseTime(buffer, fieldStarts[column], fieldEnds[column]);
+        if (time == Long.MIN_VALUE) {
+            throw new IOException("Malformed time on line " + lineNumber);
+        }
+        return time;
+    }
+
+    /**
+     * 直接从字符数组中解析十进制小数（可带指数）。
+     * 有效数字不超过 2^53 且 10 的指数不超过 22 时，一次乘法或除法即可得到正确舍入的结果；
+     * 其余少见的情况交给 {@link Double#parseDouble(String)}。
+     *
+     * @throws NumberFormatException 不是合法的数字
+     */
+    static double parseDouble(char[] chars, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int scale = 0;
+        boolean digits = false;
+        boolean exact = true;
+        while (i < end && chars[i] >= '0' && chars[i] <= '9') {
+            if (mantissa < MAX_EXACT_MANTISSA) {
+                mantissa = mantissa * 10 + (chars[i] - '0');
+            } else {
+                exact = false;
+            }
+            digits = true;
+            i++;
+        }
+        if (i < end && chars[i] == '.') {
+            i++;
+            while (i < end && chars[i] >= '0' && chars[i] <= '9') {
+                if (mantissa < MAX_EXACT_MANTISSA) {
+                    mantissa = mantissa * 10 + (chars[i] - '0');
+                    scale--;
+                } else {
+                    exact = false;
+                }
+                digits = true;
+                i++;
+            }
+        }
+        if (digits && i < end && (chars[i] == 'e' || chars[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+                negativeExponent = chars[i] == '-';
+                i++;
+            }
+            int exponent = 0;
+            boolean exponentDigits = false;
+            while (i < end && chars[i] >= '0' && chars[i] <= '9') {
+                exponent = Math.min(exponent * 10 + (chars[i] - '0'), 1000);
+                exponentDigits = true;
+                i++;
+            }
+            if (!exponentDigits) {
+                digits = false;
+            }
+            scale += negativeExponent ? -exponent : exponent;
+        }
+        if (!digits || i != end) {
+            throw new NumberFormatException(new String(chars, start, end - start));
+        }
+
+        if (exact && mantissa <= MAX_EXACT_MANTISSA && scale >= -22 && scale <= 22) {
+            double value = scale < 0 ? mantissa / POWERS_OF_TEN[-scale] : mantissa * POWERS_OF_TEN[scale];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(new String(chars, start, end - start));
+    }
+
+    /**
+     * 直接从字符数组中解析 ISO8601 UTC 时间，如 "2021-02-21T01:37:00.123Z"（小数秒和 Z 可省略）。
+     *
+     * @return UTC 毫秒时间；格式不正确时返回 {@link Long#MIN_VALUE}
+     */
+    static long parseTime(char[] chars, int start, int end) {
+        if (end - start < 19
+                || chars[start + 4] != '-' || chars[start + 7] != '-' || chars[start + 10] != 'T'
+                || chars[start + 13] != ':' || chars[start + 16] != ':') {
+            return Long.MIN_VALUE;
+        }
+
+        int year = parseDigits(chars, start, 4);
+        int month = parseDigits(chars, start + 5, 2);
+        int day = parseDigits(chars, start + 8, 2);
+        int hour = parseDigits(chars, start + 11, 2);
+        int minute = parseDigits(chars, start + 14, 2);
+        int second = parseDigits(chars, start + 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 60) {
+            return Long.MIN_VALUE;
+        }
+
+        // 小数秒只保留到毫秒
+        int i = start + 19;
+        int millis = 0;
+        if (i < end && chars[i] == '.') {
+            i++;
+            int scale = 100;
+            int fractionStart = i;
+            while (i < end && chars[i] >= '0' && chars[i] <= '9') {
+                millis += (chars[i] - '0') * scale;
+                scale /= 10;
+                i++;
+            }
+            if (i == fractionStart) {
+                return Long.MIN_VALUE;
+            }
+        }
+        if (i < end && chars[i] == 'Z') {
+            i++;
+        }
+        if (i != end) {
+            return Long.MIN_VALUE;
+        }
+
+        long days = daysFromCivil(year, month, day);
+        return ((days * 24 + hour) * 60 + minute) * 60_000L + second * 1000L + millis;
+    }
+
+    /**
+     * 解析固定长度的十进制数字，有非数字字符时返回 -1
+     */
+    private static int parseDigits(char[] chars, int start, int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            char c = chars[i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * 返回公历日期距 1970-01-01 的天数（year 不小于 0）
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.quakereport.util;
+
+import com.example.quakereport.detail.EarthquakeDetail;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * USGS 单个事件 detail GeoJSON（format=geojson&amp;eventid=...）的流式解析器。
+ * <p>
+ * 只读取详情页需要的字段；"products" 中只读取每个产品的 "source" 和 "properties" 里的震级，
+ * 各产品体积较大的 "contents" 直接跳过。
+ **/
+public final class EarthquakeDetailParser {
+
+    private EarthquakeDetailParser() {
+    }
+
+    /**
+     * 解析一个 Feature
+     *
+     * @param reader 指向 Feature 起始位置的 {@link JsonReader}
+     * @throws IOException 读取失败或 JSON 格式错误
+     */
+    public static EarthquakeDetail parse(JsonReader reader) throws IOException {
+        String id = null;
+        String title = null;
+        double mag = Double.NaN;
+        String magType = null;
+        long time = 0;
+        double[] coordinates = {Double.NaN, Double.NaN, Double.NaN};
+        int felt = -1;
+        double cdi = Double.NaN;
+        double mmi = Double.NaN;
+        String alert = null;
+        boolean tsunami = false;
+        int significance = -1;
+        String status = null;
+        String url = null;
+        List<EarthquakeDetail.Magnitude> magnitudes = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("id".equals(name) && reader.peek() == JsonToken.STRING) {
+                id = reader.nextString();
+            } else if ("geometry".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                EarthquakeJsonParser.readGeometry(reader, coordinates);
+            } else if (!"properties".equals(name) || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+            } else {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String property = reader.nextName();
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                        continue;
+                    }
+                    switch (property) {
+                        case "title":
+                            title = reader.nextString();
+                            break;
+                        case "mag":
+                            mag = reader.nextDouble();
+                            break;
+                        case "magType":
+                            magType = reader.nextString();
+                            break;
+                        case "time":
+                            time = reader.nextLong();
+                            break;
+                        case "felt":
+                            felt = reader.nextInt();
+                            break;
+                        case "cdi":
+                            cdi = reader.nextDouble();
+                            break;
+                        case "mmi":
+                            mmi = reader.nextDouble();
+                            break;
+                        case "alert":
+                            alert = reader.nextString();
+                            break;
+                        case "tsunami":
+                            tsunami = reader.nextInt() != 0;
+                            break;
+                        case "sig":
+                            significance = reader.nextInt();
+                            break;
+                        case "status":
+                            status = reader.nextString();
+                            break;
+                        case "url":
+                            url = reader.nextString();
+                            break;
+                        case "products":
+                            readProducts(reader, magnitudes);
+                            break;
+                        default:
+                            reader.skipValue();
+                            break;
+                    }
+                }
+                reader.endObject();
+            }
+        }
+        reader.endObject();
+
+        return new EarthquakeDetail(id, title, mag, magType, time,
+                coordinates[0], coordinates[1], coordinates[2], felt, cdi, mmi,
+                alert, tsunami, significance, status, url, magnitudes);
+    }
+
+    /**
+     * 读取 "products" 对象：产品类型 → 该类型的产品数组，收集各产品给出的震级
+     */
+    private static void readProducts(JsonReader reader, List<EarthquakeDetail.Magnitude> magnitudes)
+            throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            reader.nextName();
+            if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                readProduct(reader, magnitudes);
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+    }
+
+    /**
+     * 读取一个产品的 "source" 和 "properties"。origin、phase-data 等产品使用 "magnitude" / "magnitude-type"，
+     * moment-tensor 产品使用 "derived-magnitude" / "derived-magnitude-type"
+     */
+    private static void readProduct(JsonReader reader, List<EarthquakeDetail.Magnitude> magnitudes)
+            throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+
+        String source = null;
+        String magnitude = null;
+        String magnitudeType = null;
+        String derivedMagnitude = null;
+        String derivedMagnitudeType = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("source".equals(name) && reader.peek() == JsonToken.STRING) {
+                source = reader.nextString();
+            } else if (!"properties".equals(name) || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+            } else {
+                // 产品属性的值都是字符串
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String property = reader.nextName();
+                    if (reader.peek() != JsonToken.STRING) {
+                        reader.skipValue();
+                        continue;
+                    }
+                    switch (property) {
+                        case "magnitude":
+                            magnitude = reader.nextString();
+                            break;
+                        case "magnitude-type":
+                            magnitudeType = reader.nextString();
+                            break;
+                        case "derived-magnitude":
+                            derivedMagnitude = reader.nextString();
+                            break;
+                        case "derived-magnitude-type":
+                            derivedMagnitudeType = reader.nextString();
+                            break;
+                        default:
+                            reader.skipValue();
+                            break;
+                    }
+                }
+                reader.endObject();
+            }
+        }
+        reader.endObject();
+
+        addMagnitude(magnitudes, magnitudeType, magnitude, source);
+        addMagnitude(magnitudes, derivedMagnitudeType, derivedMagnitude, source);
+    }
+
+    /**
+     * 添加一个震级，类型或值缺失、无法解析，或者已有相同类型和值的震级时忽略
+     */
+    private static void addMagnitude(List<EarthquakeDetail.Magnitude> magnitudes, String type, String value,
+                                     String source) {
+        if (type == null || value == null) {
+            return;
+        }
+
+        double magnitude;
+        try {
+            magnitude = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return;
+        }
+
+        String normalizedType = type.toLowerCase(Locale.US);
+        for (EarthquakeDetail.Magnitude existing : magnitudes) {
+            if (existing.getType().equals(normalizedType) && existing.getValue() == magnitude) {
+                return;
+            }
+        }
+        magnitudes.add(new EarthquakeDetail.Magnitude(normalizedType, magnitude, source));
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.quakereport.util;
+
+import com.example.quakereport.Earthquake;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基于 Gson {@link JsonReader} 的 USGS GeoJSON 流式解析器。
+ * <p>
+ * 直接从响应流中逐个读取 feature 并构造 {@link Earthquake}，
+ * 不会构建完整的 JSON 对象树，也不会把响应体保存为一个完整的字符串。
+ **/
+public final class EarthquakeJsonParser {
+
+    /**
+     * 每解析出一个 feature 就会被调用一次，可以在不创建 {@link Earthquake} 对象的情况下保存数据
+     */
+    public interface FeatureHandler {
+        void onFeature(String id, double mag, String place, long time, long updated, String url,
+                       double longitude, double latitude, double depth);
+    }
+
+    private EarthquakeJsonParser() {
+    }
+
+    /**
+     * 从 GeoJSON FeatureCollection 中解析出 {@link Earthquake} 对象列表。
+     *
+     * @param reader 指向 FeatureCollection 起始位置的 {@link JsonReader}
+     * @return 地震列表
+     * @throws IOException 读取失败或 JSON 格式错误
+     */
+    public static List<Earthquake> parseFeatureCollection(JsonReader reader) throws IOException {
+        final List<Earthquake> earthquakes = new ArrayList<>();
+        parseFeatureCollection(reader, new FeatureHandler() {
+            @Override
+            public void onFeature(String id, double mag, String place, long time, long updated, String url,
+                                  double longitude, double latitude, double depth) {
+                earthquakes.add(new Earthquake(id, mag, place, time, updated, url, longitude, latitude, depth));
+            }
+        });
+        return earthquakes;
+    }
+
+    /**
+     * 从 GeoJSON FeatureCollection 中逐个解析 feature，并交给 handler 处理。
+     * 读取完 "features" 数组后立即返回，不再读取其后的字段（如 "bbox"）。
+     *
+     * @param reader  指向 FeatureCollection 起始位置的 {@link JsonReader}
+     * @param handler 接收每个 feature 的处理器
+     * @return 解析出的 feature 个数
+     * @throws IOException 读取失败或 JSON 格式错误
+     */
+    public static int parseFeatureCollection(JsonReader reader, FeatureHandler handler) throws IOException {
+        int count = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!"features".equals(reader.nextName())) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                readFeature(reader, handler);
+                count++;
+            }
+            reader.endArray();
+            break;
+        }
+        return count;
+    }
+
+    /**
+     * 读取单个 feature 的 "id"、"properties" 和 "geometry"，其余字段直接跳过。
+     */
+    private static void readFeature(JsonReader reader, FeatureHandler handler) throws IOException {
+        String id = null;
+        double mag = 0;
+        String place = null;
+        long time = 0;
+        long updated = 0;
+        String url = null;
+        double[] coordinates = {Double.NaN, Double.NaN, Double.NaN};
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("id".equals(name) && reader.peek() == JsonToken.STRING) {
+                id = reader.nextString();
+            } else if ("geometry".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                readGeometry(reader, coordinates);
+            } else if (!"properties".equals(name) || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+            } else {
+                // 读取 "properties" 对象中的震级、位置、时间、更新时间和 url
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String property = reader.nextName();
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                        continue;
+                    }
+                    switch (property) {
+                        case "mag":
+                            mag = reader.nextDouble();
+                            break;
+                        case "place":
+                            place = reader.nextString();
+                            break;
+                        case "time":
+                            time = reader.nextLong();
+                            break;
+                        case "updated":
+                            updated = reader.nextLong();
+                            break;
+                        case "url":
+                            url = reader.nextString();
+                            break;
+                        default:
+                            reader.skipValue();
+                            break;
+                    }
+                }
+                reader.endObject();
+            }
+        }
+        reader.endObject();
+        handler.onFeature(id, mag, place, time, updated, url, coordinates[0], coordinates[1], coordinates[2]);
+    }
+
+    /**
+     * 读取 Point 类型 "geometry" 的 "coordinates" 数组（经度、纬度、深度），
+     * 依次保存到 coordinates 中，缺失或为 null 的值保持不变。
+     */
+    static void readGeometry(JsonReader reader, double[] coordinates) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!"coordinates".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginArray();
+            for (int i = 0; reader.hasNext(); i++) {
+                if (i < coordinates.length && reader.peek() == JsonToken.NUMBER) {
+                    coordinates[i] = reader.nextDouble();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+    }
+}
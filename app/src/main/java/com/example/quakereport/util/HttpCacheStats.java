@@ -0,0 +1,56 @@
+package com.example.quakereport.util;
+
+/**
+ * HTTP 缓存命中情况的快照，由 {@link QueryUtilsPlus#getHttpCacheStats()} 返回。
+ **/
+public class HttpCacheStats {
+
+    /**
+     * 直接由本地缓存返回、没有发起网络请求的次数
+     */
+    private final long hitCount;
+
+    /**
+     * 没有可用缓存、完整下载响应体的次数
+     */
+    private final long missCount;
+
+    /**
+     * 发起条件请求且服务器返回 304、由本地缓存提供响应体的次数
+     */
+    private final long revalidateCount;
+
+    public HttpCacheStats(long hitCount, long missCount, long revalidateCount) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.revalidateCount = revalidateCount;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getRevalidateCount() {
+        return revalidateCount;
+    }
+
+    /**
+     * 返回无需重新下载响应体的请求次数（直接命中 + 304 重新验证）
+     */
+    public long getSavedCount() {
+        return hitCount + revalidateCount;
+    }
+
+    @Override
+    public String toString() {
+        return "HttpCacheStats{" +
+                "hit=" + hitCount +
+                ", miss=" + missCount +
+                ", revalidate=" + revalidateCount +
+                '}';
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.quakereport.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+
+/**
+ * 记录每次 OkHttp 调用各阶段耗时的 {@link EventListener}，结果汇总到 {@link PerfMetrics}。
+ * <p>
+ * 每次调用使用一个新实例（见 {@link #FACTORY}），因此各阶段的开始时间可以直接保存在字段中。
+ * 复用连接池中的连接时不会有 DNS、连接和 TLS 阶段；完全由缓存返回的响应只记录整个调用。
+ **/
+class PerfEventListener extends EventListener {
+
+    static final EventListener.Factory FACTORY = new EventListener.Factory() {
+        @NonNull
+        @Override
+        public EventListener create(@NonNull Call call) {
+            return new PerfEventListener();
+        }
+    };
+
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long secureConnectStart;
+    private long requestStart;
+
+    @Override
+    public void callStart(@NonNull Call call) {
+        callStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+        dnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(@NonNull Call call, @NonNull String domainName, @NonNull List<InetAddress> inetAddressList) {
+        PerfMetrics.DNS.record(System.nanoTime() - dnsStart);
+    }
+
+    @Override
+    public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress, @NonNull Proxy proxy) {
+        connectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectStart(@NonNull Call call) {
+        secureConnectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(@NonNull Call call, @Nullable Handshake handshake) {
+        PerfMetrics.TLS.record(System.nanoTime() - secureConnectStart);
+    }
+
+    @Override
+    public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress, @NonNull Proxy proxy,
+                           @Nullable Protocol protocol) {
+        PerfMetrics.CONNECT.record(System.nanoTime() - connectStart);
+    }
+
+    @Override
+    public void requestHeadersStart(@NonNull Call call) {
+        requestStart = System.nanoTime();
+    }
+
+    @Override
+    public void responseHeadersStart(@NonNull Call call) {
+        // 从开始发送请求到收到响应的第一个字节
+        PerfMetrics.TTFB.record(System.nanoTime() - requestStart);
+    }
+
+    @Override
+    public void responseBodyEnd(@NonNull Call call, long byteCount) {
+        PerfMetrics.recordBodyBytes(byteCount);
+    }
+
+    @Override
+    public void callEnd(@NonNull Call call) {
+        long nanos = System.nanoTime() - callStart;
+        PerfMetrics.CALL.record(nanos);
+    }
+
+    @Override
+    public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+        PerfMetrics.recordCallFailed();
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.quakereport.util;
+
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内的性能计数器：网络各阶段（DNS、连接、TLS、首字节）耗时、失败的调用数、响应体字节数、
+ * 解析耗时、内存索引的构建耗时、列表项绑定耗时以及掉帧数。
+ * <p>
+ * 记录只是几次原子加法，可以在任意线程上调用，始终开启。{@link #format()} 返回可读的报告，
+ * 用于性能浮层；{@link #dump(Context, String)} 把报告写入应用的外部文件目录，便于从真机上取回。
+ **/
+public final class PerfMetrics {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = PerfMetrics.class.getSimpleName();
+
+    /**
+     * 报告文件所在的目录名（位于应用的外部文件目录下）
+     */
+    private static final String DUMP_DIR = "perf";
+
+    /**
+     * 一个阶段的耗时统计：次数、总耗时和最大耗时
+     */
+    public static final class Stage {
+
+        private final String name;
+
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            long max;
+            do {
+                max = maxNanos.get();
+            } while (nanos > max && !maxNanos.compareAndSet(max, nanos));
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * 返回平均耗时（毫秒），没有记录时返回 0
+         */
+        public double getAverageMillis() {
+            long n = count.get();
+            return n == 0 ? 0 : totalNanos.get() / (double) n / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        public double getMaxMillis() {
+            return maxNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        void reset() {
+            count.set(0);
+            totalNanos.set(0);
+            maxNanos.set(0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%-8s n=%-5d avg=%8.2f ms  max=%8.2f ms",
+                    name, getCount(), getAverageMillis(), getMaxMillis());
+        }
+    }
+
+    /**
+     * 网络各阶段，由 {@link PerfEventListener} 记录
+     */
+    public static final Stage DNS = new Stage("dns");
+    public static final Stage CONNECT = new Stage("connect");
+    public static final Stage TLS = new Stage("tls");
+    public static final Stage TTFB = new Stage("ttfb");
+
+    /**
+     * 一次完整的调用（从发起到响应体读完）
+     */
+    public static final Stage CALL = new Stage("call");
+
+    /**
+     * 读取并解析一个响应的耗时（边下载边解析，因此包括等待网络数据的时间）
+     */
+    public static final Stage PARSE = new Stage("parse");
+
+    /**
+     * 列表项的绑定耗时
+     */
+    public static final Stage BIND = new Stage("bind");
+
+    /**
+     * 构建内存索引（列表查询用的超集索引、地图的四叉树）的耗时，不包括从数据库读取的时间
+     */
+    public static final Stage INDEX = new Stage("index");
+
+    private static final Stage[] STAGES = {DNS, CONNECT, TLS, TTFB, CALL, PARSE, INDEX, BIND};
+
+    private static final AtomicLong sFailedCalls = new AtomicLong();
+    private static final AtomicLong sBodyBytes = new AtomicLong();
+    private static final AtomicLong sParsedFeatures = new AtomicLong();
+    private static final AtomicLong sParseNanos = new AtomicLong();
+    private static final AtomicLong sFrameCount = new AtomicLong();
+    private static final AtomicLong sDroppedFrameCount = new AtomicLong();
+
+    private PerfMetrics() {
+    }
+
+    /**
+     * 记录一次失败（包括被取消）的调用
+     */
+    static void recordCallFailed() {
+        sFailedCalls.incrementAndGet();
+    }
+
+    /**
+     * 记录从网络读取的响应体字节数
+     */
+    static void recordBodyBytes(long byteCount) {
+        sBodyBytes.addAndGet(byteCount);
+    }
+
+    /**
+     * 记录一次响应的解析
+     *
+     * @param nanos        解析耗时
+     * @param featureCount 解析出的地震个数
+     */
+    static void recordParse(long nanos, int featureCount) {
+        PARSE.record(nanos);
+        sParseNanos.addAndGet(nanos);
+        sParsedFeatures.addAndGet(featureCount);
+    }
+
+    /**
+     * 记录一次内存索引的构建耗时
+     */
+    public static void recordIndex(long nanos) {
+        INDEX.record(nanos);
+    }
+
+    /**
+     * 记录一次列表项绑定的耗时
+     */
+    public static void recordBind(long nanos) {
+        BIND.record(nanos);
+    }
+
+    /**
+     * 记录渲染的帧数，以及其中超出一个刷新周期而丢掉的帧数
+     */
+    public static void recordFrames(long frames, long droppedFrames) {
+        sFrameCount.addAndGet(frames);
+        sDroppedFrameCount.addAndGet(droppedFrames);
+    }
+
+    /**
+     * 返回每解析 1000 个地震的平均耗时（毫秒），没有解析过时返回 0
+     */
+    public static double getParseMillisPer1k() {
+        long features = sParsedFeatures.get();
+        if (features == 0) {
+            return 0;
+        }
+        return sParseNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1) * 1000 / features;
+    }
+
+    /**
+     * 清零所有计数
+     */
+    public static void reset() {
+        for (Stage stage : STAGES) {
+            stage.reset();
+        }
+        sFailedCalls.set(0);
+        sBodyBytes.set(0);
+        sParsedFeatures.set(0);
+        sParseNanos.set(0);
+        sFrameCount.set(0);
+        sDroppedFrameCount.set(0);
+    }
+
+    /**
+     * 返回所有计数的可读报告
+     */
+    public static String format() {
+        StringBuilder builder = new StringBuilder();
+        for (Stage stage : STAGES) {
+            builder.append(stage).append('\n');
+        }
+        long frames = sFrameCount.get();
+        long dropped = sDroppedFrameCount.get();
+        builder.append(String.format(Locale.US, "failed   %d calls%n", sFailedCalls.get()));
+        builder.append(String.format(Locale.US, "body     %.1f KiB%n", sBodyBytes.get() / 1024.0));
+        builder.append(String.format(Locale.US, "parse/1k %.2f ms (%d events)%n",
+                getParseMillisPer1k(), sParsedFeatures.get()));
+        builder.append(String.format(Locale.US, "frames   %d dropped / %d drawn (%.1f%%)%n",
+                dropped, frames, frames + dropped == 0 ? 0 : 100.0 * dropped / (frames + dropped)));
+        builder.append(QueryUtilsPlus.getHttpCacheStats()).append('\n');
+        builder.append(QueryUtilsPlus.getRequestStats());
+        return builder.toString();
+    }
+
+    /**
+     * 返回带有时间和设备信息的完整报告，用于导出和分享
+     */
+    public static String report() {
+        return "time     " + new Date() + '\n'
+                + "device   " + Build.MANUFACTURER + ' ' + Build.MODEL + " (API " + Build.VERSION.SDK_INT + ")\n"
+                + format() + '\n';
+    }
+
+    /**
+     * 把报告写入应用外部文件目录下带时间戳的文件。该目录可以通过 USB 或文件管理器访问。
+     * <p>
+     * 需要写外部存储，不要在主线程上调用。
+     *
+     * @param report {@link #report()} 返回的报告
+     * @return 写入的文件；外部存储不可用或写入失败时返回 null
+     */
+    public static File dump(Context context, String report) {
+        File root = context.getApplicationContext().getExternalFilesDir(null);
+        if (root == null) {
+            Log.e(LOG_TAG, "External storage is not available for the metrics");
+            return null;
+        }
+        File dir = new File(root, DUMP_DIR);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.e(LOG_TAG, "Problem creating the metrics directory " + dir);
+            return null;
+        }
+
+        String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+        File file = new File(dir, "perf-" + timestamp + ".txt");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), Charset.forName("UTF-8"))) {
+            writer.write(report);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem writing the metrics to " + file, e);
+            return null;
+        }
+        return file;
+    }
+}
@@ -151,9 +151,23 @@ public class QueryUtils {
                 // 提取名为 "url" 的键的值
                 String url = properties.getString("url");
 
-                // 使用 JSON 响应中的震级、位置、时间和 url，
+                // 提取 "geometry" 中的经度、纬度和深度
+                double longitude = Double.NaN;
+                double latitude = Double.NaN;
+                double depth = Double.NaN;
+                JSONObject geometry = currentEarthquake.optJSONObject("geometry");
+                JSONArray coordinates = geometry == null ? null : geometry.optJSONArray("coordinates");
+                if (coordinates != null) {
+                    longitude = coordinates.optDouble(0);
+                    latitude = coordinates.optDouble(1);
+                    depth = coordinates.optDouble(2);
+                }
+
+                // 使用 JSON 响应中的 ID、震级、位置、时间、url 和坐标，
                 // 创建新的 {@link Earthquake} 对象。
-                Earthquake earthquake = new Earthquake(magnitude, location, time, url);
+                Earthquake earthquake = new Earthquake(currentEarthquake.optString("id", null),
+                        magnitude, location, time, properties.optLong("updated", time), url,
+                        longitude, latitude, depth);
 
                 // 将该新 {@link Earthquake} 添加到地震列表。
                 earthquakes.add(earthquake);
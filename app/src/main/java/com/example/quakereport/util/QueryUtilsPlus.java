@@ -1,23 +1,35 @@
 package com.example.quakereport.util;
 
+import android.content.Context;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
 import android.text.TextUtils;
 import android.util.Log;
 
 import com.example.quakereport.Earthquake;
-import com.google.gson.Gson;
-
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.example.quakereport.data.EarthquakeColumns;
+import com.example.quakereport.data.EarthquakeQuery;
+import com.example.quakereport.detail.EarthquakeDetail;
+import com.google.gson.stream.JsonReader;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import okhttp3.Cache;
+import okhttp3.Call;
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 /**
  * Better helper methods related to requesting and receiving earthquake data from USGS.
@@ -30,28 +42,208 @@ public class QueryUtilsPlus extends QueryUtils {
     private static final String LOG_TAG = QueryUtilsPlus.class.getSimpleName();
 
     /**
-     * {@link OkHttpClient} to send HTTP request
+     * {@link OkHttpClient} to send HTTP request，每次调用的各阶段耗时记录到 {@link PerfMetrics}
+     */
+    private static volatile OkHttpClient mOkHttpClient = new OkHttpClient.Builder()
+            .eventListenerFactory(PerfEventListener.FACTORY)
+            .build();
+
+    /**
+     * HTTP 磁盘缓存的目录名（位于应用缓存目录下）
+     */
+    private static final String HTTP_CACHE_DIR = "http_cache";
+
+    /**
+     * HTTP 磁盘缓存的最大容量：20 MiB
+     */
+    private static final long HTTP_CACHE_SIZE = 20L * 1024 * 1024;
+
+    /**
+     * HTTP 缓存的统计计数
+     */
+    private static final AtomicLong sCacheHitCount = new AtomicLong();
+    private static final AtomicLong sCacheMissCount = new AtomicLong();
+    private static final AtomicLong sCacheRevalidateCount = new AtomicLong();
+
+    /**
+     * 内存中最多保存的查询结果个数
+     */
+    private static final int RESULT_CACHE_SIZE = 4;
+
+    /**
+     * 内存中查询结果的有效期。只用于吸收旋转屏幕、返回设置页面等造成的重复请求，
+     * 因此比实时模式的最小轮询间隔更短
+     */
+    private static final long RESULT_CACHE_TTL_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    /**
+     * 按规范化 URL 合并正在进行的相同请求，并在内存中短暂缓存结果
+     */
+    private static final CoalescingCache<EarthquakeColumns> sResultCache =
+            new CoalescingCache<>(RESULT_CACHE_SIZE, RESULT_CACHE_TTL_MILLIS);
+
+    /**
+     * 内存中最多保存的事件详情个数
+     */
+    private static final int DETAIL_CACHE_SIZE = 32;
+
+    /**
+     * 内存中事件详情的有效期。详情页之间来回切换时不必重新请求，过期后由 HTTP 缓存重新验证
+     */
+    private static final long DETAIL_CACHE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * 按事件 ID 缓存的事件详情
+     */
+    private static final CoalescingCache<EarthquakeDetail> sDetailCache =
+            new CoalescingCache<>(DETAIL_CACHE_SIZE, DETAIL_CACHE_TTL_MILLIS);
+
+    /**
+     * 流式解析时每批通知的地震个数
+     */
+    public static final int BATCH_SIZE = 200;
+
+    /**
+     * 在流式解析过程中按批接收地震，用于在整个响应解析完成前显示已收到的部分
      */
-    private static OkHttpClient mOkHttpClient = new OkHttpClient();
+    public interface BatchListener {
+        /**
+         * 每解析出 {@link #BATCH_SIZE} 个地震就在解析线程上调用一次，最后不足一批的地震不会单独通知。
+         *
+         * @param batch 这一批新解析出的地震，由接收者持有，不会再被修改
+         */
+        void onBatch(EarthquakeColumns batch);
+    }
 
     private QueryUtilsPlus() {
     }
 
     /**
-     * 使用 OkHttp第三方库发送请求以获取地震数据
+     * 为 {@link #mOkHttpClient} 安装 HTTP 磁盘缓存，重复调用不会产生影响。
+     * <p>
+     * OkHttp 会保存响应的 ETag / Last-Modified，并在缓存过期后自动发送
+     * If-None-Match / If-Modified-Since 条件请求，服务器返回 304 时直接使用本地缓存的响应体。
+     *
+     * @param context 用于获取应用缓存目录的上下文
+     */
+    public static synchronized void init(Context context) {
+        if (mOkHttpClient.cache() != null) {
+            return;
+        }
+
+        File cacheDir = new File(context.getApplicationContext().getCacheDir(), HTTP_CACHE_DIR);
+        mOkHttpClient = mOkHttpClient.newBuilder()
+                .cache(new Cache(cacheDir, HTTP_CACHE_SIZE))
+                .build();
+    }
+
+    /**
+     * 返回共享的 {@link OkHttpClient}。其他需要不同配置（如独立缓存）的客户端应通过
+     * {@link OkHttpClient#newBuilder()} 派生，以共享连接池和线程池
+     */
+    public static OkHttpClient getOkHttpClient() {
+        return mOkHttpClient;
+    }
+
+    /**
+     * 返回 HTTP 缓存命中情况的快照
+     */
+    public static HttpCacheStats getHttpCacheStats() {
+        return new HttpCacheStats(sCacheHitCount.get(), sCacheMissCount.get(),
+                sCacheRevalidateCount.get());
+    }
+
+    /**
+     * 返回请求合并与内存结果缓存的统计快照
+     */
+    public static RequestStats getRequestStats() {
+        return sResultCache.getStats();
+    }
+
+    /**
+     * 根据响应的来源记录一次缓存命中、未命中或重新验证。
+     */
+    private static void recordCacheResult(Response response) {
+        Response cacheResponse = response.cacheResponse();
+        Response networkResponse = response.networkResponse();
+        if (cacheResponse != null && networkResponse == null) {
+            sCacheHitCount.incrementAndGet();
+        } else if (cacheResponse != null && networkResponse.code() == 304) {
+            sCacheRevalidateCount.incrementAndGet();
+        } else {
+            sCacheMissCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * 使用 OkHttp第三方库发送请求，并直接从响应流中解析地震数据。
+     * 根据请求的格式选择 {@link EarthquakeJsonParser} 或 {@link EarthquakeCsvParser}
      *
-     * @param url HTTP 请求地址
-     * @return 带有 JSON格式的字符串
-     * @throws IOException IO异常
+     * @param url     HTTP 请求地址
+     * @param handler 接收每个解析出的 feature 的处理器
+     * @param signal  取消时中止请求，并在下一个 feature 处停止解析
+     * @return 请求成功返回 true，服务器返回错误时返回 false
+     * @throws IOException                IO异常，包括请求被取消
+     * @throws OperationCanceledException 解析时请求被取消
      */
-    private static String getJsonResponse(String url) throws IOException {
+    private static boolean getEarthquakeResponse(String url, EarthquakeJsonParser.FeatureHandler handler,
+                                                 CancellationSignal signal) throws IOException {
+        Call call = newCancellableCall(url, signal);
+        handler = new CancellableHandler(handler, signal);
+
+        try (Response response = call.execute()) {
+            recordCacheResult(response);
+
+            if (!response.isSuccessful()) {
+                Log.e(LOG_TAG, "Error response code: " + response.code());
+                return false;
+            }
+
+            // 边下载边解析，不会把整个响应体读入一个字符串
+            ResponseBody body = Objects.requireNonNull(response.body());
+            long startTime = System.nanoTime();
+            int count;
+            if (isCsv(url)) {
+                count = EarthquakeCsvParser.parse(body.charStream(), handler);
+            } else {
+                count = EarthquakeJsonParser.parseFeatureCollection(new JsonReader(body.charStream()), handler);
+            }
+            long parseNanos = System.nanoTime() - startTime;
+            PerfMetrics.recordParse(parseNanos, count);
+            return true;
+        } finally {
+            signal.setOnCancelListener(null);
+        }
+    }
+
+    /**
+     * 创建请求 url 的 {@link Call}，signal 被取消时中止请求。调用者需要在请求结束后移除 signal 的监听器
+     */
+    private static Call newCancellableCall(String url, CancellationSignal signal) {
         Request request = new Request.Builder()
                 .url(url)
                 .build();
 
-        try (Response response = mOkHttpClient.newCall(request).execute()) {
-            return Objects.requireNonNull(response.body()).string();
+        final Call call = mOkHttpClient.newCall(request);
+        signal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+            @Override
+            public void onCancel() {
+                call.cancel();
+            }
+        });
+        return call;
+    }
+
+    /**
+     * 返回请求的是否为 CSV 格式的响应（FDSN 查询的 format=csv 参数，或 .csv 结尾的摘要 feed）
+     */
+    private static boolean isCsv(String url) {
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        if (httpUrl == null) {
+            return false;
         }
+        return EarthquakeQuery.FORMAT_CSV.equals(httpUrl.queryParameter("format"))
+                || httpUrl.encodedPath().endsWith(".csv");
     }
 
     /**
@@ -60,22 +252,147 @@ public class QueryUtilsPlus extends QueryUtils {
     public static List<Earthquake> fetchEarthquakeData(String requestUrl) {
         Log.i(LOG_TAG, "TEST: fetchEarthquakeData() called ...");
 
-        String jsonResponse = null;
-        try {
-            jsonResponse = getJsonResponse(requestUrl);
-        } catch (IOException e) {
-            e.printStackTrace();
+        EarthquakeColumns columns = fetchEarthquakeColumns(requestUrl);
+        return columns == null ? null : new ArrayList<>(columns.asList());
+    }
+
+    /**
+     * 查询 USGS数据集并返回按列保存的 {@link EarthquakeColumns}，不会为每个地震创建对象。
+     * 适用于结果很多的查询。
+     * <p>
+     * 规范化后相同的 URL 在进程内只会同时请求一次，其余调用者共享同一个结果；
+     * 刚完成的结果在内存中保留 {@link #RESULT_CACHE_TTL_MILLIS}。返回的结果可能被共享，调用者不能修改。
+     */
+    public static EarthquakeColumns fetchEarthquakeColumns(String requestUrl) {
+        return fetchEarthquakeColumns(requestUrl, null);
+    }
+
+    /**
+     * 与 {@link #fetchEarthquakeColumns(String)} 相同，并在解析过程中把地震按批交给 listener。
+     * 只有实际发出请求的调用者会收到通知；结果来自内存缓存或与其他调用者合并时不会通知。
+     *
+     * @param listener 按批接收地震的监听器，可以为 null
+     */
+    public static EarthquakeColumns fetchEarthquakeColumns(String requestUrl, BatchListener listener) {
+        return fetchEarthquakeColumns(requestUrl, listener, null);
+    }
+
+    /**
+     * 与 {@link #fetchEarthquakeColumns(String, BatchListener)} 相同，signal 被取消表示调用者不再需要结果。
+     * 没有其他调用者在等待同一个请求时，请求会被中止，解析在下一个地震处停止，已解析的部分结果被丢弃。
+     *
+     * @param signal 取消信号，可以为 null；在本方法返回前不能再被其他地方监听
+     * @return 地震；请求失败或被取消时返回 null
+     */
+    public static EarthquakeColumns fetchEarthquakeColumns(String requestUrl, final BatchListener listener,
+                                                           CancellationSignal signal) {
+        EarthquakeColumns columns = sResultCache.get(normalizeUrl(requestUrl),
+                new CoalescingCache.Loader<EarthquakeColumns>() {
+                    @Override
+                    public EarthquakeColumns load(String url, CancellationSignal loadSignal) {
+                        EarthquakeColumns columns = new EarthquakeColumns();
+                        EarthquakeJsonParser.FeatureHandler handler =
+                                listener == null ? columns : new BatchingHandler(columns, listener);
+                        if (!fetch(url, handler, loadSignal)) {
+                            return null;
+                        }
+                        columns.trimToSize();
+                        return columns;
+                    }
+                }, signal);
+        return columns;
+    }
+
+    /**
+     * 获取单个事件的详情（USGS detail GeoJSON），只能在后台线程调用。
+     * <p>
+     * 结果按事件 ID 在内存中保留 {@link #DETAIL_CACHE_TTL_MILLIS}，同一事件正在进行的请求会被合并；
+     * 响应同时保存在 HTTP 磁盘缓存中。
+     *
+     * @param signal 取消信号，可以为 null；在本方法返回前不能再被其他地方监听
+     * @return 事件详情；请求失败或被取消时返回 null
+     */
+    public static EarthquakeDetail fetchEarthquakeDetail(String eventId, CancellationSignal signal) {
+        return sDetailCache.get(eventId, new CoalescingCache.Loader<EarthquakeDetail>() {
+            @Override
+            public EarthquakeDetail load(String id, CancellationSignal loadSignal) {
+                String url = Objects.requireNonNull(HttpUrl.parse(EarthquakeQuery.USGS_REQUEST_URL)).newBuilder()
+                        .addQueryParameter("eventid", id)
+                        .addQueryParameter("format", EarthquakeQuery.FORMAT_GEOJSON)
+                        .build()
+                        .toString();
+
+                Call call = newCancellableCall(url, loadSignal);
+                try (Response response = call.execute()) {
+                    recordCacheResult(response);
+                    if (!response.isSuccessful()) {
+                        Log.e(LOG_TAG, "Error response code: " + response.code());
+                        return null;
+                    }
+                    ResponseBody body = Objects.requireNonNull(response.body());
+                    return EarthquakeDetailParser.parse(new JsonReader(body.charStream()));
+                } catch (IOException | IllegalStateException | NumberFormatException e) {
+                    if (!loadSignal.isCanceled()) {
+                        Log.e(LOG_TAG, "Problem retrieving the earthquake detail.", e);
+                    }
+                    return null;
+                } finally {
+                    loadSignal.setOnCancelListener(null);
+                }
+            }
+        }, signal);
+    }
+
+    /**
+     * 规范化请求 URL：主机名小写，查询参数按名称和值排序，使参数顺序不同的相同请求得到相同的键。
+     * 无法解析的 URL 原样返回。
+     */
+    static String normalizeUrl(String url) {
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        if (httpUrl == null) {
+            return url;
+        }
+
+        List<String> names = new ArrayList<>(httpUrl.queryParameterNames());
+        Collections.sort(names);
+        HttpUrl.Builder builder = httpUrl.newBuilder().query(null);
+        for (String name : names) {
+            List<String> values = new ArrayList<>(httpUrl.queryParameterValues(name));
+            Collections.sort(values, new Comparator<String>() {
+                @Override
+                public int compare(String left, String right) {
+                    return String.valueOf(left).compareTo(String.valueOf(right));
+                }
+            });
+            for (String value : values) {
+                builder.addQueryParameter(name, value);
+            }
         }
+        return builder.build().toString();
+    }
 
-        // 从 JSON 响应提取相关域，返回 {@link Earthquake} 的列表
-        return extractFeatureFromJson(jsonResponse);
+    /**
+     * 发送请求并把解析出的 feature 交给 handler，网络或解析失败时记录日志并返回 false，被取消时直接返回 false
+     */
+    private static boolean fetch(String requestUrl, EarthquakeJsonParser.FeatureHandler handler,
+                                 CancellationSignal signal) {
+        try {
+            return getEarthquakeResponse(requestUrl, handler, signal);
+        } catch (OperationCanceledException e) {
+            // 解析中途被取消，不是错误
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            if (!signal.isCanceled()) {
+                Log.e(LOG_TAG, "Problem retrieving the earthquake results.", e);
+            }
+        }
+        return false;
     }
 
 
     /**
-     * 返回通过 Gson库解析 JSON响应后的 {@link Earthquake} 对象列表。
+     * 返回通过 {@link EarthquakeJsonParser} 流式解析 JSON响应后的 {@link Earthquake} 对象列表。
      *
-     * @param earthquakeJSON 经 HTTP 请求返回的 {@link JSONObject} 响应字符串
+     * @param earthquakeJSON 经 HTTP 请求返回的 JSON 响应字符串
      */
     public static List<Earthquake> extractFeatureFromJson(String earthquakeJSON) {
         // 如果 JSON 字符串为空或 null，将提早返回。
@@ -83,50 +400,67 @@ public class QueryUtilsPlus extends QueryUtils {
             return null;
         }
 
-        // 创建一个可以添加地震的空 ArrayList
-        List<Earthquake> earthquakes = new ArrayList<>();
-
         // 尝试解析 JSON 响应字符串。如果格式化 JSON 的方式存在问题，
-        // 则将抛出 JSONException 异常对象。
+        // 则将抛出 IOException、IllegalStateException 或 NumberFormatException 异常对象。
         // 捕获该异常以便应用不会崩溃，并将错误消息打印到日志中。
         try {
+            return EarthquakeJsonParser.parseFeatureCollection(
+                    new JsonReader(new StringReader(earthquakeJSON)));
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            Log.e(LOG_TAG, "Problem parsing the earthquake JSON results", e);
+        }
 
-            // 通过 JSON 响应字符串创建 JSONObject
-            JSONObject baseJsonResponse = new JSONObject(earthquakeJSON);
-
-            // 提取与名为 "features" 的键关联的 JSONArray，
-            // 该键表示特征（或地震）列表。
-            JSONArray earthquakeArray = baseJsonResponse.getJSONArray("features");
+        // 返回空的地震列表
+        return new ArrayList<>();
+    }
 
-            // Gson 对象，用于解析（反序列化） Json格式字符串
-            Gson gson = new Gson();
+    /**
+     * 把解析出的地震保存到结果中，并每 {@link #BATCH_SIZE} 个交给 {@link BatchListener}
+     */
+    private static class BatchingHandler implements EarthquakeJsonParser.FeatureHandler {
 
-            // 针对 earthquakeArray 中的每个地震，创建 {@link Earthquake} 对象
-            for (int i = 0; i < earthquakeArray.length(); i++) {
-                // 获取地震列表中位置 i 处的单一地震
-                JSONObject currentEarthquake = earthquakeArray.getJSONObject(i);
+        private final EarthquakeColumns columns;
 
-                // 针对给定地震，提取与名为 "properties" 的键关联的 JSONObject，
-                // 该键表示该地震所有属性的列表。
-                JSONObject properties = currentEarthquake.getJSONObject("properties");
+        private final BatchListener listener;
 
-                // 从 properties JSON对象中解析与实体类属性名相同的值
-                Earthquake earthquake = gson.fromJson(properties.toString(), Earthquake.class);
+        private EarthquakeColumns batch = new EarthquakeColumns(BATCH_SIZE);
 
-                Log.i(LOG_TAG, earthquake.toString());
+        BatchingHandler(EarthquakeColumns columns, BatchListener listener) {
+            this.columns = columns;
+            this.listener = listener;
+        }
 
-                // 将该新 {@link Earthquake} 添加到地震列表。
-                earthquakes.add(earthquake);
+        @Override
+        public void onFeature(String id, double mag, String place, long time, long updated, String url,
+                              double longitude, double latitude, double depth) {
+            columns.add(id, mag, place, time, updated, url, longitude, latitude, depth);
+            batch.add(id, mag, place, time, updated, url, longitude, latitude, depth);
+            if (batch.size() == BATCH_SIZE) {
+                listener.onBatch(batch);
+                batch = new EarthquakeColumns(BATCH_SIZE);
             }
+        }
+    }
 
-        } catch (JSONException e) {
-            // 在 "try" 块中执行上述任一语句时若系统抛出错误，
-            // 则在此处捕获异常，以便应用不会崩溃。在日志消息中打印
-            // 来自异常的消息。
-            Log.e(LOG_TAG, "Problem parsing the earthquake JSON results", e);
+    /**
+     * 在交给下一个处理器之前检查取消信号，使解析在取消后的下一个地震处停止
+     */
+    private static class CancellableHandler implements EarthquakeJsonParser.FeatureHandler {
+
+        private final EarthquakeJsonParser.FeatureHandler handler;
+
+        private final CancellationSignal signal;
+
+        CancellableHandler(EarthquakeJsonParser.FeatureHandler handler, CancellationSignal signal) {
+            this.handler = handler;
+            this.signal = signal;
         }
 
-        // 返回地震列表
-        return earthquakes;
+        @Override
+        public void onFeature(String id, double mag, String place, long time, long updated, String url,
+                              double longitude, double latitude, double depth) {
+            signal.throwIfCanceled();
+            handler.onFeature(id, mag, place, time, updated, url, longitude, latitude, depth);
+        }
     }
 }
@@ -0,0 +1,67 @@
+package com.example.quakereport.util;
+
+/**
+ * 请求合并与结果缓存的统计快照，由 {@link QueryUtilsPlus#getRequestStats()} 返回。
+ **/
+public class RequestStats {
+
+    /**
+     * 请求总次数
+     */
+    private final long requestCount;
+
+    /**
+     * 实际发起网络请求的次数
+     */
+    private final long loadCount;
+
+    /**
+     * 与正在进行的相同请求合并、共享其结果的次数
+     */
+    private final long coalescedCount;
+
+    /**
+     * 直接由内存中未过期的结果返回的次数
+     */
+    private final long hitCount;
+
+    public RequestStats(long requestCount, long loadCount, long coalescedCount, long hitCount) {
+        this.requestCount = requestCount;
+        this.loadCount = loadCount;
+        this.coalescedCount = coalescedCount;
+        this.hitCount = hitCount;
+    }
+
+    public long getRequestCount() {
+        return requestCount;
+    }
+
+    public long getLoadCount() {
+        return loadCount;
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * 返回节省的网络请求次数（合并 + 内存命中）
+     */
+    public long getSavedCount() {
+        return coalescedCount + hitCount;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestStats{" +
+                "requests=" + requestCount +
+                ", loads=" + loadCount +
+                ", coalesced=" + coalescedCount +
+                ", hits=" + hitCount +
+                '}';
+    }
+}
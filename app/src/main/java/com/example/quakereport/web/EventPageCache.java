@@ -0,0 +1,170 @@
+package com.example.quakereport.web;
+
+import android.content.Context;
+import android.util.Log;
+import android.webkit.WebResourceResponse;
+
+import androidx.annotation.NonNull;
+
+import com.example.quakereport.util.QueryUtilsPlus;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * USGS 事件网页的 HTTP 缓存，用于预取用户可能打开的网页。
+ * <p>
+ * {@link #prefetch(String)} 在后台下载网页并保存到独立的 OkHttp 磁盘缓存中；
+ * {@link WebActivity} 的 WebView 请求预取过的网址时，由 {@link #intercept(String)} 直接从缓存返回，
+ * 不再访问网络。缓存中没有的网址返回 null，由 WebView 正常加载（并使用其自身的缓存）。
+ **/
+public final class EventPageCache {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = EventPageCache.class.getSimpleName();
+
+    /**
+     * 事件网页缓存的目录名（位于应用缓存目录下）
+     */
+    private static final String CACHE_DIR = "event_page_cache";
+
+    /**
+     * 事件网页缓存的最大容量：10 MiB
+     */
+    private static final long CACHE_SIZE = 10L * 1024 * 1024;
+
+    /**
+     * 预取的网页最多使用多久，超过后由 WebView 重新加载
+     */
+    private static final int MAX_STALE_MINUTES = 10;
+
+    /**
+     * 记住的已预取网址个数
+     */
+    private static final int MAX_PREFETCHED_URLS = 64;
+
+    private static volatile OkHttpClient sClient;
+
+    /**
+     * 已预取（或正在预取）的网址，只有这些网址会被拦截，按插入顺序淘汰
+     */
+    private static final Set<String> sPrefetchedUrls = Collections.newSetFromMap(
+            Collections.synchronizedMap(new LinkedHashMap<String, Boolean>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > MAX_PREFETCHED_URLS;
+                }
+            }));
+
+    private EventPageCache() {
+    }
+
+    /**
+     * 创建使用独立磁盘缓存的 OkHttpClient，与 {@link QueryUtilsPlus} 共享连接池和线程池。重复调用不会产生影响。
+     */
+    public static synchronized void init(Context context) {
+        if (sClient != null) {
+            return;
+        }
+
+        QueryUtilsPlus.init(context);
+        File cacheDir = new File(context.getApplicationContext().getCacheDir(), CACHE_DIR);
+        sClient = QueryUtilsPlus.getOkHttpClient().newBuilder()
+                .cache(new Cache(cacheDir, CACHE_SIZE))
+                .build();
+    }
+
+    /**
+     * 在后台下载网页并保存到缓存中。已预取过的网址不会重复下载。需要先调用 {@link #init(Context)}
+     */
+    public static void prefetch(final String url) {
+        OkHttpClient client = sClient;
+        if (client == null || url == null || !sPrefetchedUrls.add(url)) {
+            return;
+        }
+
+        Request request = new Request.Builder()
+                .url(url)
+                .build();
+        client.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                sPrefetchedUrls.remove(url);
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) throws IOException {
+                // 读完响应体才会写入缓存
+                try (ResponseBody body = response.body()) {
+                    if (body != null) {
+                        body.source().skip(Long.MAX_VALUE);
+                    }
+                } finally {
+                    if (!response.isSuccessful()) {
+                        sPrefetchedUrls.remove(url);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * 在 WebView 的网络线程上调用，返回缓存中预取的网页
+     *
+     * @return 网页；没有预取过或缓存中没有可用的响应时返回 null
+     */
+    static WebResourceResponse intercept(String url) {
+        OkHttpClient client = sClient;
+        if (client == null || !sPrefetchedUrls.contains(url)) {
+            return null;
+        }
+
+        Request request = new Request.Builder()
+                .url(url)
+                .cacheControl(new CacheControl.Builder()
+                        .onlyIfCached()
+                        .maxStale(MAX_STALE_MINUTES, TimeUnit.MINUTES)
+                        .build())
+                .build();
+        Response response = null;
+        try {
+            response = client.newCall(request).execute();
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                // 未缓存时 OkHttp 返回 504
+                response.close();
+                return null;
+            }
+
+            MediaType contentType = body.contentType();
+            String mimeType = contentType == null ? "text/html" : contentType.type() + "/" + contentType.subtype();
+            String encoding = contentType == null || contentType.charset() == null
+                    ? "UTF-8" : contentType.charset().name();
+            // WebView 读完并关闭输入流时释放响应
+            return new WebResourceResponse(mimeType, encoding, body.byteStream());
+        } catch (IOException e) {
+            if (response != null) {
+                response.close();
+            }
+            Log.e(LOG_TAG, "Problem reading " + url + " from the prefetch cache", e);
+            return null;
+        }
+    }
+}
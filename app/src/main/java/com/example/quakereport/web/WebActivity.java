@@ -1,10 +1,16 @@
 package com.example.quakereport.web;
 
+import android.annotation.TargetApi;
+import android.os.Build;
 import android.os.Bundle;
 import android.view.KeyEvent;
+import android.view.ViewGroup;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
+import android.widget.FrameLayout;
 
 import androidx.appcompat.app.AppCompatActivity;
 
@@ -12,6 +18,8 @@ import com.example.quakereport.R;
 
 /**
  * 用于显示地震的网页链接的活动
+ * <p>
+ * WebView 从 {@link WebViewPool} 取出（通常已预热），预取过的事件网页由 {@link EventPageCache} 直接返回。
  */
 public class WebActivity extends AppCompatActivity {
 
@@ -40,17 +48,44 @@ public class WebActivity extends AppCompatActivity {
         setTitle(place);
 
         // Get web uri to string
-        mWebView = (WebView) findViewById(R.id.webview);
+        EventPageCache.init(this);
+        mWebView = WebViewPool.acquire(this);
+        FrameLayout container = findViewById(R.id.webview_container);
+        container.addView(mWebView, new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
         String uri = getIntent().getStringExtra(WebIntentContract.S_EARTHQUAKE_URI);
 
-        // Supporting JavaScript
+        // JavaScript 等设置已在 WebViewPool 中完成
         mWebSettings = mWebView.getSettings();
-        mWebSettings.setJavaScriptEnabled(true);
+
+        // 在 WebView 中打开链接，预取过的网页直接从缓存返回
+        mWebViewClient = new WebViewClient() {
+            @Override
+            public WebResourceResponse shouldInterceptRequest(WebView view, String url) {
+                return EventPageCache.intercept(url);
+            }
+
+            @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+            @Override
+            public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+                if (!"GET".equals(request.getMethod())) {
+                    return null;
+                }
+                return EventPageCache.intercept(request.getUrl().toString());
+            }
+        };
+        mWebView.setWebViewClient(mWebViewClient);
 
         // Android WebView loadUrl
         mWebView.loadUrl(uri);
     }
 
+    @Override
+    protected void onDestroy() {
+        WebViewPool.release(mWebView);
+        super.onDestroy();
+    }
+
     @Override
     public boolean onKeyDown(int keyCode, KeyEvent event) {
         // First checks if the WebView can go back.
@@ -0,0 +1,140 @@
+package com.example.quakereport.web;
+
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.content.res.Configuration;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.ViewGroup;
+import android.webkit.WebSettings;
+import android.webkit.WebView;
+
+/**
+ * 保持一个预先创建好的 {@link WebView}，使 {@link WebActivity} 打开时不必等待 WebView 初始化。
+ * <p>
+ * 第一次创建 WebView 需要加载浏览器内核，耗时明显；预热在主线程空闲时进行，不会影响当前界面。
+ * WebView 使用 {@link MutableContextWrapper} 创建，取出时换成使用它的活动，归还时销毁，
+ * 因此各次浏览之间不会共享历史记录和页面状态。
+ * <p>
+ * 预热的 WebView 占用不少内存，只在用户可能打开网页时由调用方预热，
+ * 系统通过 {@link ComponentCallbacks2#onTrimMemory(int)} 要求释放内存（包括应用进入后台）时销毁。
+ * 只能在主线程上使用。
+ **/
+public final class WebViewPool {
+
+    /**
+     * 预热好的 WebView，没有时为 null
+     */
+    private static WebView sWarmWebView;
+
+    /**
+     * 是否已安排在空闲时预热
+     */
+    private static boolean sPrewarmScheduled;
+
+    /**
+     * 应用上下文，第一次预热时设置，同时注册内存回调
+     */
+    private static Context sAppContext;
+
+    private static final MessageQueue.IdleHandler PREWARM = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            sPrewarmScheduled = false;
+            if (sWarmWebView == null) {
+                sWarmWebView = create(sAppContext);
+            }
+            return false;
+        }
+    };
+
+    private static final ComponentCallbacks2 TRIM_CALLBACKS = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            trim();
+        }
+
+        @Override
+        public void onLowMemory() {
+            trim();
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+    };
+
+    private WebViewPool() {
+    }
+
+    /**
+     * 在主线程空闲时预热一个 WebView，已有或已安排时不会重复创建
+     */
+    public static void prewarm(Context context) {
+        if (sWarmWebView != null || sPrewarmScheduled) {
+            return;
+        }
+
+        if (sAppContext == null) {
+            sAppContext = context.getApplicationContext();
+            sAppContext.registerComponentCallbacks(TRIM_CALLBACKS);
+        }
+        sPrewarmScheduled = true;
+        Looper.myQueue().addIdleHandler(PREWARM);
+    }
+
+    /**
+     * 取消尚未进行的预热，并销毁预热好的 WebView
+     */
+    public static void trim() {
+        if (sPrewarmScheduled) {
+            Looper.myQueue().removeIdleHandler(PREWARM);
+            sPrewarmScheduled = false;
+        }
+        if (sWarmWebView != null) {
+            sWarmWebView.destroy();
+            sWarmWebView = null;
+        }
+    }
+
+    /**
+     * 取出预热好的 WebView（没有时立即创建），其上下文换成 activity
+     */
+    static WebView acquire(Activity activity) {
+        WebView webView = sWarmWebView;
+        sWarmWebView = null;
+        if (webView == null) {
+            webView = create(activity.getApplicationContext());
+        }
+        ((MutableContextWrapper) webView.getContext()).setBaseContext(activity);
+        return webView;
+    }
+
+    /**
+     * 归还并销毁 WebView。下一个 WebView 由调用方在需要时再预热
+     */
+    static void release(WebView webView) {
+        Context appContext = webView.getContext().getApplicationContext();
+        ((MutableContextWrapper) webView.getContext()).setBaseContext(appContext);
+        if (webView.getParent() instanceof ViewGroup) {
+            ((ViewGroup) webView.getParent()).removeView(webView);
+        }
+        webView.stopLoading();
+        webView.destroy();
+    }
+
+    private static WebView create(Context appContext) {
+        WebView webView = new WebView(new MutableContextWrapper(appContext));
+
+        // Supporting JavaScript
+        WebSettings settings = webView.getSettings();
+        settings.setJavaScriptEnabled(true);
+        // USGS 事件网页是单页应用，需要 DOM storage
+        settings.setDomStorageEnabled(true);
+        // 按 HTTP 缓存头使用 WebView 自身的缓存
+        settings.setCacheMode(WebSettings.LOAD_DEFAULT);
+        return webView;
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.quakereport.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 检查时间范围的拆分：子窗口首尾相接、互不重叠地覆盖整个范围，个数随事件密度变化，
+ * 达到上限的子窗口对半拆分，以及合并时按时间排序并去除边界上的重复事件。
+ */
+public class EarthquakeFetchPlannerTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * 2021-02-01 00:00 UTC 附近，不是整分钟，检查范围的端点被原样保留
+     */
+    private static final long START = 1612137600123L;
+
+    @Test
+    public void plan_slicesAreContiguousAndCoverTheWindow() {
+        double[] magnitudes = {-1, 0, 1, 2.5, 4.5, 6, 9};
+        long[] lengths = {1, TimeUnit.MINUTES.toMillis(3) + 7, DAY, 30 * DAY + 12345, 365 * DAY};
+        for (double minMagnitude : magnitudes) {
+            for (long length : lengths) {
+                List<EarthquakeFetchPlanner.Slice> slices = EarthquakeFetchPlanner.plan(
+                        minMagnitude, START, START + length);
+                assertContiguous("M" + minMagnitude + " length " + length, START, START + length, slices);
+            }
+        }
+    }
+
+    @Test
+    public void plan_sliceCountFollowsEventDensity() {
+        long end = START + 30 * DAY;
+
+        // 每天不到一个 M6 地震，一个请求就够了
+        assertEquals(1, EarthquakeFetchPlanner.plan(6, START, end).size());
+
+        // M2.5 每天约 1100 个，30 天约 34000 个，每个子窗口不超过目标个数
+        int m25 = EarthquakeFetchPlanner.plan(2.5, START, end).size();
+        double expected = EarthquakeFetchPlanner.estimateEventsPerDay(2.5) * 30;
+        assertEquals((int) Math.ceil(expected / EarthquakeFetchPlanner.TARGET_EVENTS_PER_SLICE), m25);
+        assertTrue(m25 > 1);
+
+        // 更低的最小震级不会得到更少的子窗口，目录的上限使个数不会无限增长
+        int m0 = EarthquakeFetchPlanner.plan(0, START, end).size();
+        int mNegative = EarthquakeFetchPlanner.plan(-2, START, end).size();
+        assertTrue(m0 >= m25);
+        assertEquals(m0, mNegative);
+        assertTrue(m0 * EarthquakeFetchPlanner.TARGET_EVENTS_PER_SLICE >= 1500 * 30);
+    }
+
+    @Test
+    public void plan_slicesAreNeverShorterThanTheMinimum() {
+        // 密度很高的短窗口也不会拆分到一分钟以下
+        long end = START + TimeUnit.MINUTES.toMillis(3) + 7;
+        List<EarthquakeFetchPlanner.Slice> slices = EarthquakeFetchPlanner.plan(-2, START, end);
+
+        assertTrue(slices.size() <= 3);
+        for (EarthquakeFetchPlanner.Slice slice : slices) {
+            assertTrue(slice.endTime - slice.startTime >= EarthquakeFetchPlanner.MIN_SLICE_MILLIS);
+        }
+    }
+
+    @Test
+    public void plan_zeroLengthWindow_isOneEmptySlice() {
+        List<EarthquakeFetchPlanner.Slice> slices = EarthquakeFetchPlanner.plan(2.5, START, START);
+
+        assertEquals(1, slices.size());
+        assertEquals(START, slices.get(0).startTime);
+        assertEquals(START, slices.get(0).endTime);
+    }
+
+    @Test
+    public void estimateEventsPerDay_decreasesTenfoldPerMagnitudeUntilTheCap() {
+        double m5 = EarthquakeFetchPlanner.estimateEventsPerDay(5);
+        assertEquals(m5 / 10, EarthquakeFetchPlanner.estimateEventsPerDay(6), 1e-9);
+        assertEquals(m5 * 10, EarthquakeFetchPlanner.estimateEventsPerDay(4), 1e-9);
+        assertEquals(EarthquakeFetchPlanner.estimateEventsPerDay(0), EarthquakeFetchPlanner.estimateEventsPerDay(-3), 0);
+    }
+
+    @Test
+    public void split_halvesAreContiguous() {
+        EarthquakeFetchPlanner.Slice slice = new EarthquakeFetchPlanner.Slice(START, START + DAY + 1);
+        List<EarthquakeFetchPlanner.Slice> halves = EarthquakeFetchPlanner.split(slice);
+
+        assertNotNull(halves);
+        assertEquals(2, halves.size());
+        assertContiguous("split", slice.startTime, slice.endTime, halves);
+
+        // 反复拆分直到不能再拆，每次都首尾相接，最短的子窗口不短于最小长度
+        List<EarthquakeFetchPlanner.Slice> slices = new ArrayList<>(Arrays.asList(slice));
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            List<EarthquakeFetchPlanner.Slice> next = new ArrayList<>();
+            for (EarthquakeFetchPlanner.Slice current : slices) {
+                List<EarthquakeFetchPlanner.Slice> parts = EarthquakeFetchPlanner.split(current);
+                if (parts == null) {
+                    next.add(current);
+                } else {
+                    next.addAll(parts);
+                    changed = true;
+                }
+            }
+            slices = next;
+        }
+        assertContiguous("split fully", slice.startTime, slice.endTime, slices);
+        for (EarthquakeFetchPlanner.Slice current : slices) {
+            long length = current.endTime - current.startTime;
+            assertTrue(length >= EarthquakeFetchPlanner.MIN_SLICE_MILLIS);
+            assertTrue(length < 2 * EarthquakeFetchPlanner.MIN_SLICE_MILLIS);
+        }
+    }
+
+    @Test
+    public void split_tooShortSlice_returnsNull() {
+        long almostTwoMinutes = 2 * EarthquakeFetchPlanner.MIN_SLICE_MILLIS - 1;
+        assertNull(EarthquakeFetchPlanner.split(new EarthquakeFetchPlanner.Slice(START, START + almostTwoMinutes)));
+        assertNull(EarthquakeFetchPlanner.split(new EarthquakeFetchPlanner.Slice(START, START)));
+    }
+
+    @Test
+    public void merge_ordersByTimeAndDropsBoundaryDuplicates() {
+        long middle = START + DAY;
+        EarthquakeColumns early = new EarthquakeColumns();
+        early.add("b", 3, null, middle, middle, null);
+        early.add("c", 3, null, START + 10, START + 10, null);
+        early.add(null, 3, null, START + 5, START + 5, null);
+        EarthquakeColumns late = new EarthquakeColumns();
+        late.add("a", 3, null, middle + 10, middle + 10, null);
+        late.add(null, 3, null, middle + 1, middle + 1, null);
+        // 恰好在边界上的事件同时出现在两个子窗口中
+        late.add("b", 3, null, middle, middle, null);
+
+        // 完成的顺序与时间顺序无关
+        List<EarthquakeFetchPlanner.SliceResult> results = Arrays.asList(
+                new EarthquakeFetchPlanner.SliceResult(new EarthquakeFetchPlanner.Slice(START, middle), early),
+                new EarthquakeFetchPlanner.SliceResult(new EarthquakeFetchPlanner.Slice(middle, START + 2 * DAY), late));
+        EarthquakeColumns merged = EarthquakeFetchPlanner.merge(results);
+
+        // 没有 ID 的事件无法判断是否重复，全部保留
+        assertEquals(5, merged.size());
+        long previousTime = Long.MAX_VALUE;
+        for (int i = 0; i < merged.size(); i++) {
+            assertTrue(merged.getTime(i) <= previousTime);
+            previousTime = merged.getTime(i);
+        }
+        assertEquals("a", merged.getId(0));
+        assertNull(merged.getId(1));
+        assertEquals("b", merged.getId(2));
+        assertEquals("c", merged.getId(3));
+        assertNull(merged.getId(4));
+    }
+
+    /**
+     * 检查子窗口按顺序首尾相接，从 startTime 开始到 endTime 结束，且每个子窗口的长度不为负
+     */
+    private static void assertContiguous(String message, long startTime, long endTime,
+                                         List<EarthquakeFetchPlanner.Slice> slices) {
+        assertFalse(message, slices.isEmpty());
+        long expectedStart = startTime;
+        for (EarthquakeFetchPlanner.Slice slice : slices) {
+            assertEquals(message, expectedStart, slice.startTime);
+            assertTrue(message, slice.endTime >= slice.startTime);
+            expectedStart = slice.endTime;
+        }
+        assertEquals(message, endTime, expectedStart);
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.quakereport.data;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 检查四叉树在各种聚合尺寸下返回的聚合覆盖每个事件恰好一次。
+ */
+public class EarthquakeQuadtreeTest {
+
+    private static final int SIZE = 20000;
+
+    private static final float[] CLUSTER_DEGREES = {0, 0.01f, 0.5f, 2, 10, 45, 360};
+
+    private EarthquakeColumns earthquakes;
+    private EarthquakeQuadtree quadtree;
+
+    @Before
+    public void setUp() {
+        Random random = new Random(3);
+        earthquakes = new EarthquakeColumns(SIZE + 100);
+        for (int i = 0; i < SIZE; i++) {
+            // 一半的事件集中在几个热点附近
+            double latitude;
+            double longitude;
+            if (i % 2 == 0) {
+                latitude = random.nextDouble() * 180 - 90;
+                longitude = random.nextDouble() * 360 - 180;
+            } else {
+                int hotspot = random.nextInt(3);
+                latitude = new double[]{35.7, -33.4, 61.2}[hotspot] + random.nextGaussian();
+                longitude = new double[]{139.7, -70.6, -149.9}[hotspot] + random.nextGaussian();
+            }
+            earthquakes.add("id" + i, random.nextDouble() * 9, null, i, i, null, longitude, latitude, 10);
+        }
+        // 坐标完全相同的事件超过叶子容量，以及两极和 180° 经线上的事件
+        for (int i = 0; i < 50; i++) {
+            earthquakes.add("same" + i, 9.5, null, 0, 0, null, 12.5, 41.9, 10);
+        }
+        earthquakes.add("north", 1, null, 0, 0, null, 180, 90, 10);
+        earthquakes.add("south", 1, null, 0, 0, null, -180, -90, 10);
+        earthquakes.add("unknown", 1, null, 0, 0, null);
+        quadtree = new EarthquakeQuadtree(earthquakes);
+    }
+
+    @Test
+    public void size_excludesEarthquakesWithoutLocation() {
+        assertEquals(SIZE + 52, quadtree.size());
+    }
+
+    @Test
+    public void worldQuery_clusterCountsSumToSize() {
+        for (float clusterDegrees : CLUSTER_DEGREES) {
+            Counter counter = new Counter();
+            quadtree.query(-180, -90, 180, 90, clusterDegrees, counter);
+
+            assertEquals("cluster " + clusterDegrees, quadtree.size(), counter.total);
+            assertEquals("cluster " + clusterDegrees, 9.5f, counter.maxMagnitude, 0);
+        }
+    }
+
+    @Test
+    public void worldQuery_clusterCountShrinksWithClusterSize() {
+        int previousVisits = Integer.MAX_VALUE;
+        for (float clusterDegrees : CLUSTER_DEGREES) {
+            Counter counter = new Counter();
+            quadtree.query(-180, -90, 180, 90, clusterDegrees, counter);
+
+            assertTrue("cluster " + clusterDegrees, counter.visits <= previousVisits);
+            previousVisits = counter.visits;
+            if (clusterDegrees == 0) {
+                // 不聚合时每个事件单独返回
+                assertEquals(quadtree.size(), counter.visits);
+            } else if (clusterDegrees == 45) {
+                // 范围不超过 45° 的最大节点是 45°×22.5°，整个世界最多 8 × 8 个
+                assertTrue(counter.visits <= 8 * 8);
+            } else if (clusterDegrees == 360) {
+                assertEquals(1, counter.visits);
+            }
+        }
+    }
+
+    @Test
+    public void viewportQuery_coversEveryVisibleEventOnce() {
+        float[][] viewports = {{130, 30, 150, 45}, {-80, -40, -60, -25}, {-10, -10, 10, 10}, {170, 80, 180, 90}};
+        for (float[] viewport : viewports) {
+            int visible = 0;
+            for (int row = 0; row < earthquakes.size(); row++) {
+                double latitude = earthquakes.getLatitude(row);
+                double longitude = earthquakes.getLongitude(row);
+                if (longitude >= viewport[0] && longitude <= viewport[2]
+                        && latitude >= viewport[1] && latitude <= viewport[3]) {
+                    visible++;
+                }
+            }
+
+            for (float clusterDegrees : CLUSTER_DEGREES) {
+                Counter counter = new Counter(viewport);
+                quadtree.query(viewport[0], viewport[1], viewport[2], viewport[3], clusterDegrees, counter);
+
+                // 与可见范围相交的节点可能包含范围外的事件，但每个可见事件都被计入
+                assertTrue(counter.total >= visible);
+                assertTrue(counter.total <= quadtree.size());
+                if (clusterDegrees == 0) {
+                    // 不聚合时每个事件单独返回，可见范围内的恰好是可见的事件
+                    assertEquals(counter.total, counter.visits);
+                    assertEquals(visible, counter.visitsInViewport);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void emptyTree_visitsNothing() {
+        EarthquakeColumns none = new EarthquakeColumns();
+        none.add("unknown", 1, null, 0, 0, null);
+        EarthquakeQuadtree empty = new EarthquakeQuadtree(none);
+        Counter counter = new Counter();
+        empty.query(-180, -90, 180, 90, 0, counter);
+
+        assertEquals(0, empty.size());
+        assertEquals(0, counter.visits);
+    }
+
+    /**
+     * 统计聚合的个数、事件总数和最大震级
+     */
+    private static class Counter implements EarthquakeQuadtree.Visitor {
+        private final float[] viewport;
+
+        int visits;
+        int visitsInViewport;
+        int total;
+        float maxMagnitude = Float.NEGATIVE_INFINITY;
+
+        Counter() {
+            this(new float[]{-180, -90, 180, 90});
+        }
+
+        Counter(float[] viewport) {
+            this.viewport = viewport;
+        }
+
+        @Override
+        public void visit(float longitude, float latitude, int count, float maxMagnitude) {
+            visits++;
+            total += count;
+            this.maxMagnitude = Math.max(this.maxMagnitude, maxMagnitude);
+            if (longitude >= viewport[0] && longitude <= viewport[2]
+                    && latitude >= viewport[1] && latitude <= viewport[3]) {
+                visitsInViewport++;
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.quakereport.data;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 用逐个计算距离的暴力搜索检查网格空间索引的半径、矩形和最近查询。
+ */
+public class EarthquakeSpatialIndexTest {
+
+    private static final int SIZE = 5000;
+
+    /**
+     * 查询中心：普通位置、两极附近、180° 经线两侧
+     */
+    private static final double[][] CENTERS = {
+            {38.3, 142.4}, {0, 0}, {-33.4, -70.6}, {89.5, 10}, {-89.9, -120},
+            {51.2, 179.8}, {-17.8, -179.9}, {65, -179.5}
+    };
+
+    private static final double[] RADII_KM = {0, 1, 50, 300, 1500, 8000, 25000};
+
+    private EarthquakeColumns earthquakes;
+    private EarthquakeSpatialIndex index;
+
+    @Before
+    public void setUp() {
+        Random random = new Random(42);
+        earthquakes = new EarthquakeColumns(SIZE + 1);
+        for (int i = 0; i < SIZE; i++) {
+            double latitude;
+            double longitude;
+            if (i % 4 == 0) {
+                // 一部分地震集中在两极和 180° 经线附近
+                latitude = (random.nextBoolean() ? 1 : -1) * (85 + random.nextDouble() * 5);
+                longitude = random.nextDouble() * 360 - 180;
+            } else if (i % 4 == 1) {
+                latitude = random.nextDouble() * 120 - 60;
+                longitude = random.nextBoolean() ? 180 - random.nextDouble() * 3 : -180 + random.nextDouble() * 3;
+            } else {
+                latitude = Math.toDegrees(Math.asin(random.nextDouble() * 2 - 1));
+                longitude = random.nextDouble() * 360 - 180;
+            }
+            earthquakes.add("id" + i, random.nextDouble() * 8, null, i, i, null, longitude, latitude, 10);
+        }
+        // 恰好在边界上的点，以及没有坐标的地震
+        earthquakes.add("edge", 5, null, 0, 0, null, 180, 90, 10);
+        earthquakes.add("unknown", 5, null, 0, 0, null);
+        index = new EarthquakeSpatialIndex(earthquakes);
+    }
+
+    @Test
+    public void size_excludesEarthquakesWithoutLocation() {
+        assertEquals(SIZE + 1, index.size());
+    }
+
+    @Test
+    public void withinRadius_matchesBruteForce() {
+        for (double[] center : CENTERS) {
+            for (double radiusKm : RADII_KM) {
+                int[] expected = bruteForceWithinRadius(center[0], center[1], radiusKm);
+                int[] actual = index.withinRadius(center[0], center[1], radiusKm);
+                Arrays.sort(actual);
+                assertArrayEquals(Arrays.toString(center) + " r=" + radiusKm, expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void withinRadius_negativeRadius_isEmpty() {
+        assertEquals(0, index.withinRadius(0, 0, -1).length);
+    }
+
+    @Test
+    public void withinBounds_matchesBruteForce() {
+        double[][] bounds = {
+                {30, 130, 45, 150}, {-10, -10, 10, 10}, {80, -180, 90, 180}, {-90, -180, 90, 180},
+                // 跨越 180° 经线
+                {-20, 170, 20, -170}, {50, 179, 70, -179.5},
+                {0, 0, 0, 0}
+        };
+        for (double[] b : bounds) {
+            int[] expected = bruteForceWithinBounds(b[0], b[1], b[2], b[3]);
+            int[] actual = index.withinBounds(b[0], b[1], b[2], b[3]);
+            Arrays.sort(actual);
+            assertArrayEquals(Arrays.toString(b), expected, actual);
+        }
+        assertEquals(0, index.withinBounds(10, 0, -10, 10).length);
+    }
+
+    @Test
+    public void nearest_matchesBruteForce() {
+        for (double[] center : CENTERS) {
+            for (int count : new int[]{1, 10, 200, SIZE + 10}) {
+                int[] actual = index.nearest(center[0], center[1], count);
+                double[] expected = bruteForceSortedDistances(center[0], center[1]);
+                assertEquals(Math.min(count, expected.length), actual.length);
+
+                // 距离相同的地震顺序不确定，只比较距离
+                for (int i = 0; i < actual.length; i++) {
+                    assertEquals(Arrays.toString(center) + " #" + i, expected[i],
+                            haversineKm(center[0], center[1], actual[i]), 0.002);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void earthquakeIndex_queryWithinRadius_filtersAndOrdersByMagnitude() {
+        EarthquakeIndex earthquakeIndex = new EarthquakeIndex(earthquakes, 0);
+        EarthquakeQuery query = new EarthquakeQuery(4, EarthquakeQuery.ORDER_BY_MAGNITUDE, 20);
+        EarthquakeColumns result = earthquakeIndex.queryWithinRadius(query, 51.2, 179.8, 1500);
+
+        int[] rows = bruteForceWithinRadius(51.2, 179.8, 1500);
+        double[] expected = new double[rows.length];
+        int count = 0;
+        for (int row : rows) {
+            if (earthquakes.getMag(row) >= 4) {
+                expected[count++] = -earthquakes.getMag(row);
+            }
+        }
+        Arrays.sort(expected, 0, count);
+
+        assertEquals(Math.min(20, count), result.size());
+        for (int i = 0; i < result.size(); i++) {
+            assertEquals(-expected[i], result.getMag(i), 0);
+        }
+    }
+
+    @Test
+    public void distanceKm_knownDistance() {
+        EarthquakeColumns pair = new EarthquakeColumns();
+        // 赤道上相差 1° 经度
+        pair.add("a", 1, null, 0, 0, null, 1, 0, 0);
+        EarthquakeSpatialIndex pairIndex = new EarthquakeSpatialIndex(pair);
+        assertEquals(EarthquakeSpatialIndex.EARTH_RADIUS_KM * Math.PI / 180, pairIndex.distanceKm(0, 0, 0), 1e-9);
+        assertEquals(0, pairIndex.distanceKm(0, 1, 0), 1e-9);
+    }
+
+    private int[] bruteForceWithinRadius(double latitude, double longitude, double radiusKm) {
+        int[] rows = new int[earthquakes.size()];
+        int count = 0;
+        for (int row = 0; row < earthquakes.size(); row++) {
+            if (!Double.isNaN(earthquakes.getLatitude(row)) && haversineKm(latitude, longitude, row) <= radiusKm) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    private int[] bruteForceWithinBounds(double south, double west, double north, double east) {
+        int[] rows = new int[earthquakes.size()];
+        int count = 0;
+        for (int row = 0; row < earthquakes.size(); row++) {
+            double latitude = earthquakes.getLatitude(row);
+            double longitude = earthquakes.getLongitude(row);
+            if (Double.isNaN(latitude) || latitude < south || latitude > north) {
+                continue;
+            }
+            boolean inLongitude = west <= east
+                    ? longitude >= west && longitude <= east
+                    : longitude >= west || longitude <= east;
+            if (inLongitude) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    private double[] bruteForceSortedDistances(double latitude, double longitude) {
+        double[] distances = new double[index.size()];
+        int count = 0;
+        for (int row = 0; row < earthquakes.size(); row++) {
+            if (!Double.isNaN(earthquakes.getLatitude(row))) {
+                distances[count++] = haversineKm(latitude, longitude, row);
+            }
+        }
+        Arrays.sort(distances);
+        return distances;
+    }
+
+    /**
+     * 独立于被测代码的 haversine 大圆距离
+     */
+    private double haversineKm(double latitude, double longitude, int row) {
+        double lat1 = Math.toRadians(latitude);
+        double lat2 = Math.toRadians(earthquakes.getLatitude(row));
+        double dLat = lat2 - lat1;
+        double dLon = Math.toRadians(earthquakes.getLongitude(row) - longitude);
+        double a = Math.pow(Math.sin(dLat / 2), 2) + Math.cos(lat1) * Math.cos(lat2) * Math.pow(Math.sin(dLon / 2), 2);
+        return 2 * EarthquakeSpatialIndex.EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.quakereport.data;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 检查聚合统计在加入、移除事件后的结果，以及时间格随当前时间跨过整点和 UTC 日界时的滚动。
+ */
+public class EarthquakeStatsTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * 2021-03-01 23:30 UTC，离日界还有半小时
+     */
+    private static final long NOW = Instant.parse("2021-03-01T23:30:00Z").toEpochMilli();
+
+    private EarthquakeStats stats;
+
+    @Before
+    public void setUp() {
+        stats = new EarthquakeStats();
+    }
+
+    @Test
+    public void empty() {
+        EarthquakeStats.Summary summary = stats.summarize(0, NOW);
+
+        assertEquals(0, summary.getCount());
+        assertTrue(Double.isNaN(summary.getMaxMagnitude()));
+        assertEquals(0, summary.getLastWeekCount());
+        assertArrayEquals(new int[EarthquakeStats.HISTOGRAM_DAYS], summary.getDailyCounts());
+    }
+
+    @Test
+    public void apply_countsBandsAndMax() {
+        apply(NOW, 4.5, NOW - 10 * MINUTE, 1,
+                2.55, NOW - 2 * HOUR, 1,
+                2.54, NOW - 3 * DAY, 1,
+                0.3, NOW - DAY - HOUR, 1,
+                -0.8, NOW - 5 * MINUTE, 1,
+                10.4, NOW - 20 * DAY, 1);
+
+        EarthquakeStats.Summary summary = stats.summarize(-5, NOW);
+        assertEquals(6, summary.getCount());
+        assertEquals(10.4, summary.getMaxMagnitude(), 1e-9);
+        // 负震级计入第一段，10 级以上计入最后一段
+        assertEquals(2, summary.getBandCount(0));
+        assertEquals(2, summary.getBandCount(2));
+        assertEquals(1, summary.getBandCount(4));
+        assertEquals(1, summary.getBandCount(EarthquakeStats.BAND_COUNT - 1));
+        assertEquals(2, summary.getLastHourCount());
+        assertEquals(3, summary.getLastDayCount());
+        assertEquals(5, summary.getLastWeekCount());
+    }
+
+    @Test
+    public void summarize_filtersByMinMagnitude() {
+        apply(NOW, 4.5, NOW - 10 * MINUTE, 1,
+                2.55, NOW - 2 * HOUR, 1,
+                2.54, NOW - 3 * HOUR, 1,
+                2.49, NOW - 4 * HOUR, 1);
+
+        // 总数和震级段按 0.01 精确筛选
+        EarthquakeStats.Summary summary = stats.summarize(2.55, NOW);
+        assertEquals(2, summary.getCount());
+        assertEquals(1, summary.getBandCount(2));
+
+        // 时间格按 0.1 分档，2.5 档中略小于 2.55 的事件也被计入
+        assertEquals(3, summary.getLastDayCount());
+
+        summary = stats.summarize(2.5, NOW);
+        assertEquals(3, summary.getCount());
+        assertEquals(3, summary.getLastDayCount());
+
+        summary = stats.summarize(5, NOW);
+        assertEquals(0, summary.getCount());
+        assertTrue(Double.isNaN(summary.getMaxMagnitude()));
+        assertEquals(0, summary.getLastHourCount());
+    }
+
+    @Test
+    public void evict_removesFromEveryCount() {
+        apply(NOW, 4.5, NOW - 10 * MINUTE, 1,
+                3.2, NOW - 2 * HOUR, 1,
+                1.1, NOW - 3 * DAY, 1);
+        apply(NOW, 4.5, NOW - 10 * MINUTE, -1,
+                1.1, NOW - 3 * DAY, -1);
+
+        EarthquakeStats.Summary summary = stats.summarize(0, NOW);
+        assertEquals(1, summary.getCount());
+        assertEquals(3.2, summary.getMaxMagnitude(), 1e-9);
+        assertEquals(0, summary.getBandCount(4));
+        assertEquals(0, summary.getLastHourCount());
+        assertEquals(1, summary.getLastWeekCount());
+        assertEquals(1, sum(summary.getDailyCounts()));
+    }
+
+    @Test
+    public void update_movesEventToNewMagnitude() {
+        apply(NOW, 3.2, NOW - HOUR, 1);
+        // 更新由移除旧值和加入新值组成
+        apply(NOW, 3.2, NOW - HOUR, -1,
+                5.1, NOW - HOUR, 1);
+
+        EarthquakeStats.Summary summary = stats.summarize(0, NOW);
+        assertEquals(1, summary.getCount());
+        assertEquals(0, summary.getBandCount(3));
+        assertEquals(1, summary.getBandCount(5));
+        assertEquals(1, stats.summarize(5, NOW).getLastDayCount());
+    }
+
+    @Test
+    public void evictUnknownEvent_neverGoesNegative() {
+        apply(NOW, 2.0, NOW - HOUR, -1);
+        apply(NOW, 2.0, NOW - HOUR, 1);
+
+        EarthquakeStats.Summary summary = stats.summarize(0, NOW);
+        assertEquals(1, summary.getCount());
+        assertEquals(1, summary.getLastDayCount());
+    }
+
+    @Test
+    public void dayBoundary_shiftsDailyHistogram() {
+        apply(NOW, 2.0, NOW - 20 * MINUTE, 1,
+                3.0, NOW - 90 * MINUTE, 1,
+                4.0, NOW - 23 * HOUR - 40 * MINUTE, 1);
+
+        int last = EarthquakeStats.HISTOGRAM_DAYS - 1;
+        EarthquakeStats.Summary before = stats.summarize(0, NOW);
+        int[] daily = before.getDailyCounts();
+        assertEquals(2, daily[last]);
+        assertEquals(1, daily[last - 1]);
+        assertEquals(1, before.getLastHourCount());
+        assertEquals(3, before.getLastDayCount());
+
+        // 一小时后已是第二天：今天没有事件，前两天各自后移一格
+        long later = NOW + HOUR;
+        EarthquakeStats.Summary after = stats.summarize(0, later);
+        daily = after.getDailyCounts();
+        assertEquals(0, daily[last]);
+        assertEquals(2, daily[last - 1]);
+        assertEquals(1, daily[last - 2]);
+        assertEquals(0, after.getLastHourCount());
+        assertEquals(2, after.getLastDayCount());
+        assertEquals(3, after.getLastWeekCount());
+        // 按 0.01 分档的总数不随时间变化，旧事件由删除移除
+        assertEquals(3, after.getCount());
+
+        // 日界之后加入的事件计入新的一天
+        apply(later, 5.0, later - 10 * MINUTE, 1);
+        daily = stats.summarize(0, later).getDailyCounts();
+        assertEquals(1, daily[last]);
+        assertEquals(2, daily[last - 1]);
+    }
+
+    @Test
+    public void oldSlots_areClearedWhenTheRingWraps() {
+        apply(NOW, 2.0, NOW - 2 * DAY, 1);
+
+        long muchLater = NOW + EarthquakeStats.HISTOGRAM_DAYS * DAY;
+        EarthquakeStats.Summary summary = stats.summarize(0, muchLater);
+        assertEquals(0, sum(summary.getDailyCounts()));
+        assertEquals(0, summary.getLastWeekCount());
+
+        // 已滚出窗口的事件被删除时不影响新的时间格
+        apply(muchLater, 2.0, NOW - 2 * DAY, -1,
+                2.0, muchLater - HOUR, 1);
+        summary = stats.summarize(0, muchLater);
+        assertEquals(1, summary.getCount());
+        assertEquals(1, sum(summary.getDailyCounts()));
+        assertEquals(1, summary.getLastDayCount());
+    }
+
+    @Test
+    public void futureEvent_countsInCurrentSlot() {
+        apply(NOW, 2.0, NOW + 5 * MINUTE, 1);
+
+        EarthquakeStats.Summary summary = stats.summarize(0, NOW);
+        assertEquals(1, summary.getLastHourCount());
+        assertEquals(1, summary.getDailyCounts()[EarthquakeStats.HISTOGRAM_DAYS - 1]);
+    }
+
+    /**
+     * 以 now 为当前时间应用若干个 (震级, 时间, 增量) 三元组
+     */
+    private void apply(long now, Object... magTimeDeltas) {
+        EarthquakeStats.Changes changes = new EarthquakeStats.Changes();
+        for (int i = 0; i < magTimeDeltas.length; i += 3) {
+            changes.add(((Number) magTimeDeltas[i]).doubleValue(), ((Number) magTimeDeltas[i + 1]).longValue(),
+                    ((Number) magTimeDeltas[i + 2]).intValue());
+        }
+        stats.apply(changes, now);
+    }
+
+    private static int sum(int[] values) {
+        int sum = 0;
+        for (int value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+}
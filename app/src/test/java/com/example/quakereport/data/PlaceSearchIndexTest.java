@@ -0,0 +1,250 @@
+package com.example.quakereport.data;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 检查位置索引的前缀匹配、重音和大小写规范化、多个词的交集，以及增量更新和删除。
+ */
+public class PlaceSearchIndexTest {
+
+    private PlaceSearchIndex index;
+
+    @Before
+    public void setUp() {
+        index = new PlaceSearchIndex();
+        index.add("ci1", "Ridgecrest, CA");
+        index.add("ci2", "Ridgecrest, CA");
+        index.add("ci3", "Ridge Route, CA");
+        index.add("us1", "Oaxaca, México");
+        index.add("us2", "Mexico City, Mexico");
+        index.add("ak1", "Anchorage, Alaska");
+        index.add("nc1", "The Geysers, CA");
+    }
+
+    @Test
+    public void emptyQuery_returnsNull() {
+        assertNull(index.search(""));
+        assertNull(index.search("  ,- "));
+        assertNull(index.search(null));
+    }
+
+    @Test
+    public void prefix_matchesAllTokensStartingWithIt() {
+        assertMatches("ridge", "ci1", "ci2", "ci3");
+        assertMatches("ridgec", "ci1", "ci2");
+        assertMatches("ridgecrest", "ci1", "ci2");
+        assertMatches("ridgecrestx");
+        assertMatches("c", "ci1", "ci2", "ci3", "us2", "nc1");
+    }
+
+    @Test
+    public void prefix_onlyMatchesTokenStarts() {
+        // "crest" 出现在 "ridgecrest" 中间，不是任何词的前缀
+        assertMatches("crest");
+    }
+
+    @Test
+    public void accentsAndCase_areIgnored() {
+        assertMatches("mexico", "us1", "us2");
+        assertMatches("MÉXICO", "us1", "us2");
+        assertMatches("méx", "us1", "us2");
+        assertMatches("OAX", "us1");
+    }
+
+    @Test
+    public void multipleTokens_areIntersected() {
+        assertMatches("ridge ca", "ci1", "ci2", "ci3");
+        assertMatches("ridge route", "ci3");
+        assertMatches("ca geys", "nc1");
+        assertMatches("mexico city", "us2");
+        assertMatches("ca alaska");
+        // 词的顺序和分隔符不影响结果
+        assertMatches("city,mex", "us2");
+    }
+
+    @Test
+    public void reAdd_samePlace_isNoOp() {
+        index.add("ci1", "Ridgecrest, CA");
+
+        assertEquals(7, index.size());
+        assertMatches("ridgecrest", "ci1", "ci2");
+    }
+
+    @Test
+    public void reAdd_changedPlace_replacesOldTokens() {
+        index.add("ci1", "Trona, CA");
+
+        assertEquals(7, index.size());
+        assertMatches("ridgecrest", "ci2");
+        assertMatches("trona", "ci1");
+        assertMatches("ca", "ci1", "ci2", "ci3", "nc1");
+    }
+
+    @Test
+    public void remove_dropsEventAndUnusedTokens() {
+        index.remove("ak1");
+        index.remove("ak1");
+        index.remove("missing");
+
+        assertEquals(6, index.size());
+        assertMatches("anchorage");
+        assertMatches("a");
+
+        index.add("ak1", "Anchorage, Alaska");
+        assertMatches("anch", "ak1");
+    }
+
+    @Test
+    public void nullIdAndPlace() {
+        index.add(null, "Nowhere");
+        index.add("xx1", null);
+
+        assertEquals(8, index.size());
+        assertMatches("nowhere");
+        index.remove("xx1");
+        assertEquals(7, index.size());
+    }
+
+    @Test
+    public void clear_removesEverything() {
+        index.clear();
+
+        assertEquals(0, index.size());
+        assertMatches("ridge");
+        index.add("ci1", "Ridgecrest, CA");
+        assertMatches("ridge", "ci1");
+    }
+
+    @Test
+    public void randomUpdates_matchBruteForce() {
+        String[] words = {"ridgecrest", "ridge", "río", "rio", "san", "santa", "sand", "point", "pointe", "ca",
+                "baja", "bajío", "mexico", "méxico", "alaska", "al"};
+        Random random = new Random(7);
+        PlaceSearchIndex randomIndex = new PlaceSearchIndex();
+        Map<String, String> places = new HashMap<>();
+
+        for (int step = 0; step < 3000; step++) {
+            String id = "id" + random.nextInt(200);
+            if (random.nextInt(5) == 0) {
+                randomIndex.remove(id);
+                places.remove(id);
+            } else {
+                StringBuilder place = new StringBuilder();
+                int wordCount = 1 + random.nextInt(3);
+                for (int i = 0; i < wordCount; i++) {
+                    place.append(i == 0 ? "" : ", ").append(words[random.nextInt(words.length)]);
+                }
+                randomIndex.add(id, place.toString());
+                places.put(id, place.toString());
+            }
+
+            if (step % 50 == 0) {
+                assertEquals(places.size(), randomIndex.size());
+                for (String query : new String[]{"r", "ri", "rio", "san", "sa p", "méx", "baj ca", "al", "zz"}) {
+                    PlaceSearchIndex.Result result = randomIndex.search(query);
+                    int expectedCount = 0;
+                    for (Map.Entry<String, String> entry : places.entrySet()) {
+                        boolean expected = bruteForceMatches(entry.getValue(), query);
+                        assertEquals(query + " / " + entry.getValue(), expected, result.contains(entry.getKey()));
+                        if (expected) {
+                            expectedCount++;
+                        }
+                    }
+                    assertEquals(query, expectedCount, result.size());
+                    assertEquals(query, expectedCount, result.getIds().length);
+                    for (String matchedId : result.getIds()) {
+                        assertTrue(query + " / " + matchedId, bruteForceMatches(places.get(matchedId), query));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void getIds_returnsOnlyMatchingEvents() {
+        index.remove("ci2");
+        String[] ids = index.search("ridge").getIds();
+        Arrays.sort(ids);
+
+        assertArrayEquals(new String[]{"ci1", "ci3"}, ids);
+        assertEquals(0, index.search("zz").getIds().length);
+    }
+
+    @Test
+    public void manyUpdates_renumberWithoutLosingEvents() {
+        // 反复更新同一批事件，编号被多次重新分配
+        for (int round = 0; round < 200; round++) {
+            for (int i = 0; i < 10; i++) {
+                index.add("up" + i, round % 2 == 0 ? "Trona, CA" : "Ridgecrest, CA");
+            }
+        }
+
+        assertEquals(17, index.size());
+        assertMatches("trona");
+        assertEquals(12, index.search("ridgecrest").getIds().length);
+        assertMatches("anchorage", "ak1");
+    }
+
+    @Test
+    public void earthquakeIndex_queryByIds_filtersAndOrdersByMagnitude() {
+        EarthquakeColumns earthquakes = new EarthquakeColumns();
+        earthquakes.add("ci1", 2.1, "10km N of Ridgecrest, CA", 1, 1, null);
+        earthquakes.add("ci2", 4.4, "5km W of Ridgecrest, CA", 2, 2, null);
+        earthquakes.add("ci3", 3.0, "Ridge Route, CA", 3, 3, null);
+        earthquakes.add("ak1", 5.0, "Anchorage, Alaska", 4, 4, null);
+        EarthquakeIndex earthquakeIndex = new EarthquakeIndex(earthquakes, 0);
+
+        String[] ids = index.search("ridge").getIds();
+        EarthquakeColumns result = earthquakeIndex.queryByIds(
+                new EarthquakeQuery(2.5, EarthquakeQuery.ORDER_BY_MAGNITUDE, 10), ids);
+
+        assertEquals(2, result.size());
+        assertEquals("ci2", result.getId(0));
+        assertEquals("ci3", result.getId(1));
+        assertEquals(0, earthquakeIndex.queryByIds(
+                new EarthquakeQuery(0, EarthquakeQuery.ORDER_BY_TIME, 10), new String[]{"missing"}).size());
+    }
+
+    private void assertMatches(String query, String... ids) {
+        PlaceSearchIndex.Result result = index.search(query);
+        assertNotNull(query, result);
+        assertEquals(query, ids.length, result.size());
+        for (String id : ids) {
+            assertTrue(query + " should match " + id, result.contains(id));
+        }
+    }
+
+    private static boolean bruteForceMatches(String place, String query) {
+        String[] placeTokens = normalize(place).split("[^\\p{L}\\p{N}]+");
+        for (String queryToken : normalize(query).split("[^\\p{L}\\p{N}]+")) {
+            if (queryToken.isEmpty()) {
+                continue;
+            }
+            boolean found = false;
+            for (String placeToken : placeTokens) {
+                if (placeToken.startsWith(queryToken)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String normalize(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}+", "").toLowerCase(Locale.ROOT);
+    }
+}
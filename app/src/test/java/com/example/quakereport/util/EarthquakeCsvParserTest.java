@@ -0,0 +1,226 @@
+package com.example.quakereport.util;
+
+import com.example.quakereport.Earthquake;
+import com.google.gson.stream.JsonReader;
+
+import org.junit.Test;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 用同一组事件的 CSV 和 GeoJSON 响应比较两个解析器的结果，并检查 CSV 解析器自己的数字和时间解析。
+ */
+public class EarthquakeCsvParserTest {
+
+    /**
+     * 三个事件：带小数秒的时间、闰日、带逗号和引号转义的位置、缺失的震级和深度
+     */
+    private static final String CSV_FIXTURE =
+            "time,latitude,longitude,depth,mag,magType,nst,gap,dmin,rms,net,id,updated,place,type\n"
+                    + "2021-02-21T01:37:00.123Z,38.4536,141.8027,49.37,5.8,mww,,33,1.12,0.77,us,us7000abcd,"
+                    + "2021-02-21T02:10:45.040Z,\"58 km ENE of Ishinomaki, Japan\",earthquake\n"
+                    + "2020-02-29T23:59:59.999Z,61.2,-149.9,35.2,1.4,ml,,,,0.5,ak,ak0212,"
+                    + "2020-03-01T00:00:00.000Z,\"10 km \"\"N\"\" of Anchorage, Alaska\",earthquake\n"
+                    + "1999-12-31T12:00:00.000Z,-0.5,-179.99,,,,,,,,nc,nc7300,"
+                    + "2000-01-02T03:04:05.600Z,\"Fiji region, Fiji\",earthquake\n";
+
+    private static final String JSON_FIXTURE = "{\"type\":\"FeatureCollection\","
+            + "\"metadata\":{\"count\":3},"
+            + "\"features\":["
+            + "{\"type\":\"Feature\",\"properties\":{\"mag\":5.8,\"place\":\"58 km ENE of Ishinomaki, Japan\","
+            + "\"time\":1613871420123,\"updated\":1613873445040,"
+            + "\"url\":\"https://earthquake.usgs.gov/earthquakes/eventpage/us7000abcd\",\"magType\":\"mww\"},"
+            + "\"geometry\":{\"type\":\"Point\",\"coordinates\":[141.8027,38.4536,49.37]},\"id\":\"us7000abcd\"},"
+            + "{\"type\":\"Feature\",\"properties\":{\"mag\":1.4,\"place\":\"10 km \\\"N\\\" of Anchorage, Alaska\","
+            + "\"time\":1583020799999,\"updated\":1583020800000,"
+            + "\"url\":\"https://earthquake.usgs.gov/earthquakes/eventpage/ak0212\"},"
+            + "\"geometry\":{\"type\":\"Point\",\"coordinates\":[-149.9,61.2,35.2]},\"id\":\"ak0212\"},"
+            + "{\"type\":\"Feature\",\"properties\":{\"mag\":null,\"place\":\"Fiji region, Fiji\","
+            + "\"time\":946641600000,\"updated\":946782245600,"
+            + "\"url\":\"https://earthquake.usgs.gov/earthquakes/eventpage/nc7300\"},"
+            + "\"geometry\":{\"type\":\"Point\",\"coordinates\":[-179.99,-0.5]},\"id\":\"nc7300\"}"
+            + "]}";
+
+    @Test
+    public void sameFixture_matchesJsonParser() throws IOException {
+        List<Earthquake> fromCsv = EarthquakeCsvParser.parse(new StringReader(CSV_FIXTURE));
+        List<Earthquake> fromJson = EarthquakeJsonParser.parseFeatureCollection(
+                new JsonReader(new StringReader(JSON_FIXTURE)));
+
+        assertEquals(3, fromJson.size());
+        assertEquals(fromJson.size(), fromCsv.size());
+        for (int i = 0; i < fromJson.size(); i++) {
+            assertSameEarthquake(fromJson.get(i), fromCsv.get(i));
+        }
+    }
+
+    @Test
+    public void fixture_fieldValues() throws IOException {
+        List<Earthquake> earthquakes = EarthquakeCsvParser.parse(new StringReader(CSV_FIXTURE));
+
+        Earthquake first = earthquakes.get(0);
+        assertEquals("us7000abcd", first.getId());
+        assertEquals(5.8, first.getMag(), 0);
+        assertEquals("58 km ENE of Ishinomaki, Japan", first.getPlace());
+        assertEquals(1613871420123L, first.getTime());
+        assertEquals(1613873445040L, first.getUpdated());
+        assertEquals(EarthquakeCsvParser.EVENT_PAGE_URL + "us7000abcd", first.getUrl());
+
+        assertEquals("10 km \"N\" of Anchorage, Alaska", earthquakes.get(1).getPlace());
+
+        // 缺失的震级为 0，缺失的深度为 NaN，与 GeoJSON 解析器相同
+        Earthquake last = earthquakes.get(2);
+        assertEquals(0, last.getMag(), 0);
+        assertTrue(Double.isNaN(last.getDepth()));
+        assertEquals(-179.99, last.getLongitude(), 0);
+    }
+
+    @Test
+    public void oneCharacterReads_sameResult() throws IOException {
+        List<Earthquake> expected = EarthquakeCsvParser.parse(new StringReader(CSV_FIXTURE));
+        List<Earthquake> actual = EarthquakeCsvParser.parse(new OneCharReader(new StringReader(CSV_FIXTURE)));
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameEarthquake(expected.get(i), actual.get(i));
+        }
+    }
+
+    @Test
+    public void crlfAndMissingFinalNewline() throws IOException {
+        String csv = CSV_FIXTURE.replace("\n", "\r\n").trim();
+        List<Earthquake> earthquakes = EarthquakeCsvParser.parse(new StringReader(csv));
+
+        assertEquals(3, earthquakes.size());
+        assertEquals("Fiji region, Fiji", earthquakes.get(2).getPlace());
+    }
+
+    @Test
+    public void lineLongerThanBuffer() throws IOException {
+        StringBuilder place = new StringBuilder();
+        while (place.length() < 20000) {
+            place.append("very, long place ");
+        }
+        String csv = "id,time,place\nx1,2021-01-01T00:00:00Z,\"" + place + "\"\n";
+        List<Earthquake> earthquakes = EarthquakeCsvParser.parse(new StringReader(csv));
+
+        assertEquals(1, earthquakes.size());
+        assertEquals(place.toString(), earthquakes.get(0).getPlace());
+    }
+
+    @Test
+    public void blankLinesAreSkipped() throws IOException {
+        String csv = "id,time,mag\n\nx1,2021-01-01T00:00:00Z,2.5\n\n";
+        List<Earthquake> earthquakes = EarthquakeCsvParser.parse(new StringReader(csv));
+
+        assertEquals(1, earthquakes.size());
+        assertEquals(2.5, earthquakes.get(0).getMag(), 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void missingIdColumn_throws() throws IOException {
+        EarthquakeCsvParser.parse(new StringReader("time,mag\n2021-01-01T00:00:00Z,2.5\n"));
+    }
+
+    @Test(expected = IOException.class)
+    public void unterminatedQuote_throws() throws IOException {
+        EarthquakeCsvParser.parse(new StringReader("id,time,place\nx1,2021-01-01T00:00:00Z,\"open\n"));
+    }
+
+    @Test(expected = IOException.class)
+    public void malformedTime_throws() throws IOException {
+        EarthquakeCsvParser.parse(new StringReader("id,time\nx1,2021/01/01 00:00:00\n"));
+    }
+
+    @Test
+    public void parseDouble_matchesJdk() {
+        String[] values = {"0", "-0.0", "5.8", "-1.25", "+3", "141.8027", "0.1", "123456789.123456789",
+                "1e3", "2.5E-4", "-7.0e+2", "9007199254740993", "1e300", "4.9e-324", ".5", "5."};
+        for (String value : values) {
+            char[] chars = ("#" + value + "#").toCharArray();
+            assertEquals(value, Double.parseDouble(value),
+                    EarthquakeCsvParser.parseDouble(chars, 1, chars.length - 1), 0);
+        }
+    }
+
+    @Test
+    public void parseDouble_rejectsGarbage() {
+        String[] values = {"", "-", ".", "1e", "1.2.3", "abc", "1,5", "e5"};
+        for (String value : values) {
+            char[] chars = value.toCharArray();
+            try {
+                EarthquakeCsvParser.parseDouble(chars, 0, chars.length);
+                fail("Accepted " + value);
+            } catch (NumberFormatException expected) {
+                // 预期的异常
+            }
+        }
+    }
+
+    @Test
+    public void parseTime_everyDayMatchesLocalDate() {
+        // 覆盖闰年规则的各种情况：1900 和 2100 不是闰年，2000 是
+        LocalDate end = LocalDate.of(2101, 1, 1);
+        for (LocalDate date = LocalDate.of(1899, 1, 1); date.isBefore(end); date = date.plusDays(1)) {
+            char[] chars = (date + "T00:00:00Z").toCharArray();
+            assertEquals(date.toString(), date.toEpochDay() * 86400000L,
+                    EarthquakeCsvParser.parseTime(chars, 0, chars.length));
+        }
+    }
+
+    @Test
+    public void parseTime_fractionAndOptionalZone() {
+        assertEquals(1613871420123L, parseTime("2021-02-21T01:37:00.123Z"));
+        assertEquals(1613871420123L, parseTime("2021-02-21T01:37:00.1234567"));
+        assertEquals(1613871420100L, parseTime("2021-02-21T01:37:00.1Z"));
+        assertEquals(1613871420000L, parseTime("2021-02-21T01:37:00"));
+    }
+
+    @Test
+    public void parseTime_rejectsMalformed() {
+        String[] values = {"2021-02-21", "2021-02-21 01:37:00Z", "2021-13-01T00:00:00Z",
+                "2021-02-21T24:00:00Z", "2021-02-21T01:37:00.Z", "2021-02-21T01:37:00+08:00"};
+        for (String value : values) {
+            assertEquals(value, Long.MIN_VALUE, parseTime(value));
+        }
+    }
+
+    private static long parseTime(String value) {
+        char[] chars = value.toCharArray();
+        return EarthquakeCsvParser.parseTime(chars, 0, chars.length);
+    }
+
+    private static void assertSameEarthquake(Earthquake expected, Earthquake actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getId(), expected.getMag(), actual.getMag(), 0);
+        assertEquals(expected.getPlace(), actual.getPlace());
+        assertEquals(expected.getId(), expected.getTime(), actual.getTime());
+        assertEquals(expected.getId(), expected.getUpdated(), actual.getUpdated());
+        assertEquals(expected.getUrl(), actual.getUrl());
+        assertEquals(expected.getId(), expected.getLongitude(), actual.getLongitude(), 0);
+        assertEquals(expected.getId(), expected.getLatitude(), actual.getLatitude(), 0);
+        assertEquals(expected.getId(), expected.getDepth(), actual.getDepth(), 0);
+    }
+
+    /**
+     * 每次最多返回一个字符，使每一行都在缓冲区边界处被截断
+     */
+    private static class OneCharReader extends FilterReader {
+
+        OneCharReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            return super.read(buffer, offset, Math.min(length, 1));
+        }
+    }
+}
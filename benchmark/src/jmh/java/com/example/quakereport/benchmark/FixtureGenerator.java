@@ -0,0 +1,255 @@
+package com.example.quakereport.benchmark;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 生成基准测试使用的合成 USGS GeoJSON 数据，以及内容相同的 CSV 数据。
+ * <p>
+ * 使用固定的随机种子，字段与 USGS FDSN 查询结果的 feature 保持一致，
+ * 每次生成的文件内容完全相同。运行 {@code ./gradlew :benchmark:generateFixtures} 重新生成。
+ **/
+public class FixtureGenerator {
+
+    /**
+     * 生成的数据集大小（feature 个数）
+     */
+    static final int[] SIZES = {100, 2000, 20000};
+
+    private static final String[] DIRECTIONS = {
+            "N", "NNE", "NE", "ENE", "E", "ESE", "SE", "SSE",
+            "S", "SSW", "SW", "WSW", "W", "WNW", "NW", "NNW"
+    };
+
+    private static final String[] REGIONS = {
+            "Ridgecrest, CA", "Anchorage, Alaska", "Hilo, Hawaii", "Tokyo, Japan",
+            "Santiago, Chile", "Lima, Peru", "Jakarta, Indonesia", "Suva, Fiji",
+            "Manila, Philippines", "Christchurch, New Zealand", "Reno, Nevada",
+            "Mexico City, Mexico", "Tehran, Iran", "Kathmandu, Nepal", "Ankara, Turkey"
+    };
+
+    private static final String[] OCEAN_REGIONS = {
+            "Pacific-Antarctic Ridge", "Mid-Atlantic Ridge", "Kermadec Islands region",
+            "south of the Fiji Islands", "Banda Sea"
+    };
+
+    private static final String[] NETWORKS = {"us", "ci", "ak", "nc", "hv", "nn", "uw"};
+
+    /**
+     * 数据集的生成时间，事件时间从这里往前推
+     */
+    private static final long GENERATED = 1612000000000L;
+
+    public static void main(String[] args) throws IOException {
+        File outputDir = new File(args.length > 0 ? args[0] : "src/jmh/resources/fixtures");
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Cannot create " + outputDir);
+        }
+
+        for (int size : SIZES) {
+            List<SyntheticEvent> events = generateEvents(size, new Random(size));
+
+            File file = new File(outputDir, fixtureName(size));
+            try (Writer writer = new OutputStreamWriter(
+                    new GZIPOutputStream(new FileOutputStream(file)), StandardCharsets.UTF_8)) {
+                writeFeatureCollection(writer, events);
+            }
+            System.out.println("Wrote " + file + " (" + file.length() + " bytes)");
+
+            // 同样的事件以 FDSN format=csv 的格式输出，用于对比两种格式的体积和解析耗时
+            File csvFile = new File(outputDir, csvFixtureName(size));
+            try (Writer writer = new OutputStreamWriter(
+                    new GZIPOutputStream(new FileOutputStream(csvFile)), StandardCharsets.UTF_8)) {
+                writeCsv(writer, events, new Random(~size));
+            }
+            System.out.println("Wrote " + csvFile + " (" + csvFile.length() + " bytes)");
+        }
+    }
+
+    /**
+     * 返回给定大小的数据集的文件名
+     */
+    static String fixtureName(int size) {
+        return "usgs_" + size + ".geojson.gz";
+    }
+
+    /**
+     * 返回给定大小的 CSV 数据集的文件名，其中的事件与 {@link #fixtureName(int)} 相同
+     */
+    static String csvFixtureName(int size) {
+        return "usgs_" + size + ".csv.gz";
+    }
+
+    /**
+     * 一个合成的事件
+     */
+    private static class SyntheticEvent {
+        String net;
+        String code;
+        String id;
+        double mag;
+        long time;
+        long updated;
+        double longitude;
+        double latitude;
+        double depth;
+        String place;
+        String status;
+        int nst;
+        double dmin;
+        double rms;
+        int gap;
+
+        String magType() {
+            return mag < 4 ? "ml" : "mb";
+        }
+    }
+
+    private static List<SyntheticEvent> generateEvents(int size, Random random) {
+        List<SyntheticEvent> events = new ArrayList<>(size);
+        long time = GENERATED;
+        for (int i = 0; i < size; i++) {
+            time -= 1000 + random.nextInt(600000);
+            events.add(generateEvent(random, time));
+        }
+        return events;
+    }
+
+    private static SyntheticEvent generateEvent(Random random, long time) {
+        SyntheticEvent event = new SyntheticEvent();
+        event.net = NETWORKS[random.nextInt(NETWORKS.length)];
+        event.code = String.format(Locale.US, "%08d", random.nextInt(100000000));
+        event.id = event.net + event.code;
+        event.mag = Math.round((random.nextDouble() * random.nextDouble() * 9 + 0.5) * 100) / 100.0;
+        event.time = time;
+        event.updated = time + random.nextInt(86400000);
+        event.longitude = Math.round((random.nextDouble() * 360 - 180) * 10000) / 10000.0;
+        event.latitude = Math.round((random.nextDouble() * 140 - 70) * 10000) / 10000.0;
+        event.depth = Math.round(random.nextDouble() * 300 * 100) / 100.0;
+        event.place = random.nextInt(10) == 0
+                ? OCEAN_REGIONS[random.nextInt(OCEAN_REGIONS.length)]
+                : (1 + random.nextInt(150)) + "km " + DIRECTIONS[random.nextInt(DIRECTIONS.length)]
+                + " of " + REGIONS[random.nextInt(REGIONS.length)];
+        event.status = random.nextBoolean() ? "reviewed" : "automatic";
+        event.nst = random.nextInt(100);
+        event.dmin = Math.round(random.nextDouble() * 10000) / 10000.0;
+        event.rms = Math.round(random.nextDouble() * 100) / 100.0;
+        event.gap = random.nextInt(360);
+        return event;
+    }
+
+    private static void writeFeatureCollection(Writer out, List<SyntheticEvent> events) throws IOException {
+        JsonWriter writer = new JsonWriter(out);
+        int size = events.size();
+
+        writer.beginObject();
+        writer.name("type").value("FeatureCollection");
+        writer.name("metadata").beginObject()
+                .name("generated").value(GENERATED)
+                .name("url").value("https://earthquake.usgs.gov/fdsnws/event/1/query?format=geojson&limit=" + size)
+                .name("title").value("USGS Earthquakes")
+                .name("status").value(200)
+                .name("api").value("1.10.3")
+                .name("limit").value(size)
+                .name("offset").value(1)
+                .name("count").value(size)
+                .endObject();
+
+        writer.name("features").beginArray();
+        for (SyntheticEvent event : events) {
+            writeFeature(writer, event);
+        }
+        writer.endArray();
+
+        writer.name("bbox").beginArray()
+                .value(-179.9).value(-65.1).value(-3.5)
+                .value(179.9).value(80.2).value(650.1)
+                .endArray();
+        writer.endObject();
+        writer.flush();
+    }
+
+    private static void writeFeature(JsonWriter writer, SyntheticEvent event) throws IOException {
+        String id = event.id;
+        double mag = event.mag;
+        String url = "https://earthquake.usgs.gov/earthquakes/eventpage/" + id;
+
+        writer.beginObject();
+        writer.name("type").value("Feature");
+        writer.name("properties").beginObject()
+                .name("mag").value(mag)
+                .name("place").value(event.place)
+                .name("time").value(event.time)
+                .name("updated").value(event.updated)
+                .name("tz").nullValue()
+                .name("url").value(url)
+                .name("detail").value("https://earthquake.usgs.gov/fdsnws/event/1/query?eventid=" + id + "&format=geojson")
+                .name("felt").nullValue()
+                .name("cdi").nullValue()
+                .name("mmi").nullValue()
+                .name("alert").nullValue()
+                .name("status").value(event.status)
+                .name("tsunami").value(0)
+                .name("sig").value((int) (mag * mag * 10))
+                .name("net").value(event.net)
+                .name("code").value(event.code)
+                .name("ids").value("," + id + ",")
+                .name("sources").value("," + event.net + ",")
+                .name("types").value(",origin,phase-data,")
+                .name("nst").value(event.nst)
+                .name("dmin").value(event.dmin)
+                .name("rms").value(event.rms)
+                .name("gap").value(event.gap)
+                .name("magType").value(event.magType())
+                .name("type").value("earthquake")
+                .name("title").value("M " + mag + " - " + event.place)
+                .endObject();
+        writer.name("geometry").beginObject()
+                .name("type").value("Point")
+                .name("coordinates").beginArray()
+                .value(event.longitude).value(event.latitude).value(event.depth)
+                .endArray()
+                .endObject();
+        writer.name("id").value(id);
+        writer.endObject();
+    }
+
+    /**
+     * 按 FDSN format=csv 的列顺序输出事件。CSV 独有的误差列使用单独的随机数生成器，
+     * 不影响 GeoJSON 数据集的内容
+     */
+    private static void writeCsv(Writer writer, List<SyntheticEvent> events, Random random) throws IOException {
+        SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+        timeFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        writer.write("time,latitude,longitude,depth,mag,magType,nst,gap,dmin,rms,net,id,updated,place,type,"
+                + "horizontalError,depthError,magError,magNst,status,locationSource,magSource\n");
+        for (SyntheticEvent event : events) {
+            writer.write(timeFormat.format(new Date(event.time)) + ","
+                    + event.latitude + "," + event.longitude + "," + event.depth + ","
+                    + event.mag + "," + event.magType() + "," + event.nst + "," + event.gap + ","
+                    + event.dmin + "," + event.rms + "," + event.net + "," + event.id + ","
+                    + timeFormat.format(new Date(event.updated)) + ","
+                    + "\"" + event.place.replace("\"", "\"\"") + "\",earthquake,"
+                    + Math.round(random.nextDouble() * 1000) / 100.0 + ","
+                    + Math.round(random.nextDouble() * 2000) / 100.0 + ","
+                    + Math.round(random.nextDouble() * 50) / 100.0 + ","
+                    + random.nextInt(100) + ","
+                    + event.status + "," + event.net + "," + event.net + "\n");
+        }
+    }
+}
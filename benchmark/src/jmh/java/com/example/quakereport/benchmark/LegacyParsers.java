@@ -0,0 +1,59 @@
+package com.example.quakereport.benchmark;
+
+import com.example.quakereport.Earthquake;
+import com.google.gson.Gson;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 旧版解析流程的 JVM 版本，作为基准测试的对照组。
+ * <p>
+ * 与 app 模块中 {@code QueryUtils.extractFeatureFromJson}（org.json）和
+ * 流式解析之前的 {@code QueryUtilsPlus.extractFeatureFromJson}（org.json + Gson）逻辑相同，
+ * 只去掉了 Android 的 TextUtils 和 Log 调用。
+ **/
+final class LegacyParsers {
+
+    private LegacyParsers() {
+    }
+
+    /**
+     * 构建完整的 org.json 对象树，再逐个读取字段
+     */
+    static List<Earthquake> parseWithOrgJson(String earthquakeJSON) throws JSONException {
+        List<Earthquake> earthquakes = new ArrayList<>();
+
+        JSONObject baseJsonResponse = new JSONObject(earthquakeJSON);
+        JSONArray earthquakeArray = baseJsonResponse.getJSONArray("features");
+        for (int i = 0; i < earthquakeArray.length(); i++) {
+            JSONObject properties = earthquakeArray.getJSONObject(i).getJSONObject("properties");
+            earthquakes.add(new Earthquake(
+                    properties.getDouble("mag"),
+                    properties.getString("place"),
+                    properties.getLong("time"),
+                    properties.getString("url")));
+        }
+        return earthquakes;
+    }
+
+    /**
+     * 构建完整的 org.json 对象树，再把每个 properties 转回字符串交给 Gson 重新解析
+     */
+    static List<Earthquake> parseWithOrgJsonAndGson(String earthquakeJSON) throws JSONException {
+        List<Earthquake> earthquakes = new ArrayList<>();
+
+        JSONObject baseJsonResponse = new JSONObject(earthquakeJSON);
+        JSONArray earthquakeArray = baseJsonResponse.getJSONArray("features");
+        Gson gson = new Gson();
+        for (int i = 0; i < earthquakeArray.length(); i++) {
+            JSONObject properties = earthquakeArray.getJSONObject(i).getJSONObject("properties");
+            earthquakes.add(gson.fromJson(properties.toString(), Earthquake.class));
+        }
+        return earthquakes;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.quakereport.benchmark;
+
+import com.example.quakereport.Earthquake;
+import com.example.quakereport.util.EarthquakeCsvParser;
+import com.example.quakereport.util.EarthquakeJsonParser;
+import com.google.gson.stream.JsonReader;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 对比地震 GeoJSON 解析流程的基准测试。
+ * <p>
+ * 输入是 UTF-8 编码的响应体字节：旧版流程先把字节解码为完整的字符串（相当于
+ * {@code response.body().string()}），流式解析器直接从字节流读取。
+ * {@link #csv()} 解析内容相同的 {@code format=csv} 响应，两种格式的体积在 setup 时输出。
+ * Throughput 模式报告吞吐量，SampleTime 模式报告 p99 等分位耗时，
+ * 分配速率由 gc profiler 报告（见 build.gradle 中的 jmh 配置）。
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParseBenchmark {
+
+    /**
+     * 数据集中的 feature 个数，对应 fixtures 目录下的文件
+     */
+    @Param({"100", "2000", "20000"})
+    public int features;
+
+    private byte[] body;
+
+    private byte[] csvBody;
+
+    @Setup
+    public void loadFixture() throws IOException {
+        String name = "/fixtures/" + FixtureGenerator.fixtureName(features);
+        body = readFixture(name);
+        csvBody = readFixture("/fixtures/" + FixtureGenerator.csvFixtureName(features));
+        System.out.println("GeoJSON " + body.length + " bytes, CSV " + csvBody.length + " bytes");
+
+        // 确认各种解析方式得到的结果数量一致
+        int expected = streaming().size();
+        if (expected != features || orgJson().size() != expected || orgJsonGson().size() != expected
+                || csv().size() != expected) {
+            throw new IllegalStateException("Parsers disagree on " + name);
+        }
+    }
+
+    private static byte[] readFixture(String name) throws IOException {
+        try (InputStream in = new GZIPInputStream(ParseBenchmark.class.getResourceAsStream(name))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * QueryUtils.extractFeatureFromJson：org.json 对象树
+     */
+    @Benchmark
+    public List<Earthquake> orgJson() throws JSONException {
+        return LegacyParsers.parseWithOrgJson(new String(body, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 旧版 QueryUtilsPlus.extractFeatureFromJson：org.json 对象树 + Gson 重新解析
+     */
+    @Benchmark
+    public List<Earthquake> orgJsonGson() throws JSONException {
+        return LegacyParsers.parseWithOrgJsonAndGson(new String(body, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * EarthquakeJsonParser：从字节流一次性流式解析
+     */
+    @Benchmark
+    public List<Earthquake> streaming() throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(
+                new ByteArrayInputStream(body), StandardCharsets.UTF_8));
+        return EarthquakeJsonParser.parseFeatureCollection(reader);
+    }
+
+    /**
+     * EarthquakeCsvParser：从字节流流式解析内容相同的 CSV 响应
+     */
+    @Benchmark
+    public List<Earthquake> csv() throws IOException {
+        return EarthquakeCsvParser.parse(new InputStreamReader(
+                new ByteArrayInputStream(csvBody), StandardCharsets.UTF_8));
+    }
+}